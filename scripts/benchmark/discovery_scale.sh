@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+
+# Starts the discovery-server on its own and runs a fleet of simulated Eureka clients against it: every instance
+# registers, then renews its lease and fetches the registry delta at the intervals of a real client, while a few are
+# re-registered to keep the deltas busy. Reports the latency of each operation and the CPU and heap usage of the
+# server, and fails when the delta fetch p99 or the error ratio misses its objective. Options are loadtest.discovery.*
+# system properties, see DiscoveryLoadSettings in spring-petclinic-loadtest. Builds first, unless SKIP_BUILD is set:
+#
+#   ./scripts/benchmark/discovery_scale.sh
+#   HEAP=256m ./scripts/benchmark/discovery_scale.sh -Dloadtest.discovery.instances=5000 -Dloadtest.discovery.churn=5
+#   ./scripts/benchmark/discovery_scale.sh -Dloadtest.discovery.renewal-interval=5 -Dloadtest.discovery.duration=60
+#
+# Pass --eureka.server.* options in SERVER_ARGS to compare response cache settings, for example
+# SERVER_ARGS="--eureka.server.use-read-only-response-cache=false". Latency distributions are written to
+# spring-petclinic-loadtest/target/loadtest/discovery as .hgrm files.
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+JAVA="${JAVA:-java}"
+HEAP="${HEAP:-512m}"
+PORT="${PORT:-8761}"
+SERVER_ARGS="${SERVER_ARGS:-}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+
+if [[ -z "${SKIP_BUILD:-}" ]]; then
+    "${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -q -pl spring-petclinic-discovery-server package -DskipTests
+fi
+
+jar=$(ls "${ROOT}"/spring-petclinic-discovery-server/target/discovery-server-*.jar | grep -v -- '-exec.jar' | head -1)
+read -r -a server_args <<< "${SERVER_ARGS}"
+"${JAVA}" -Xms"${HEAP}" -Xmx"${HEAP}" -jar "${jar}" --server.port="${PORT}" --spring.cloud.config.enabled=false \
+    --logging.level.root=WARN "${server_args[@]}" > "${ROOT}/spring-petclinic-discovery-server/target/discovery-scale.log" 2>&1 &
+server=$!
+trap 'kill "${server}" 2> /dev/null || true' EXIT
+
+deadline=$((SECONDS + TIMEOUT_SECONDS))
+until curl --silent --fail --output /dev/null "http://localhost:${PORT}/actuator/health"; do
+    if ! kill -0 "${server}" 2> /dev/null || ((SECONDS > deadline)); then
+        echo "discovery-server did not start, see spring-petclinic-discovery-server/target/discovery-scale.log" >&2
+        exit 1
+    fi
+    sleep 0.5
+done
+
+"${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -Ploadtest -pl spring-petclinic-loadtest -am verify \
+    -Dtest=DiscoveryScaleTest -Dsurefire.failIfNoSpecifiedTests=false \
+    -Dloadtest.discovery.url="http://localhost:${PORT}" "$@"
@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+
+# Runs the api-gateway against stand-in customers, visits and vets services at a constant arrival rate and fails when
+# the 99th percentile latency or the error ratio of an endpoint exceeds its objective. Options are loadtest.* system
+# properties, see LoadTestSettings in spring-petclinic-loadtest:
+#
+#   ./scripts/benchmark/gateway_loadtest.sh
+#   ./scripts/benchmark/gateway_loadtest.sh -Dloadtest.rate=200 -Dloadtest.visits.latency=lognormal:40,0.8
+#   ./scripts/benchmark/gateway_loadtest.sh -Dloadtest.visits.error-rate=0.2 -Dloadtest.max-p99=500
+#
+# Latency distributions are written to spring-petclinic-loadtest/target/loadtest as .hgrm files, which the
+# HdrHistogram plotter (https://hdrhistogram.github.io/HdrHistogram/plotFiles.html) reads.
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+
+"${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -Ploadtest -pl spring-petclinic-loadtest -am verify \
+    -Dtest=GatewayLoadTest -Dsurefire.failIfNoSpecifiedTests=false "$@"
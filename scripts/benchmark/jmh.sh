@@ -0,0 +1,25 @@
+#!/usr/bin/env bash
+
+# Builds spring-petclinic-benchmarks and runs its JMH benchmarks, writing the results as JSON to
+# spring-petclinic-benchmarks/results/<version>.json, where <version> defaults to `git describe`. Extra arguments are
+# passed to JMH, e.g. a benchmark regex and shorter runs while iterating:
+#
+#   ./scripts/benchmark/jmh.sh
+#   ./scripts/benchmark/jmh.sh 'AddVisitsToOwner|JsonSerialization' -wi 1 -i 3
+#   VERSION=v3.0.1 ./scripts/benchmark/jmh.sh
+#
+# Compare two result files with ./scripts/benchmark/jmh_compare.sh.
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+VERSION="${VERSION:-$(git -C "${ROOT}" describe --always --dirty)}"
+RESULTS="${ROOT}/spring-petclinic-benchmarks/results"
+
+"${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -q -Pbenchmarks -pl spring-petclinic-benchmarks -am package -DskipTests
+mkdir -p "${RESULTS}"
+java -jar "${ROOT}/spring-petclinic-benchmarks/target/benchmarks.jar" -rf json -rff "${RESULTS}/${VERSION}.json" "$@"
+echo "Results written to ${RESULTS}/${VERSION}.json"
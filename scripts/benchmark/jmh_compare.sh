@@ -0,0 +1,26 @@
+#!/usr/bin/env bash
+
+# Compares two JMH JSON result files written by jmh.sh, printing for every benchmark and parameter combination the
+# baseline and current score and the relative change. Requires jq.
+#
+#   ./scripts/benchmark/jmh_compare.sh spring-petclinic-benchmarks/results/v3.0.1.json \
+#       spring-petclinic-benchmarks/results/v3.0.2.json
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+if [[ $# -ne 2 ]]; then
+    echo "usage: $0 <baseline.json> <current.json>" >&2
+    exit 1
+fi
+
+function scores {
+    jq -r '.[] | [(.benchmark | sub(".*\\.(?<name>[^.]+\\.[^.]+)$"; "\(.name)")) + ((.params // {}) | to_entries | map(" " + .key + "=" + .value) | join("")),
+        .primaryMetric.score, .primaryMetric.scoreUnit] | @tsv' "$1" | sort
+}
+
+join -t $'\t' <(scores "$1") <(scores "$2") | awk -F '\t' '
+    BEGIN { printf "%-72s %14s %14s %8s\n", "benchmark", "baseline", "current", "change" }
+    { printf "%-72s %14.3f %14.3f %+7.1f%% %s\n", $1, $2, $4, ($4 - $2) / $2 * 100, $3 }'
@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+
+# Measures the time from launching customers, visits, vets and the api-gateway to their first successful request,
+# started as usual from their Spring Boot fat jars, then from the artifacts of the fast-startup Maven profile: the
+# AOT-processed plain jar and its AppCDS archive. Services run without config-server; discovery-server is not needed
+# either, they just log that it cannot be reached. Builds with -Pfast-startup first, unless SKIP_BUILD is set:
+#
+#   ./scripts/benchmark/startup_time.sh
+#   RUNS=5 SKIP_BUILD=1 ./scripts/benchmark/startup_time.sh customers-service vets-service
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+RUNS="${RUNS:-3}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+
+declare -A PORTS=([customers-service]=8081 [visits-service]=8082 [vets-service]=8083 [api-gateway]=8080)
+declare -A PROBES=([customers-service]=/owners [visits-service]=/pets/visits?petId=1 [vets-service]=/vets [api-gateway]=/)
+# as in the services' fast-startup profiles
+declare -A ARGS=([visits-service]="--spring.datasource.url=jdbc:hsqldb:mem:petclinic --spring.sql.init.schema-locations=classpath*:db/hsqldb/schema.sql --spring.sql.init.data-locations=classpath*:db/hsqldb/data.sql --spring.jpa.hibernate.ddl-auto=none")
+
+if (($# > 0)); then
+    SERVICES=("$@")
+else
+    SERVICES=(customers-service visits-service vets-service api-gateway)
+fi
+
+if [[ -z "${SKIP_BUILD:-}" ]]; then
+    modules=$(printf 'spring-petclinic-%s,' "${SERVICES[@]}")
+    "${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -q -Pfast-startup -pl "${modules%,}" -am package -DskipTests
+fi
+
+# prints the milliseconds from launch to the first successful request
+time_to_first_request() {
+    local service="$1"
+    shift
+    local url="http://localhost:${PORTS[${service}]}${PROBES[${service}]}"
+    local start
+    start=$(date +%s%N)
+    local args
+    read -r -a args <<< "${ARGS[${service}]:-}"
+    java "$@" --server.port="${PORTS[${service}]}" --spring.cloud.config.enabled=false "${args[@]}" > /dev/null 2>&1 &
+    local pid=$!
+    local deadline=$((SECONDS + TIMEOUT_SECONDS))
+    until curl --silent --fail --output /dev/null "${url}"; do
+        if ! kill -0 "${pid}" 2> /dev/null || ((SECONDS > deadline)); then
+            kill "${pid}" 2> /dev/null || true
+            echo "${service} did not answer ${url}" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    echo $((($(date +%s%N) - start) / 1000000))
+    kill -TERM "${pid}"
+    wait "${pid}" || true
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : int((values[NR / 2] + values[NR / 2 + 1]) / 2) }'
+}
+
+printf '%-18s %12s %12s %9s\n' service "fat jar ms" "fast ms" speedup
+for service in "${SERVICES[@]}"; do
+    target="${ROOT}/spring-petclinic-${service}/target"
+    exec_jar=$(ls "${target}/${service}"-*-exec.jar)
+    plain_jar="${exec_jar%-exec.jar}.jar"
+    before=$(for ((i = 0; i < RUNS; i++)); do time_to_first_request "${service}" -jar "${exec_jar}"; done | median)
+    after=$(for ((i = 0; i < RUNS; i++)); do
+        time_to_first_request "${service}" -XX:SharedArchiveFile="${target}/${service}.jsa" -Dspring.aot.enabled=true \
+            -jar "${plain_jar}"
+    done | median)
+    awk -v service="${service}" -v before="${before}" -v after="${after}" \
+        'BEGIN { printf "%-18s %12d %12d %8.2fx\n", service, before, after, before / after }'
+done
@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+
+# Compares the throughput of GET /vets with a static file baseline: the vets JSON is fetched once and served by
+# `python3 -m http.server`. Then runs hey (https://github.com/rakyll/hey) passes of REQUESTS requests with
+# CONCURRENCY workers for plain JSON, gzip, and revalidation with If-None-Match, which vets-service answers with a
+# bodiless 304. Run it against a started vets-service, e.g.
+#
+#   ./scripts/benchmark/vets_snapshot_throughput.sh
+#   VETS_URL=http://localhost:8083 REQUESTS=200000 CONCURRENCY=100 ./scripts/benchmark/vets_snapshot_throughput.sh
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+VETS_URL="${VETS_URL:-http://localhost:8083}"
+REQUESTS="${REQUESTS:-50000}"
+CONCURRENCY="${CONCURRENCY:-50}"
+STATIC_PORT="${STATIC_PORT:-8099}"
+
+function run {
+    local label="$1"
+    shift
+    hey -n "${REQUESTS}" -c "${CONCURRENCY}" "$@" | awk -v label="${label}" '
+        /Requests\/sec/ { rps = $2 }
+        /50% in/ { p50 = $3 * 1000 }
+        /99% in/ { p99 = $3 * 1000 }
+        END { printf "%-12s %10.0f req/s p50=%.2fms p99=%.2fms\n", label, rps, p50, p99 }'
+}
+
+static_dir="$(mktemp -d)"
+trap 'kill "${static_pid}" 2> /dev/null; rm -rf "${static_dir}"' EXIT
+curl --fail --silent "${VETS_URL}/vets" > "${static_dir}/vets.json"
+python3 -m http.server "${STATIC_PORT}" --directory "${static_dir}" > /dev/null 2>&1 &
+static_pid=$!
+etag="$(curl --fail --silent --head "${VETS_URL}/vets" | awk 'tolower($1) == "etag:" { print $2 }' | tr -d '\r')"
+
+# warm up the JIT before measuring
+REQUESTS=10000 run "warmup" "${VETS_URL}/vets" > /dev/null
+
+run "static" "http://localhost:${STATIC_PORT}/vets.json"
+run "json" "${VETS_URL}/vets"
+run "gzip" -H "Accept-Encoding: gzip" "${VETS_URL}/vets"
+run "304" -H "If-None-Match: ${etag}" "${VETS_URL}/vets"
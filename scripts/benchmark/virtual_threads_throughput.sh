@@ -0,0 +1,90 @@
+#!/usr/bin/env bash
+
+# Compares the throughput of visits-service on Tomcat's platform thread pool and with the virtual-threads profile, at
+# the same fixed heap, against MySQL with DB_LATENCY_MS of latency added by Toxiproxy. With virtual threads Tomcat
+# accepts CONCURRENCY requests at once and the Hikari pool becomes the limit; requests that wait for a connection
+# longer than its timeout fail, so check the status code distribution as well as the requests per second.
+#
+# The service runs from its jar on the host, with JAVA, which has to be Java 21 or later for the virtual-threads
+# profile. Requires docker compose, curl and hey (https://github.com/rakyll/hey). Builds visits-service first, unless
+# SKIP_BUILD is set:
+#
+#   JAVA=/usr/lib/jvm/java-21/bin/java ./scripts/benchmark/virtual_threads_throughput.sh
+#   HEAP=128m CONCURRENCY=1000 DB_LATENCY_MS=50 SKIP_BUILD=1 ./scripts/benchmark/virtual_threads_throughput.sh
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+COMPOSE_FILE="${ROOT}/docker/visits-loadtest/docker-compose.yml"
+JAVA="${JAVA:-java}"
+HEAP="${HEAP:-256m}"
+DURATION="${DURATION:-60s}"
+CONCURRENCY="${CONCURRENCY:-400}"
+DB_LATENCY_MS="${DB_LATENCY_MS:-20}"
+TOXIPROXY_URL="${TOXIPROXY_URL:-http://localhost:8474}"
+PORT=8082
+URL="http://localhost:${PORT}/pets/visits?petId=7,8"
+
+if [[ -z "${SKIP_BUILD:-}" ]]; then
+    "${ROOT}/mvnw" -f "${ROOT}/pom.xml" -B -q -pl spring-petclinic-visits-service -am package -DskipTests
+fi
+jar=$(ls "${ROOT}"/spring-petclinic-visits-service/target/visits-service-*.jar | grep -v -e '-exec.jar$' | head -1)
+
+wait_until_up() {
+    local pid="$1"
+    for _ in $(seq 120); do
+        if curl --fail --silent --output /dev/null "http://localhost:${PORT}/actuator/health"; then
+            return
+        fi
+        if ! kill -0 "${pid}" 2> /dev/null; then
+            break
+        fi
+        sleep 1
+    done
+    echo "visits-service did not start" >&2
+    exit 1
+}
+
+run() {
+    local mode="$1"
+    local profiles=default
+    if [[ "${mode}" == virtual ]]; then
+        profiles=virtual-threads
+    fi
+    "${JAVA}" -Xms"${HEAP}" -Xmx"${HEAP}" -jar "${jar}" \
+        --server.port="${PORT}" \
+        --spring.profiles.active="${profiles}" \
+        --spring.cloud.config.enabled=false \
+        --eureka.client.enabled=false \
+        --spring.sql.init.mode=never \
+        --spring.datasource.url=jdbc:mysql://localhost:3307/petclinic \
+        --spring.datasource.username=root \
+        --spring.datasource.password=petclinic \
+        --management.endpoints.web.exposure.include=health,prometheus > /dev/null 2>&1 &
+    local pid=$!
+    wait_until_up "${pid}"
+
+    hey -z 15s -c 20 "${URL}" > /dev/null
+    echo "=== ${mode} threads, heap ${HEAP}, ${CONCURRENCY} concurrent requests, database latency ${DB_LATENCY_MS}ms"
+    hey -z "${DURATION}" -c "${CONCURRENCY}" "${URL}" \
+        | grep -E "Requests/sec|Average|Slowest|50%|95%|99%|\[[0-9]{3}\]|Error distribution" || true
+    curl --silent "http://localhost:${PORT}/actuator/prometheus" \
+        | grep -E '^(jvm_threads_live_threads|hikaricp_connections_pending|hikaricp_connections_timeout_total)' || true
+
+    kill -TERM "${pid}"
+    wait "${pid}" || true
+}
+
+docker compose -f "${COMPOSE_FILE}" up -d mysql toxiproxy
+trap 'docker compose -f "${COMPOSE_FILE}" down' EXIT
+until docker exec visits-loadtest-mysql mysqladmin ping -ppetclinic --silent 2> /dev/null; do
+    sleep 1
+done
+
+curl --fail --silent --output /dev/null -X POST "${TOXIPROXY_URL}/proxies/mysql/toxics" \
+    -d "{\"name\":\"latency\",\"type\":\"latency\",\"stream\":\"downstream\",\"attributes\":{\"latency\":${DB_LATENCY_MS}}}"
+run platform
+run virtual
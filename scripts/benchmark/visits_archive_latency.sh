@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+
+# Measures the latency of the hot visit lookup (pets/visits) before and after moving old visits to the archive.
+#
+# Seeds VISITS_PER_PET old visits and one recent visit for each of PETS pets through POST /visits/batch, samples
+# REQUESTS lookups of LOOKUP_PETS random pets, triggers the archive job through the visitarchive actuator endpoint
+# and samples again. Run it against a freshly started visits-service designated as archiver, e.g. started with
+# --visits.archive.archiver=true --visits.archive.refresh-interval=0s, then
+#
+#   ./scripts/benchmark/visits_archive_latency.sh
+#   VISITS_URL=http://localhost:8082 PETS=500 VISITS_PER_PET=200 ./scripts/benchmark/visits_archive_latency.sh
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+VISITS_URL="${VISITS_URL:-http://localhost:8082}"
+PETS="${PETS:-200}"
+VISITS_PER_PET="${VISITS_PER_PET:-100}"
+LOOKUP_PETS="${LOOKUP_PETS:-20}"
+REQUESTS="${REQUESTS:-500}"
+FIRST_PET=100000
+
+function seed {
+    local today
+    today="$(date +%F)"
+    for (( pet = FIRST_PET; pet < FIRST_PET + PETS; pet++ )); do
+        # one batch per pet keeps each request below the visits.batch.max-items limit
+        for (( i = 0; i < VISITS_PER_PET; i++ )); do
+            echo "{\"petId\":${pet},\"date\":\"2010-01-01\",\"description\":\"archived visit ${i} of pet ${pet}\"}"
+        done | curl --fail --silent --output /dev/null -H "Content-Type: application/x-ndjson" \
+            --data-binary @- "${VISITS_URL}/visits/batch"
+        curl --fail --silent --output /dev/null -H "Content-Type: application/json" \
+            --data "[{\"petId\":${pet},\"date\":\"${today}\",\"description\":\"recent visit of pet ${pet}\"}]" \
+            "${VISITS_URL}/visits/batch"
+    done
+}
+
+function sample {
+    local label="$1"
+    for (( i = 0; i < REQUESTS; i++ )); do
+        local ids
+        ids="$(shuf -i "${FIRST_PET}-$(( FIRST_PET + PETS - 1 ))" -n "${LOOKUP_PETS}" | paste -sd, -)"
+        curl --fail --silent --output /dev/null --write-out '%{time_total}\n' "${VISITS_URL}/pets/visits?petId=${ids}"
+    done | sort -n | awk -v label="${label}" '
+        { t[NR] = $1 * 1000 }
+        END {
+            printf "%-8s requests=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms\n", label, NR,
+                t[int(NR * 0.50)], t[int(NR * 0.95)], t[int(NR * 0.99)], t[NR]
+        }'
+}
+
+echo "Seeding $(( PETS * (VISITS_PER_PET + 1) )) visits for ${PETS} pets"
+seed
+
+# warm up the connection pool, JIT and statement caches before measuring
+REQUESTS=100 sample "warmup" > /dev/null
+sample "before"
+
+echo "Archived $(curl --fail --silent -X POST "${VISITS_URL}/actuator/visitarchive") visits"
+curl --fail --silent "${VISITS_URL}/actuator/visitarchive"
+echo
+
+REQUESTS=100 sample "warmup" > /dev/null
+sample "after"
@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+
+# Compares the servlet (Spring MVC + JPA) and reactive (WebFlux + R2DBC) modes of visits-service under equal 512M
+# memory limits, first with a healthy database and then with DB_LATENCY_MS of added latency on every response from
+# MySQL.
+#
+# The latency is injected with Toxiproxy rather than the Chaos Monkey latency assault: the assault sleeps on the
+# calling thread, which in reactive mode would be a Netty event loop.
+#
+# Requires docker compose, curl and hey (https://github.com/rakyll/hey), and the visits-service image built with
+# ./mvnw clean install -P buildDocker
+#
+#   ./scripts/benchmark/visits_reactive_vs_servlet.sh
+#   DURATION=2m CONCURRENCY=400 DB_LATENCY_MS=200 ./scripts/benchmark/visits_reactive_vs_servlet.sh
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+ROOT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )/../.." && pwd )"
+COMPOSE_FILE="${ROOT_DIR}/docker/visits-loadtest/docker-compose.yml"
+DURATION="${DURATION:-60s}"
+CONCURRENCY="${CONCURRENCY:-200}"
+DB_LATENCY_MS="${DB_LATENCY_MS:-100}"
+TOXIPROXY_URL="${TOXIPROXY_URL:-http://localhost:8474}"
+
+declare -A PORTS=( [servlet]=8082 [reactive]=8092 )
+
+function wait_until_up {
+    local port="$1"
+    for _ in $(seq 120); do
+        if curl --fail --silent --output /dev/null "http://localhost:${port}/actuator/health"; then
+            return
+        fi
+        sleep 1
+    done
+    echo "visits-service on port ${port} did not start" >&2
+    exit 1
+}
+
+function run {
+    local scenario="$1"
+    for mode in servlet reactive; do
+        local port="${PORTS[$mode]}"
+        echo "=== ${scenario} / ${mode}"
+        hey -z "${DURATION}" -c "${CONCURRENCY}" "http://localhost:${port}/pets/visits?petId=7,8" \
+            | grep -E "Requests/sec|Average|Slowest|50%|95%|99%|\[[0-9]{3}\]|Error distribution" || true
+        hey -z "${DURATION}" -c "${CONCURRENCY}" -m POST -T "application/json" \
+            -d '{"date":"2023-01-01","description":"load test"}' "http://localhost:${port}/owners/1/pets/7/visits" \
+            | grep -E "Requests/sec|99%|\[[0-9]{3}\]" || true
+        docker stats --no-stream --format "memory {{.MemUsage}}, cpu {{.CPUPerc}}" "visits-${mode}"
+    done
+}
+
+docker compose -f "${COMPOSE_FILE}" up -d
+trap 'docker compose -f "${COMPOSE_FILE}" down' EXIT
+wait_until_up "${PORTS[servlet]}"
+wait_until_up "${PORTS[reactive]}"
+
+# warm up both JVMs before measuring
+for port in "${PORTS[@]}"; do
+    hey -z 15s -c 20 "http://localhost:${port}/pets/visits?petId=7,8" > /dev/null
+done
+
+run "healthy database"
+
+curl --fail --silent --output /dev/null -X POST "${TOXIPROXY_URL}/proxies/mysql/toxics" \
+    -d "{\"name\":\"latency\",\"type\":\"latency\",\"stream\":\"downstream\",\"attributes\":{\"latency\":${DB_LATENCY_MS}}}"
+run "database latency ${DB_LATENCY_MS}ms"
+curl --fail --silent --output /dev/null -X DELETE "${TOXIPROXY_URL}/proxies/mysql/toxics/latency"
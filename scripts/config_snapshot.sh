@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+
+# Copies the configuration repository the config server reads into a local directory, which the config server
+# serves with its snapshot profile instead of cloning the repository:
+#
+#   ./scripts/config_snapshot.sh [<directory>] [<repository>] [<branch>]
+#   CONFIG_SNAPSHOT_DIR=<directory> java -jar spring-petclinic-config-server/target/*.jar --spring.profiles.active=snapshot
+#
+# Running it again replaces the files in place; the config server evicts the environments of the files that changed.
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+SNAPSHOT_DIR="${1:-config-snapshot}"
+REPOSITORY="${2:-https://github.com/azure-samples/spring-petclinic-microservices-config}"
+BRANCH="${3:-master}"
+
+CLONE_DIR="$(mktemp -d)"
+trap 'rm -rf "${CLONE_DIR}"' EXIT
+
+git clone --quiet --depth 1 --branch "${BRANCH}" "${REPOSITORY}" "${CLONE_DIR}"
+mkdir -p "${SNAPSHOT_DIR}"
+# only copy the files that differ, so that the config server keeps the environments of the others cached
+for file in "${CLONE_DIR}"/*.yml "${CLONE_DIR}"/*.yaml "${CLONE_DIR}"/*.properties; do
+    [[ -f "${file}" ]] || continue
+    target="${SNAPSHOT_DIR}/$(basename "${file}")"
+    cmp --silent "${file}" "${target}" || cp "${file}" "${target}"
+done
+echo "Snapshot of ${REPOSITORY}@${BRANCH} ($(git -C "${CLONE_DIR}" rev-parse --short HEAD)) in ${SNAPSHOT_DIR}"
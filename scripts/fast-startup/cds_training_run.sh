@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+
+# Training run of the fast-startup Maven profile: starts a service from its AOT-processed jar, waits for a first
+# successful request and stops it, the JVM then writing the classes it loaded to an AppCDS archive.
+#
+#   ./scripts/fast-startup/cds_training_run.sh <jar> <archive> <port> <request path> [<application arguments>]
+#
+# The service runs without config-server. Discovery is left enabled, as AOT fixed its beans at build time, and only
+# logs that discovery-server cannot be reached. Start the service with the same jar path and
+#
+#   java -XX:SharedArchiveFile=<archive> -Dspring.aot.enabled=true -jar <jar>
+
+set -o errexit
+set -o errtrace
+set -o nounset
+set -o pipefail
+
+JAR="$1"
+ARCHIVE="$2"
+PORT="$3"
+PROBE="$4"
+read -r -a ARGS <<< "${5:-}"
+TIMEOUT_SECONDS="${TIMEOUT_SECONDS:-120}"
+LOG="${ARCHIVE%.jsa}-training.log"
+
+rm -f "${ARCHIVE}"
+java -XX:ArchiveClassesAtExit="${ARCHIVE}" -Dspring.aot.enabled=true -jar "${JAR}" \
+    --server.port="${PORT}" --spring.cloud.config.enabled=false "${ARGS[@]}" > "${LOG}" 2>&1 &
+PID=$!
+
+deadline=$((SECONDS + TIMEOUT_SECONDS))
+until curl --silent --fail --output /dev/null "http://localhost:${PORT}${PROBE}"; do
+    if ! kill -0 "${PID}" 2> /dev/null || ((SECONDS > deadline)); then
+        kill "${PID}" 2> /dev/null || true
+        echo "Training run of ${JAR} failed, see ${LOG}" >&2
+        exit 1
+    fi
+    sleep 0.2
+done
+
+# a graceful stop lets the JVM dump the archive on exit
+kill -TERM "${PID}"
+wait "${PID}" || true
+if [[ ! -s "${ARCHIVE}" ]]; then
+    echo "No CDS archive written by ${JAR}, see ${LOG}" >&2
+    exit 1
+fi
+echo "CDS archive written to ${ARCHIVE}"
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two ring buffers of {@link LatencyWindow}s for one endpoint of one instance: the latest scrapes at full resolution,
+ * and older ones merged <code>downsampleFactor</code> at a time. Memory stays fixed however long the admin server
+ * runs.
+ */
+final class EndpointHistory {
+
+    private final Point[] recent;
+
+    private final Point[] downsampled;
+
+    private final int downsampleFactor;
+
+    private int recentNext;
+
+    private int recentSize;
+
+    private int downsampledNext;
+
+    private int downsampledSize;
+
+    private Point pending;
+
+    private int pendingPoints;
+
+    EndpointHistory(int recentPoints, int downsampleFactor, int historyPoints) {
+        this.recent = new Point[recentPoints];
+        this.downsampled = new Point[historyPoints];
+        this.downsampleFactor = downsampleFactor;
+    }
+
+    synchronized void add(Instant start, Duration length, LatencyWindow window) {
+        Point point = new Point(start, length, window);
+        recent[recentNext] = point;
+        recentNext = (recentNext + 1) % recent.length;
+        recentSize = Math.min(recentSize + 1, recent.length);
+
+        pending = pending == null ? point : pending.plus(point);
+        if (++pendingPoints == downsampleFactor) {
+            downsampled[downsampledNext] = pending;
+            downsampledNext = (downsampledNext + 1) % downsampled.length;
+            downsampledSize = Math.min(downsampledSize + 1, downsampled.length);
+            pending = null;
+            pendingPoints = 0;
+        }
+    }
+
+    /**
+     * The points that started at or after <code>from</code>, oldest first, at full resolution as far as the recent
+     * buffer reaches back and downsampled before that.
+     */
+    synchronized List<Point> since(Instant from) {
+        List<Point> recentPoints = ordered(recent, recentNext, recentSize);
+        List<Point> points = new ArrayList<>();
+        Instant fullResolutionFrom = recentPoints.isEmpty() ? Instant.MAX : recentPoints.get(0).start();
+        if (from.isBefore(fullResolutionFrom)) {
+            for (Point point : ordered(downsampled, downsampledNext, downsampledSize)) {
+                if (!point.start().isBefore(from) && point.end().compareTo(fullResolutionFrom) <= 0) {
+                    points.add(point);
+                }
+            }
+        }
+        for (Point point : recentPoints) {
+            if (!point.start().isBefore(from)) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    synchronized Instant lastUpdate() {
+        return recentSize == 0 ? Instant.MIN : recent[(recentNext - 1 + recent.length) % recent.length].end();
+    }
+
+    private static List<Point> ordered(Point[] buffer, int next, int size) {
+        List<Point> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            points.add(buffer[(next - size + i + buffer.length) % buffer.length]);
+        }
+        return points;
+    }
+
+    record Point(Instant start, Duration length, LatencyWindow window) {
+
+        Instant end() {
+            return start.plus(length);
+        }
+
+        Point plus(Point later) {
+            return new Point(start, Duration.between(start, later.end()), window.plus(later.window));
+        }
+    }
+}
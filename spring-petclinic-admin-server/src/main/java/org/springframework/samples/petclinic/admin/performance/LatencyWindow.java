@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.util.Arrays;
+
+/**
+ * Requests of one endpoint during a time window: how many, how many failed, and their latency as histogram buckets
+ * with the upper bounds of the <code>http.server.requests</code> percentiles histogram. Windows are merged by adding
+ * them up, which keeps downsampled history exact as far as the buckets go.
+ */
+final class LatencyWindow {
+
+    static final LatencyWindow EMPTY = new LatencyWindow(0, 0, 0, new double[0], new long[0]);
+
+    private final long count;
+
+    private final long errors;
+
+    private final double sumSeconds;
+
+    private final double[] upperBounds;
+
+    private final long[] bucketCounts;
+
+    LatencyWindow(long count, long errors, double sumSeconds, double[] upperBounds, long[] bucketCounts) {
+        this.count = count;
+        this.errors = errors;
+        this.sumSeconds = sumSeconds;
+        this.upperBounds = upperBounds;
+        this.bucketCounts = bucketCounts;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    double meanSeconds() {
+        return count == 0 ? 0 : sumSeconds / count;
+    }
+
+    LatencyWindow plus(LatencyWindow other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        double[] bounds = upperBounds;
+        long[] buckets;
+        if (Arrays.equals(upperBounds, other.upperBounds)) {
+            buckets = bucketCounts.clone();
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += other.bucketCounts[i];
+            }
+        } else {
+            // instances configured with other buckets, keep those of the busier side rather than guessing
+            bounds = count >= other.count ? upperBounds : other.upperBounds;
+            buckets = count >= other.count ? bucketCounts : other.bucketCounts;
+        }
+        return new LatencyWindow(count + other.count, errors + other.errors, sumSeconds + other.sumSeconds, bounds,
+            buckets);
+    }
+
+    /**
+     * Estimates the given quantile by linear interpolation within the bucket it falls into, like PromQL's
+     * <code>histogram_quantile</code>, or returns NaN when there were no requests or no histogram.
+     */
+    double quantileSeconds(double quantile) {
+        long total = 0;
+        for (long bucket : bucketCounts) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+        double rank = quantile * total;
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            if (seen + bucketCounts[i] >= rank && bucketCounts[i] > 0) {
+                double lower = i == 0 ? 0 : upperBounds[i - 1];
+                double upper = upperBounds[i];
+                if (Double.isInfinite(upper)) {
+                    return lower;
+                }
+                return lower + (upper - lower) * (rank - seen) / bucketCounts[i];
+            }
+            seen += bucketCounts[i];
+        }
+        return upperBounds[upperBounds.length - 1];
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import de.codecentric.boot.admin.server.domain.entities.Instance;
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import de.codecentric.boot.admin.server.web.client.InstanceWebClient;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+
+/**
+ * Scrapes the <code>prometheus</code> actuator endpoint of every registered instance and keeps, per instance and
+ * endpoint, the requests seen between two scrapes in an {@link EndpointHistory}. Latency percentiles come from the
+ * <code>http.server.requests</code> percentiles histogram, which the services publish; without it only throughput,
+ * errors and mean latency are known. The circuit breaker states reported by resilience4j are kept as last seen.
+ * <p>
+ * Everything is held in memory: a restarted admin server starts with an empty history.
+ */
+@Slf4j
+class PerformanceCollector implements DisposableBean {
+
+    private static final String PROMETHEUS = "prometheus";
+
+    private static final String REQUESTS = "http_server_requests_seconds";
+
+    private static final String CIRCUIT_BREAKER_STATE = "resilience4j_circuitbreaker_state";
+
+    private final InstanceRepository repository;
+
+    private final InstanceWebClient webClient;
+
+    private final PerformanceProperties properties;
+
+    private final Clock clock;
+
+    private final Map<SeriesKey, EndpointHistory> histories = new ConcurrentHashMap<>();
+
+    private final Map<SeriesKey, Counters> lastCounters = new ConcurrentHashMap<>();
+
+    private final Map<InstanceKey, Instant> lastScrapes = new ConcurrentHashMap<>();
+
+    private final Map<InstanceKey, Map<String, String>> circuitBreakers = new ConcurrentHashMap<>();
+
+    private Disposable schedule;
+
+    PerformanceCollector(InstanceRepository repository, InstanceWebClient webClient, PerformanceProperties properties,
+                         Clock clock) {
+        this.repository = repository;
+        this.webClient = webClient;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    void start() {
+        schedule = Flux.interval(properties.getScrapeInterval())
+            .onBackpressureDrop()
+            .concatMap(tick -> scrapeAll())
+            .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (schedule != null) {
+            schedule.dispose();
+        }
+    }
+
+    Mono<Void> scrapeAll() {
+        Set<InstanceKey> registered = ConcurrentHashMap.newKeySet();
+        return repository.findAll()
+            .filter(Instance::isRegistered)
+            .doOnNext(instance -> registered.add(InstanceKey.of(instance)))
+            .filter(instance -> instance.getEndpoints().isPresent(PROMETHEUS))
+            .flatMap(this::scrape)
+            .then(Mono.fromRunnable(() -> evictStale(registered)));
+    }
+
+    private Mono<Void> scrape(Instance instance) {
+        InstanceKey key = InstanceKey.of(instance);
+        return webClient.instance(instance)
+            .get()
+            .uri(PROMETHEUS)
+            .accept(MediaType.TEXT_PLAIN)
+            .retrieve()
+            .bodyToMono(String.class)
+            .timeout(properties.getScrapeTimeout())
+            .doOnNext(text -> record(key, text, clock.instant()))
+            .onErrorResume(ex -> {
+                log.debug("Could not scrape {} of {}: {}", PROMETHEUS, key, ex.toString());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    void record(InstanceKey instance, String text, Instant now) {
+        Map<SeriesKey, Counters> counters = new HashMap<>();
+        Map<String, String> breakers = new TreeMap<>();
+        for (PrometheusSample sample : PrometheusSample.parse(text,
+            name -> name.startsWith(REQUESTS) || name.equals(CIRCUIT_BREAKER_STATE))) {
+            if (sample.name().equals(CIRCUIT_BREAKER_STATE)) {
+                if (sample.value() == 1) {
+                    breakers.put(sample.label("name"), sample.label("state"));
+                }
+                continue;
+            }
+            String uri = sample.label("uri");
+            if (uri.startsWith("/actuator")) {
+                continue;
+            }
+            counters.computeIfAbsent(new SeriesKey(instance, sample.label("method"), uri), key -> new Counters())
+                .add(sample);
+        }
+        circuitBreakers.put(instance, breakers);
+
+        Instant previousScrape = lastScrapes.put(instance, now);
+        counters.forEach((key, current) -> {
+            Counters previous = lastCounters.put(key, current);
+            if (previousScrape != null) {
+                histories.computeIfAbsent(key, k -> new EndpointHistory(properties.getRecentPoints(),
+                        properties.getDownsampleFactor(), properties.getHistoryPoints()))
+                    .add(previousScrape, Duration.between(previousScrape, now), current.since(previous));
+            }
+        });
+    }
+
+    private void evictStale(Set<InstanceKey> registered) {
+        // instances come and go with every deployment, their ids are never seen again
+        lastScrapes.keySet().retainAll(registered);
+        Instant now = clock.instant();
+        Duration interval = properties.getScrapeInterval();
+        Instant historyHorizon = now.minus(interval.multipliedBy(
+            Math.max(properties.getRecentPoints(), (long) properties.getDownsampleFactor() * properties.getHistoryPoints())));
+        histories.entrySet().removeIf(entry -> entry.getValue().lastUpdate().isBefore(historyHorizon));
+        lastCounters.keySet().removeIf(key -> !histories.containsKey(key) && isGone(key.instance(), now));
+        // an instance that missed a few scrapes is down or deregistered, its breakers are no longer current
+        circuitBreakers.keySet().removeIf(instance -> isGone(instance, now));
+    }
+
+    private boolean isGone(InstanceKey instance, Instant now) {
+        Instant last = lastScrapes.get(instance);
+        return last == null || last.isBefore(now.minus(properties.getScrapeInterval().multipliedBy(3)));
+    }
+
+    /**
+     * Per endpoint and instance statistics of the last <code>window</code>, with each instance's p99 compared to the
+     * median p99 of all instances serving the same endpoint.
+     */
+    List<EndpointStats> endpoints(Duration window) {
+        Instant from = clock.instant().minus(window);
+        List<EndpointStats> rows = new ArrayList<>();
+        histories.forEach((key, history) -> {
+            List<EndpointHistory.Point> points = history.since(from);
+            if (!points.isEmpty()) {
+                rows.add(EndpointStats.of(key, sum(points), seconds(points)));
+            }
+        });
+        Map<String, List<EndpointStats>> byEndpoint = rows.stream()
+            .collect(Collectors.groupingBy(row -> row.service() + ' ' + row.method() + ' ' + row.uri()));
+        List<EndpointStats> result = new ArrayList<>(rows.size());
+        byEndpoint.values().forEach(replicas -> {
+            Double median = median(replicas.stream().map(EndpointStats::p99Millis).filter(p99 -> p99 != null).toList());
+            replicas.forEach(row -> result.add(row.comparedTo(median)));
+        });
+        result.sort(Comparator.comparing(EndpointStats::service).thenComparing(EndpointStats::uri)
+            .thenComparing(EndpointStats::method).thenComparing(EndpointStats::instance));
+        return result;
+    }
+
+    /**
+     * The points of one endpoint over the last <code>window</code>, for every instance serving it.
+     */
+    List<HistoryPoint> history(String service, String method, String uri, Duration window) {
+        Instant from = clock.instant().minus(window);
+        List<HistoryPoint> points = new ArrayList<>();
+        histories.forEach((key, history) -> {
+            if (key.instance().service().equals(service) && key.method().equals(method) && key.uri().equals(uri)) {
+                history.since(from).forEach(point -> points.add(HistoryPoint.of(key.instance(), point)));
+            }
+        });
+        points.sort(Comparator.comparing(HistoryPoint::time).thenComparing(HistoryPoint::instance));
+        return points;
+    }
+
+    List<CircuitBreakerState> circuitBreakers() {
+        List<CircuitBreakerState> states = new ArrayList<>();
+        circuitBreakers.forEach((instance, breakers) -> breakers.forEach((name, state) ->
+            states.add(new CircuitBreakerState(instance.service(), instance.address(), name, state))));
+        states.sort(Comparator.comparing(CircuitBreakerState::service).thenComparing(CircuitBreakerState::name)
+            .thenComparing(CircuitBreakerState::instance));
+        return states;
+    }
+
+    private static LatencyWindow sum(List<EndpointHistory.Point> points) {
+        return points.stream().map(EndpointHistory.Point::window).reduce(LatencyWindow.EMPTY, LatencyWindow::plus);
+    }
+
+    private static double seconds(List<EndpointHistory.Point> points) {
+        return points.stream().mapToLong(point -> point.length().toMillis()).sum() / 1000.0;
+    }
+
+    private static Double median(List<Double> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        List<Double> sorted = values.stream().sorted().toList();
+        int middle = sorted.size() / 2;
+        return sorted.size() % 2 == 1 ? sorted.get(middle) : (sorted.get(middle - 1) + sorted.get(middle)) / 2;
+    }
+
+    record InstanceKey(String service, String id, String address) {
+
+        static InstanceKey of(Instance instance) {
+            String serviceUrl = instance.getRegistration().getServiceUrl();
+            String address = serviceUrl == null ? instance.getId().getValue() : URI.create(serviceUrl).getAuthority();
+            return new InstanceKey(instance.getRegistration().getName(), instance.getId().getValue(), address);
+        }
+    }
+
+    record SeriesKey(InstanceKey instance, String method, String uri) {
+    }
+
+    record EndpointStats(String service, String instance, String method, String uri, double requestsPerSecond,
+                         double errorRatio, Double meanMillis, Double p50Millis, Double p95Millis, Double p99Millis,
+                         Double p99VsPeers) {
+
+        static EndpointStats of(SeriesKey key, LatencyWindow window, double seconds) {
+            return new EndpointStats(key.instance().service(), key.instance().address(), key.method(), key.uri(),
+                seconds == 0 ? 0 : window.count() / seconds,
+                window.count() == 0 ? 0 : (double) window.errors() / window.count(),
+                window.count() == 0 ? null : window.meanSeconds() * 1000,
+                millis(window, 0.5), millis(window, 0.95), millis(window, 0.99), null);
+        }
+
+        EndpointStats comparedTo(Double medianP99) {
+            Double ratio = p99Millis == null || medianP99 == null || medianP99 == 0 ? null : p99Millis / medianP99;
+            return new EndpointStats(service, instance, method, uri, requestsPerSecond, errorRatio, meanMillis,
+                p50Millis, p95Millis, p99Millis, ratio);
+        }
+    }
+
+    record HistoryPoint(String instance, Instant time, double requestsPerSecond, double errorRatio, Double p99Millis) {
+
+        static HistoryPoint of(InstanceKey instance, EndpointHistory.Point point) {
+            LatencyWindow window = point.window();
+            double seconds = point.length().toMillis() / 1000.0;
+            return new HistoryPoint(instance.address(), point.end(), seconds == 0 ? 0 : window.count() / seconds,
+                window.count() == 0 ? 0 : (double) window.errors() / window.count(), millis(window, 0.99));
+        }
+    }
+
+    record CircuitBreakerState(String service, String instance, String name, String state) {
+    }
+
+    private static Double millis(LatencyWindow window, double quantile) {
+        double seconds = window.quantileSeconds(quantile);
+        return Double.isNaN(seconds) ? null : seconds * 1000;
+    }
+
+    /**
+     * The cumulative counters of one endpoint in one scrape, summed over status, outcome and exception tags.
+     */
+    private static final class Counters {
+
+        private double count;
+
+        private double errors;
+
+        private double sum;
+
+        private final TreeMap<Double, Double> buckets = new TreeMap<>();
+
+        void add(PrometheusSample sample) {
+            String name = sample.name();
+            if (name.endsWith("_count")) {
+                count += sample.value();
+                if (sample.label("status").startsWith("5")) {
+                    errors += sample.value();
+                }
+            } else if (name.endsWith("_sum")) {
+                sum += sample.value();
+            } else if (name.endsWith("_bucket")) {
+                String le = sample.label("le");
+                double bound = le.equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(le);
+                buckets.merge(bound, sample.value(), Double::sum);
+            }
+        }
+
+        /**
+         * The requests counted since <code>previous</code>, or since the instance started if its counters were reset.
+         */
+        LatencyWindow since(Counters previous) {
+            Counters base = previous == null || count < previous.count ? new Counters() : previous;
+            double[] bounds = new double[buckets.size()];
+            long[] counts = new long[buckets.size()];
+            int i = 0;
+            double cumulativeBefore = 0;
+            for (Map.Entry<Double, Double> bucket : buckets.entrySet()) {
+                double cumulative = bucket.getValue() - base.buckets.getOrDefault(bucket.getKey(), 0.0);
+                bounds[i] = bucket.getKey();
+                counts[i++] = Math.max(0, Math.round(cumulative - cumulativeBefore));
+                cumulativeBefore = Math.max(cumulativeBefore, cumulative);
+            }
+            return new LatencyWindow(Math.round(count - base.count), Math.round(errors - base.errors), sum - base.sum,
+                bounds, counts);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the performance page, linked from the admin UI as an external view, and the data it shows.
+ */
+@RestController
+@RequestMapping("/performance")
+@RequiredArgsConstructor
+class PerformanceController {
+
+    private static final Resource PAGE = new ClassPathResource("performance/index.html");
+
+    private final PerformanceCollector collector;
+
+    @GetMapping(produces = MediaType.TEXT_HTML_VALUE)
+    Resource page() {
+        return PAGE;
+    }
+
+    @GetMapping("/endpoints")
+    List<PerformanceCollector.EndpointStats> endpoints(@RequestParam(defaultValue = "5") long minutes) {
+        return collector.endpoints(Duration.ofMinutes(minutes));
+    }
+
+    @GetMapping("/history")
+    List<PerformanceCollector.HistoryPoint> history(@RequestParam String service, @RequestParam String method,
+                                                    @RequestParam String uri,
+                                                    @RequestParam(defaultValue = "60") long minutes) {
+        return collector.history(service, method, uri, Duration.ofMinutes(minutes));
+    }
+
+    @GetMapping("/circuit-breakers")
+    List<PerformanceCollector.CircuitBreakerState> circuitBreakers() {
+        return collector.circuitBreakers();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * How often instances are scraped and how much history is kept.
+ */
+@Data
+@ConfigurationProperties(prefix = "petclinic.performance")
+public class PerformanceProperties {
+
+    private Duration scrapeInterval = Duration.ofSeconds(15);
+
+    private Duration scrapeTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Number of scrapes kept at full resolution, one hour by default.
+     */
+    private int recentPoints = 240;
+
+    /**
+     * Number of scrapes merged into one point of the downsampled history, five minutes by default.
+     */
+    private int downsampleFactor = 20;
+
+    /**
+     * Number of downsampled points kept, one day by default.
+     */
+    private int historyPoints = 288;
+}
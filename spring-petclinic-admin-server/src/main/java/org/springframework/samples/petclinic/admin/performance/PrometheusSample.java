@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * One sample of the Prometheus text exposition format, e.g.
+ * <code>http_server_requests_seconds_count{method="GET",status="200",uri="/owners"} 42.0</code>.
+ */
+record PrometheusSample(String name, Map<String, String> labels, double value) {
+
+    String label(String name) {
+        return labels.getOrDefault(name, "");
+    }
+
+    /**
+     * Parses the samples of the metrics accepted by <code>names</code>, skipping comments and everything else
+     * without building its labels.
+     */
+    static List<PrometheusSample> parse(String text, Predicate<String> names) {
+        List<PrometheusSample> samples = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > start && text.charAt(start) != '#') {
+                PrometheusSample sample = parseLine(text, start, end, names);
+                if (sample != null) {
+                    samples.add(sample);
+                }
+            }
+            start = end + 1;
+        }
+        return samples;
+    }
+
+    private static PrometheusSample parseLine(String text, int start, int end, Predicate<String> names) {
+        int nameEnd = start;
+        while (nameEnd < end && text.charAt(nameEnd) != '{' && text.charAt(nameEnd) != ' ') {
+            nameEnd++;
+        }
+        String name = text.substring(start, nameEnd);
+        if (!names.test(name)) {
+            return null;
+        }
+        Map<String, String> labels = new LinkedHashMap<>();
+        int position = nameEnd;
+        if (position < end && text.charAt(position) == '{') {
+            position++;
+            while (position < end && text.charAt(position) != '}') {
+                int equals = text.indexOf('=', position);
+                String label = text.substring(position, equals);
+                StringBuilder value = new StringBuilder();
+                position = equals + 2;
+                while (text.charAt(position) != '"') {
+                    char c = text.charAt(position++);
+                    if (c == '\\') {
+                        c = text.charAt(position++);
+                        value.append(c == 'n' ? '\n' : c);
+                    } else {
+                        value.append(c);
+                    }
+                }
+                labels.put(label, value.toString());
+                position++;
+                if (text.charAt(position) == ',') {
+                    position++;
+                }
+            }
+            position++;
+        }
+        String[] rest = text.substring(position, end).trim().split(" ");
+        return new PrometheusSample(name, labels, parseValue(rest[0]));
+    }
+
+    private static double parseValue(String value) {
+        return switch (value) {
+            case "+Inf" -> Double.POSITIVE_INFINITY;
+            case "-Inf" -> Double.NEGATIVE_INFINITY;
+            default -> Double.parseDouble(value);
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package org.springframework.samples.petclinic.admin.performance;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import de.codecentric.boot.admin.server.domain.entities.InstanceRepository;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class PerformanceCollectorTest {
+
+    private static final Instant START = Instant.parse("2023-01-01T00:00:00Z");
+
+    private static final PerformanceCollector.InstanceKey FAST =
+        new PerformanceCollector.InstanceKey("customers-service", "a", "10.0.0.1:8081");
+
+    private static final PerformanceCollector.InstanceKey SLOW =
+        new PerformanceCollector.InstanceKey("customers-service", "b", "10.0.0.2:8081");
+
+    private final PerformanceCollector collector = new PerformanceCollector(null, null, new PerformanceProperties(),
+        Clock.fixed(START.plusSeconds(30), ZoneOffset.UTC));
+
+    @Test
+    void computesThroughputAndPercentilesFromTheRequestsBetweenScrapes() {
+        collector.record(FAST, scrape(100, 2, 100, 100), START);
+        collector.record(FAST, scrape(200, 2, 190, 200), START.plusSeconds(15));
+        collector.record(FAST, scrape(300, 3, 280, 300), START.plusSeconds(30));
+
+        List<PerformanceCollector.EndpointStats> rows = collector.endpoints(Duration.ofMinutes(5));
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.instance()).isEqualTo("10.0.0.1:8081");
+            assertThat(row.uri()).isEqualTo("/owners/{ownerId}");
+            assertThat(row.requestsPerSecond()).isCloseTo(200 / 30.0, within(1e-9));
+            assertThat(row.errorRatio()).isCloseTo(1 / 200.0, within(1e-9));
+            // only successful requests have buckets: 179 of 199 took up to 10ms, the other 20 between 10ms and 100ms
+            assertThat(row.p50Millis()).isCloseTo(5.56, within(0.01));
+            assertThat(row.p99Millis()).isCloseTo(91.05, within(0.01));
+        });
+    }
+
+    @Test
+    void comparesEachReplicaToItsPeers() {
+        collector.record(FAST, scrape(0, 0, 0, 0), START);
+        collector.record(FAST, scrape(100, 0, 100, 100), START.plusSeconds(15));
+        collector.record(SLOW, scrape(0, 0, 0, 0), START);
+        collector.record(SLOW, scrape(100, 0, 0, 100), START.plusSeconds(15));
+
+        List<PerformanceCollector.EndpointStats> rows = collector.endpoints(Duration.ofMinutes(5));
+
+        assertThat(rows).extracting(PerformanceCollector.EndpointStats::instance)
+            .containsExactly("10.0.0.1:8081", "10.0.0.2:8081");
+        assertThat(rows.get(1).p99VsPeers()).isGreaterThan(1.5);
+        assertThat(rows.get(0).p99VsPeers()).isLessThan(0.5);
+    }
+
+    @Test
+    void startsOverWhenAnInstanceRestarts() {
+        collector.record(FAST, scrape(500, 0, 500, 500), START);
+        collector.record(FAST, scrape(30, 0, 30, 30), START.plusSeconds(15));
+
+        assertThat(collector.history("customers-service", "GET", "/owners/{ownerId}", Duration.ofMinutes(5)))
+            .singleElement()
+            .satisfies(point -> assertThat(point.requestsPerSecond()).isCloseTo(2, within(1e-9)));
+    }
+
+    @Test
+    void keepsTheOpenCircuitBreakers() {
+        collector.record(FAST, """
+            resilience4j_circuitbreaker_state{name="customers",state="closed",} 0.0
+            resilience4j_circuitbreaker_state{name="customers",state="open",} 1.0
+            """, START);
+
+        assertThat(collector.circuitBreakers()).singleElement().satisfies(breaker -> {
+            assertThat(breaker.name()).isEqualTo("customers");
+            assertThat(breaker.state()).isEqualTo("open");
+        });
+    }
+
+    @Test
+    void forgetsInstancesNoLongerRegistered() {
+        InstanceRepository repository = mock(InstanceRepository.class);
+        given(repository.findAll()).willReturn(Flux.empty());
+        PerformanceCollector collector = new PerformanceCollector(repository, null, new PerformanceProperties(),
+            Clock.fixed(START.plusSeconds(15), ZoneOffset.UTC));
+        collector.record(FAST, """
+            resilience4j_circuitbreaker_state{name="customers",state="open",} 1.0
+            """, START);
+
+        collector.scrapeAll().block();
+
+        assertThat(collector.circuitBreakers()).isEmpty();
+    }
+
+    /**
+     * The cumulative counters of <code>GET /owners/{ownerId}</code>, split over a 200 and a 500 status, with buckets up
+     * to 10ms, 100ms and +Inf.
+     */
+    private static String scrape(int count, int errors, int upTo10ms, int upTo100ms) {
+        return """
+            # TYPE http_server_requests_seconds histogram
+            http_server_requests_seconds_bucket{method="GET",status="200",uri="/owners/{ownerId}",le="0.01",} %d
+            http_server_requests_seconds_bucket{method="GET",status="200",uri="/owners/{ownerId}",le="0.1",} %d
+            http_server_requests_seconds_bucket{method="GET",status="200",uri="/owners/{ownerId}",le="+Inf",} %d
+            http_server_requests_seconds_count{method="GET",status="200",uri="/owners/{ownerId}",} %d
+            http_server_requests_seconds_sum{method="GET",status="200",uri="/owners/{ownerId}",} 1.5
+            http_server_requests_seconds_count{method="GET",status="500",uri="/owners/{ownerId}",} %d
+            http_server_requests_seconds_sum{method="GET",status="500",uri="/owners/{ownerId}",} 0.0
+            http_server_requests_seconds_count{method="GET",status="200",uri="/actuator/health",} 7
+            """.formatted(upTo10ms - errors, upTo100ms - errors, count - errors, count - errors, errors);
+    }
+}
@@ -30,6 +30,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.api.timing.ServerTimingExchangeFilter;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.server.RequestPredicates;
@@ -57,10 +58,13 @@ public class ApiGatewayApplication {
         return new RestTemplate();
     }
 
+    /**
+     * Added first, the timing filter sees the service names the load balancer resolves afterwards.
+     */
     @Bean
     @LoadBalanced
     public WebClient.Builder loadBalancedWebClientBuilder() {
-        return WebClient.builder();
+        return WebClient.builder().filter(new ServerTimingExchangeFilter());
     }
 
     @Value("classpath:/static/index.html")
@@ -47,7 +47,7 @@ public class VisitsServiceClient {
             .bodyToMono(Visits.class);
     }
 
-    private String joinIds(List<Integer> petIds) {
+    static String joinIds(List<Integer> petIds) {
         return petIds.stream().map(Object::toString).collect(joining(","));
     }
 
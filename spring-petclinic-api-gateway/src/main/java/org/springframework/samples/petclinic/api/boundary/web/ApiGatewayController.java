@@ -61,7 +61,7 @@ public class ApiGatewayController {
 
     }
 
-    private Function<Visits, OwnerDetails> addVisitsToOwner(OwnerDetails owner) {
+    static Function<Visits, OwnerDetails> addVisitsToOwner(OwnerDetails owner) {
         return visits -> {
             owner.getPets()
                 .forEach(pet -> pet.getVisits()
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.discovery;
+
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Resolves the services from <code>spring.cloud.discovery.client.simple.instances</code> instead of Eureka: listed
+ * in the file named by <code>DISCOVERY_FILE</code> (<code>./discovery.yml</code> by default), reloaded when it
+ * changes, or served by the config-server. Routes work as soon as the gateway has started, without waiting for the
+ * services to register and for the registry to propagate. The load balancer only uses the instances whose health
+ * endpoint answers UP.
+ */
+@Configuration
+@Profile("static-discovery")
+@LoadBalancerClients(defaultConfiguration = StaticDiscoveryConfig.HealthCheckedInstances.class)
+public class StaticDiscoveryConfig {
+
+    /**
+     * Configuration of the load balancer of each service, outside of component scanning.
+     */
+    static class HealthCheckedInstances {
+
+        /**
+         * Checks health with a plain {@link WebClient}: the application's builder is load balanced and would take
+         * the host of each instance for a service name.
+         */
+        @Bean
+        ServiceInstanceListSupplier healthCheckedServiceInstanceListSupplier(ConfigurableApplicationContext context) {
+            return ServiceInstanceListSupplier.builder()
+                .withDiscoveryClient()
+                .withHealthChecks(WebClient.create())
+                .build(context);
+        }
+    }
+}
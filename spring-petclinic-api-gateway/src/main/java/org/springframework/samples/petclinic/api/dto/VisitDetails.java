@@ -32,4 +32,6 @@ public class VisitDetails {
     private String date = null;
 
     private String description = null;
+
+    private boolean descriptionTruncated;
 }
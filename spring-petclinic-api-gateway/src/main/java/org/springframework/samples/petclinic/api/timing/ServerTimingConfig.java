@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Merges the <code>Server-Timing</code> headers of the services into the gateway's responses, see
+ * {@link ServerTimings}.
+ */
+@Configuration
+public class ServerTimingConfig {
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    ServerTimingWebFilter serverTimingWebFilter(MeterRegistry registry) {
+        return new ServerTimingWebFilter(registry);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.timing;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * Adds the round trip and the <code>Server-Timing</code> header of every WebClient call made on behalf of a gateway
+ * request to its {@link ServerTimings}. Must come before the load balancer, which replaces the service name in the
+ * URL by an instance's address.
+ */
+public class ServerTimingExchangeFilter implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            ServerTimings timings = context.getOrDefault(ServerTimings.class, null);
+            if (timings == null) {
+                return next.exchange(request);
+            }
+            long start = System.nanoTime();
+            return next.exchange(request).doOnNext(response -> timings.downstream(request.url().getHost(),
+                System.nanoTime() - start, response.headers().header(ServerTimings.HEADER)));
+        });
+    }
+}
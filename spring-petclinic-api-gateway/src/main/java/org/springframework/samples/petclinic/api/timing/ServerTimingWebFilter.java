@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.timing;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Collects the {@link ServerTimings} of a request: it is handed to the WebClient calls through the Reactor context,
+ * while the header of a routed response is taken over, prefixed with the route's service. The merged header is
+ * written just before the response is committed.
+ */
+class ServerTimingWebFilter implements WebFilter {
+
+    private final MeterRegistry registry;
+
+    ServerTimingWebFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        ServerTimings timings = new ServerTimings();
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            HttpHeaders headers = response.getHeaders();
+            List<String> routed = headers.remove(ServerTimings.HEADER);
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (routed != null && route != null) {
+                timings.downstream(route.getUri().getHost(), -1, routed);
+            }
+            headers.set(ServerTimings.HEADER, timings.complete(System.nanoTime() - start, registry));
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+            .contextWrite(context -> context.put(ServerTimings.class, timings));
+    }
+}
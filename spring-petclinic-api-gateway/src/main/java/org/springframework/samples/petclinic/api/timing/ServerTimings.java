@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.timing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * The per-hop latency breakdown of one gateway request, merged into its <code>Server-Timing</code> header:
+ * <code>gateway</code> for the whole request, then for every downstream call the round trip as seen from the gateway
+ * (<code>customers-service</code>) and the phases reported by the service itself (<code>customers-service.db</code>).
+ * Each entry is also recorded as a <code>petclinic.gateway.timing</code> timer tagged with its <code>hop</code> and
+ * <code>phase</code>. Both come from the downstream hosts and headers, so the tags only keep apart the services and
+ * the phases of the petclinic, anything else is recorded as <code>other</code>, rather than every new name adding
+ * timers to the registry.
+ * <p>
+ * Downstream calls may complete concurrently, hence the concurrent queue.
+ */
+public class ServerTimings {
+
+    public static final String HEADER = "Server-Timing";
+
+    static final String GATEWAY = "gateway";
+
+    private static final String ROUND_TRIP = "rtt";
+
+    static final String OTHER = "other";
+
+    private static final Set<String> HOPS = Set.of(GATEWAY, "customers-service", "vets-service", "visits-service");
+
+    // see the ServerTiming of the services
+    private static final Set<String> PHASES = Set.of("total", ROUND_TRIP, "db", "ser", "app");
+
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Adds a downstream call, the round trip being unknown (negative) for routed requests.
+     */
+    void downstream(String hop, long roundTripNanos, List<String> serverTimings) {
+        if (roundTripNanos >= 0) {
+            entries.add(new Entry(hop, ROUND_TRIP, roundTripNanos / 1_000_000.0));
+        }
+        for (String header : serverTimings) {
+            for (Entry entry : parse(hop, header)) {
+                entries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Renders the header, the whole request first, and records all entries.
+     */
+    String complete(long totalNanos, MeterRegistry registry) {
+        Entry gateway = new Entry(GATEWAY, "total", totalNanos / 1_000_000.0);
+        List<Entry> all = new ArrayList<>(entries.size() + 1);
+        all.add(gateway);
+        all.addAll(entries);
+        for (Entry entry : all) {
+            Timer.builder("petclinic.gateway.timing")
+                .description("Per-hop latency breakdown of gateway requests")
+                .tag("hop", HOPS.contains(entry.hop()) ? entry.hop() : OTHER)
+                .tag("phase", PHASES.contains(entry.phase()) ? entry.phase() : OTHER)
+                .register(registry)
+                .record((long) (entry.millis() * 1_000_000), TimeUnit.NANOSECONDS);
+        }
+        return all.stream().map(Entry::render).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Reads the <code>name;dur=12.3</code> metrics of a header; metrics without a duration are skipped, and descriptions
+     * are not expected to contain commas since the services do not send any.
+     */
+    static List<Entry> parse(String hop, String header) {
+        List<Entry> parsed = new ArrayList<>();
+        for (String metric : header.split(",")) {
+            String[] parameters = metric.trim().split(";");
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("dur=")) {
+                    try {
+                        parsed.add(new Entry(hop, parameters[0].trim(), Double.parseDouble(parameter.substring(4))));
+                    } catch (NumberFormatException ex) {
+                        // not ours to validate, leave it out
+                    }
+                }
+            }
+        }
+        return parsed;
+    }
+
+    record Entry(String hop, String phase, double millis) {
+
+        String render() {
+            String name = GATEWAY.equals(hop) ? hop : ROUND_TRIP.equals(phase) ? hop : hop + "." + phase;
+            return String.format(Locale.ROOT, "%s;dur=%.2f", name, millis);
+        }
+    }
+}
@@ -12,6 +12,13 @@ angular.module('visits')
             self.visits = resp.data;
         });
 
+        self.expand = function (visit) {
+            $http.get("api/visit/visits/" + visit.id).then(function (resp) {
+                visit.description = resp.data.description;
+                visit.descriptionTruncated = false;
+            });
+        };
+
         self.submit = function () {
             var data = {
                 date: $filter('date')(self.date, "yyyy-MM-dd"),
@@ -40,7 +40,7 @@ class VisitsServiceClientIntegrationTest {
     void getVisitsForPets_withAvailableVisitsService() {
         prepareResponse(response -> response
             .setHeader("Content-Type", "application/json")
-            .setBody("{\"items\":[{\"id\":5,\"date\":\"2018-11-15\",\"description\":\"test visit\",\"petId\":1}]}"));
+            .setBody("{\"items\":[{\"id\":5,\"date\":\"2018-11-15\",\"description\":\"test visit\",\"descriptionTruncated\":false,\"petId\":1}]}"));
 
         Mono<Visits> visits = visitsServiceClient.getVisitsForPets(Collections.singletonList(1));
 
@@ -0,0 +1,69 @@
+package org.springframework.samples.petclinic.api.discovery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles({"test", "static-discovery"})
+@SpringBootTest(properties = "petclinic.discovery.reload-interval=100ms")
+class StaticDiscoveryConfigTest {
+
+    static final String DISCOVERY_FILE = "target/static-discovery-test.yml";
+
+    @Autowired
+    DiscoveryClient discoveryClient;
+
+    @BeforeAll
+    static void writeDiscoveryFile() throws IOException {
+        writeVetsServiceInstances("http://vets-1:8083");
+        // as an environment variable would, outlives the refresh of the environment unlike test properties
+        System.setProperty("DISCOVERY_FILE", DISCOVERY_FILE);
+    }
+
+    @AfterAll
+    static void deleteDiscoveryFile() throws IOException {
+        System.clearProperty("DISCOVERY_FILE");
+        Files.deleteIfExists(Path.of(DISCOVERY_FILE));
+    }
+
+    @Test
+    void shouldResolveTheInstancesOfTheRewrittenDiscoveryFile() throws Exception {
+        assertThat(vetsServiceHosts()).containsExactly("vets-1");
+
+        writeVetsServiceInstances("http://vets-1:8083", "http://vets-2:8083");
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (vetsServiceHosts().size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(vetsServiceHosts()).containsExactly("vets-1", "vets-2");
+    }
+
+    private List<String> vetsServiceHosts() {
+        return discoveryClient.getInstances("vets-service").stream().map(ServiceInstance::getHost).toList();
+    }
+
+    private static void writeVetsServiceInstances(String... uris) throws IOException {
+        StringBuilder yaml = new StringBuilder("spring.cloud.discovery.client.simple.instances:\n  vets-service:\n");
+        for (String uri : uris) {
+            yaml.append("    - uri: ").append(uri).append('\n');
+        }
+        Path file = Files.writeString(Path.of(DISCOVERY_FILE), yaml);
+        // a rewrite within the resolution of the file system's timestamps would go unnoticed
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+    }
+}
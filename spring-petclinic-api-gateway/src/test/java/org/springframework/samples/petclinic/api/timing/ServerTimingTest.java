@@ -0,0 +1,102 @@
+package org.springframework.samples.petclinic.api.timing;
+
+import java.io.IOException;
+import java.util.List;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ServerTimingTest {
+
+    static final MockWebServer customers = new MockWebServer();
+
+    static final MockWebServer visits = new MockWebServer();
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @DynamicPropertySource
+    static void services(DynamicPropertyRegistry registry) {
+        registry.add("spring.cloud.discovery.client.simple.instances.customers-service[0].uri",
+            () -> customers.url("/").toString());
+        registry.add("spring.cloud.discovery.client.simple.instances.visits-service[0].uri",
+            () -> visits.url("/").toString());
+    }
+
+    @AfterAll
+    static void shutdown() throws IOException {
+        customers.shutdown();
+        visits.shutdown();
+    }
+
+    @Test
+    void mergesTimingsOfBothServicesIntoOwnerDetails() {
+        customers.enqueue(json("{\"id\":1,\"firstName\":\"George\",\"pets\":[{\"id\":7,\"name\":\"Leo\"}]}")
+            .setHeader("Server-Timing", "db;dur=1.50, ser;dur=0.25, app;dur=0.75, total;dur=2.50"));
+        visits.enqueue(json("{\"items\":[]}")
+            .setHeader("Server-Timing", "db;dur=3.00, ser;dur=0.10, app;dur=0.40, total;dur=3.50"));
+
+        String header = client.get().uri("/api/gateway/owners/1").exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().getFirst("Server-Timing");
+
+        assertThat(header)
+            .matches("gateway;dur=[\\d.]+, customers-service;dur=[\\d.]+, customers-service\\.db;dur=1\\.50, .*")
+            .contains("customers-service.total;dur=2.50", "visits-service.db;dur=3.00", "visits-service;dur=");
+        assertThat(registry.get("petclinic.gateway.timing").tag("hop", "visits-service").tag("phase", "db").timer()
+            .count()).isPositive();
+    }
+
+    @Test
+    void prefixesTimingsOfRoutedRequests() {
+        customers.enqueue(json("[]").setHeader("Server-Timing", "db;dur=4.00, total;dur=5.00"));
+
+        client.get().uri("/api/customer/owners").exchange()
+            .expectStatus().isOk()
+            .expectHeader().value("Server-Timing", header -> assertThat(header)
+                .matches("gateway;dur=[\\d.]+, customers-service\\.db;dur=4\\.00, customers-service\\.total;dur=5\\.00"));
+    }
+
+    @Test
+    void parsesDurationsOnly() {
+        assertThat(ServerTimings.parse("vets-service", "cache;desc=hit, db;dur=2, app;dur=x;desc=\"bad\""))
+            .containsExactly(new ServerTimings.Entry("vets-service", "db", 2));
+    }
+
+    @Test
+    void tagsUnknownHopsAndPhasesAsOther() {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        ServerTimings timings = new ServerTimings();
+        timings.downstream("localhost", 1_000_000, List.of("db;dur=1, cache-a;dur=2, cache-b;dur=3"));
+        timings.downstream("vets-service", -1, List.of("cache-c;dur=4"));
+
+        assertThat(timings.complete(5_000_000, meters)).contains("localhost.cache-a;dur=2.00");
+
+        assertThat(meters.get("petclinic.gateway.timing").timers()).hasSize(5);
+        assertThat(meters.get("petclinic.gateway.timing").tag("hop", "other").tag("phase", "other").timer().count())
+            .isEqualTo(2);
+        assertThat(meters.get("petclinic.gateway.timing").tag("hop", "vets-service").tag("phase", "other").timer()
+            .count()).isEqualTo(1);
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.api.boundary.web;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.samples.petclinic.api.dto.OwnerDetails;
+import org.springframework.samples.petclinic.api.dto.PetDetails;
+import org.springframework.samples.petclinic.api.dto.Visits;
+import org.springframework.samples.petclinic.benchmarks.Fixtures;
+
+/**
+ * Composition of the owner details page in {@link ApiGatewayController}: assigning the visits of all pets to each
+ * pet. The owner is reused, so every invocation first clears the visits added by the previous one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddVisitsToOwnerBenchmark {
+
+    @Param({"1", "10", "50"})
+    int pets;
+
+    @Param({"1", "10", "100"})
+    int visitsPerPet;
+
+    private OwnerDetails owner;
+
+    private Visits visits;
+
+    @Setup
+    public void setUp() {
+        owner = Fixtures.ownerDetails(pets);
+        visits = Fixtures.visits(pets, visitsPerPet);
+    }
+
+    @Benchmark
+    public OwnerDetails addVisitsToOwner() {
+        for (PetDetails pet : owner.getPets()) {
+            pet.getVisits().clear();
+        }
+        return ApiGatewayController.addVisitsToOwner(owner).apply(visits);
+    }
+}
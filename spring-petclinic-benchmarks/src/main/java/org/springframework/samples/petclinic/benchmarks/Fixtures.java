@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.samples.petclinic.api.dto.OwnerDetails;
+import org.springframework.samples.petclinic.api.dto.PetDetails;
+import org.springframework.samples.petclinic.api.dto.VisitDetails;
+import org.springframework.samples.petclinic.api.dto.Visits;
+import org.springframework.samples.petclinic.customers.model.Owner;
+import org.springframework.samples.petclinic.customers.model.Pet;
+import org.springframework.samples.petclinic.customers.model.PetType;
+import org.springframework.samples.petclinic.vets.model.Specialty;
+import org.springframework.samples.petclinic.vets.model.Vet;
+
+/**
+ * Deterministic test data of a given size for the benchmarks. Names are generated in reverse order so that the
+ * sorting getters have work to do.
+ */
+public final class Fixtures {
+
+    private static final String DESCRIPTION = "Annual check-up, vaccinations renewed and weight recorded. ";
+
+    private Fixtures() {
+    }
+
+    public static OwnerDetails ownerDetails(int pets) {
+        OwnerDetails owner = new OwnerDetails();
+        owner.setId(1);
+        owner.setFirstName("George");
+        owner.setLastName("Franklin");
+        owner.setAddress("110 W. Liberty St.");
+        owner.setCity("Madison");
+        owner.setTelephone("6085551023");
+        for (int i = 0; i < pets; i++) {
+            PetDetails pet = new PetDetails();
+            pet.setId(i + 1);
+            pet.setName(name(pets - i));
+            pet.setBirthDate("2020-09-07");
+            org.springframework.samples.petclinic.api.dto.PetType type =
+                new org.springframework.samples.petclinic.api.dto.PetType();
+            type.setName("cat");
+            pet.setType(type);
+            owner.getPets().add(pet);
+        }
+        return owner;
+    }
+
+    /**
+     * Visits of the pets of {@link #ownerDetails(int)}, interleaved by pet like the visits-service returns them.
+     */
+    public static Visits visits(int pets, int visitsPerPet) {
+        Visits visits = new Visits();
+        int id = 1;
+        for (int v = 0; v < visitsPerPet; v++) {
+            for (int pet = 1; pet <= pets; pet++) {
+                VisitDetails visit = new VisitDetails();
+                visit.setId(id++);
+                visit.setPetId(pet);
+                visit.setDate("2023-01-01");
+                visit.setDescription(DESCRIPTION);
+                visits.getItems().add(visit);
+            }
+        }
+        return visits;
+    }
+
+    public static Owner owner(int pets) {
+        Owner owner = new Owner();
+        owner.setFirstName("George");
+        owner.setLastName("Franklin");
+        owner.setAddress("110 W. Liberty St.");
+        owner.setCity("Madison");
+        owner.setTelephone("6085551023");
+        PetType type = new PetType();
+        type.setId(1);
+        type.setName("cat");
+        for (int i = 0; i < pets; i++) {
+            Pet pet = new Pet();
+            pet.setId(i + 1);
+            pet.setName(name(pets - i));
+            pet.setBirthDate(new Date(0));
+            pet.setType(type);
+            owner.addPet(pet);
+        }
+        return owner;
+    }
+
+    public static List<Vet> vets(int vets, int specialtiesPerVet) {
+        List<Vet> result = new ArrayList<>(vets);
+        for (int i = 0; i < vets; i++) {
+            Vet vet = new Vet();
+            vet.setId(i + 1);
+            vet.setFirstName("James");
+            vet.setLastName(name(i));
+            for (int s = 0; s < specialtiesPerVet; s++) {
+                Specialty specialty = new Specialty();
+                specialty.setName(name(specialtiesPerVet - s));
+                vet.addSpecialty(specialty);
+            }
+            result.add(vet);
+        }
+        return result;
+    }
+
+    private static String name(int i) {
+        return "name-" + String.format("%05d", i);
+    }
+}
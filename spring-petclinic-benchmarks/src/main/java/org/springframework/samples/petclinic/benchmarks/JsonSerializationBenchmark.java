@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.samples.petclinic.api.dto.OwnerDetails;
+import org.springframework.samples.petclinic.api.dto.Visits;
+import org.springframework.samples.petclinic.vets.model.Vet;
+
+/**
+ * Jackson serialization of the payloads on the hot paths, with an <code>ObjectMapper</code> configured the way
+ * Spring Boot configures it. <code>size</code> is the number of pets of the owner (with five visits each), the number
+ * of pets and of visits per pet in the visits list, and the number of vets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    int size;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private OwnerDetails ownerDetails;
+
+    private Visits visits;
+
+    private List<Vet> vets;
+
+    @Setup
+    public void setUp() {
+        ownerDetails = Fixtures.ownerDetails(size);
+        visits = Fixtures.visits(size, size);
+        vets = Fixtures.vets(size, 3);
+        ownerDetails.getPets().forEach(pet -> pet.getVisits().addAll(Fixtures.visits(1, 5).getItems()));
+    }
+
+    @Benchmark
+    public byte[] ownerDetails() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ownerDetails);
+    }
+
+    @Benchmark
+    public byte[] visits() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(visits);
+    }
+
+    @Benchmark
+    public byte[] vets() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(vets);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.booking;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.samples.petclinic.vets.system.VetsProperties;
+
+/**
+ * Booking throughput with many threads hammering the slots of few vets, as at opening time. Every iteration starts
+ * from an empty book, so most attempts of a long iteration hit already booked slots, like a real rush does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class SlotBookBenchmark {
+
+    @Param({"1", "10"})
+    int vets;
+
+    @Param({"false", "true"})
+    boolean fsync;
+
+    private Path directory;
+
+    private SlotBook slotBook;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("slot-book");
+        VetsProperties properties = new VetsProperties();
+        properties.getSlots().setLog(directory.resolve("bookings.log"));
+        properties.getSlots().setFsync(fsync);
+        slotBook = new SlotBook(properties);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        slotBook.destroy();
+        Files.deleteIfExists(directory.resolve("bookings.log"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean book() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return slotBook.book(random.nextInt(vets), LocalDate.ofEpochDay(19_500 + random.nextInt(30)),
+            random.nextInt(16));
+    }
+}
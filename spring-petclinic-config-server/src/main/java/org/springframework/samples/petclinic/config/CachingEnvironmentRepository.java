@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathCompositeEnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+
+/**
+ * Serves environments from an {@link EnvironmentCache} in front of the composite of the configured backends. It
+ * stays a {@link SearchPathLocator}, which the plain text resource endpoints look up the same repository as.
+ */
+class CachingEnvironmentRepository implements EnvironmentRepository, SearchPathLocator {
+
+	private final SearchPathCompositeEnvironmentRepository delegate;
+
+	private final EnvironmentCache cache;
+
+	CachingEnvironmentRepository(SearchPathCompositeEnvironmentRepository delegate, EnvironmentCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public Environment findOne(String application, String profile, String label) {
+		return findOne(application, profile, label, false);
+	}
+
+	@Override
+	public Environment findOne(String application, String profile, String label, boolean includeOrigin) {
+		return cache.get(new EnvironmentCache.Key(application, profile, label, includeOrigin),
+				() -> delegate.findOne(application, profile, label, includeOrigin));
+	}
+
+	@Override
+	public Locations getLocations(String application, String profile, String label) {
+		return delegate.getLocations(application, profile, label);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.time.Clock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathCompositeEnvironmentRepository;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StopWatch;
+
+/**
+ * Puts an {@link EnvironmentCache} in front of the backends. It retains the environments when
+ * <code>petclinic.config.cache.enabled</code> is set, and otherwise still makes the clients asking for the same
+ * environment at once, as they do when a change is pushed to them, share one load. The config server composes all
+ * its backends into a primary {@link SearchPathCompositeEnvironmentRepository}, which is wrapped once created rather
+ * than replaced, so that the backends stay configured as usual.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ConfigCacheProperties.class)
+class ConfigCacheConfig {
+
+	@Bean
+	EnvironmentCache environmentCache(ConfigCacheProperties properties, MeterRegistry registry) {
+		return new EnvironmentCache(properties.isEnabled(), properties.getTtl(), properties.getPrecompileApplications(),
+				Clock.systemUTC(), registry);
+	}
+
+	@Bean
+	static BeanPostProcessor cachingEnvironmentRepositoryPostProcessor(ObjectProvider<EnvironmentCache> cache) {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof SearchPathCompositeEnvironmentRepository composite) {
+					return new CachingEnvironmentRepository(composite, cache.getObject());
+				}
+				return bean;
+			}
+		};
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "petclinic.config.cache", name = "snapshot-directory")
+	SnapshotWatcher snapshotWatcher(ConfigCacheProperties properties, ConfigChangeNotifier notifier) {
+		return new SnapshotWatcher(properties.getSnapshotDirectory(), properties.getWatchInterval(), notifier);
+	}
+
+	/**
+	 * Loads the environments of the known applications before the first client asks, so that a client starting
+	 * with the config server is served from the cache.
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "petclinic.config.cache", name = "enabled", havingValue = "true")
+	ApplicationListener<ApplicationReadyEvent> environmentPrecompiler(EnvironmentRepository repository,
+			ConfigCacheProperties properties, EnvironmentCache cache) {
+		return event -> {
+			StopWatch watch = new StopWatch();
+			watch.start();
+			for (String application : properties.getPrecompileApplications()) {
+				for (String profile : properties.getPrecompileProfiles()) {
+					try {
+						// config clients ask for the origin of every property
+						repository.findOne(application, profile, null, true);
+					}
+					catch (RuntimeException ex) {
+						log.warn("Could not precompile the environment of {} for profile {}", application, profile, ex);
+					}
+				}
+			}
+			watch.stop();
+			log.info("Precompiled {} environments in {} ms", cache.size(), watch.getTotalTimeMillis());
+		};
+	}
+}
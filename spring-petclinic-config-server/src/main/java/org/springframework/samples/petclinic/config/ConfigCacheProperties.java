@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Caching of the environments served, and the applications whose environments are compiled at startup.
+ */
+@Data
+@ConfigurationProperties(prefix = "petclinic.config.cache")
+public class ConfigCacheProperties {
+
+	/**
+	 * Keep the environments served. Concurrent requests for the same environment share one load either way.
+	 */
+	private boolean enabled;
+
+	/**
+	 * How long an environment is served before the backend is asked again, zero to keep it until evicted. Only
+	 * needed for backends whose changes are not watched, such as git.
+	 */
+	private Duration ttl = Duration.ZERO;
+
+	/**
+	 * Directory of configuration files whose changes evict the environments read from them, usually the search
+	 * location of the native backend.
+	 */
+	private Path snapshotDirectory;
+
+	private Duration watchInterval = Duration.ofSeconds(2);
+
+	/**
+	 * Applications whose environments are loaded at startup, and the only ones told apart in the serve metrics.
+	 */
+	private List<String> precompileApplications = new ArrayList<>();
+
+	private List<String> precompileProfiles = new ArrayList<>(List.of("default"));
+}
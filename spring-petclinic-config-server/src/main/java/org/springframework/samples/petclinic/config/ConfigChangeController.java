@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Subscription to the changes of configuration files, and notification of changes the config server cannot see by
+ * itself, such as a push to the git repository, e.g. from a webhook:
+ * <pre>
+ * curl -X POST localhost:8888/changes -H 'Content-Type: application/json' -d '["customers-service.yml"]'
+ * </pre>
+ */
+@RestController
+@RequestMapping("/changes")
+class ConfigChangeController {
+
+	private final ConfigChangeNotifier notifier;
+
+	private final Duration timeout;
+
+	ConfigChangeController(ConfigChangeNotifier notifier,
+			@Value("${petclinic.config.push.subscription-timeout:10m}") Duration timeout) {
+		this.notifier = notifier;
+		this.timeout = timeout;
+	}
+
+	@GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	SseEmitter subscribe(@RequestParam String application, @RequestParam(defaultValue = "default") String profile) {
+		SseEmitter emitter = new SseEmitter(timeout.toMillis());
+		notifier.subscribe(application, profile, emitter);
+		return emitter;
+	}
+
+	@PostMapping
+	Map<String, Integer> changed(@RequestBody List<String> files) {
+		return Map.of("notified", notifier.filesChanged(files));
+	}
+}
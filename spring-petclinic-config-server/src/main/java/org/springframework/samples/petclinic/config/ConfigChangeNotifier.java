@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Tells the clients subscribed to server-sent events which configuration files changed, only those whose
+ * application and profiles the files contribute to, instead of every instance refreshing on a broadcast. Events carry
+ * a sequence number as id: a subscriber is sent the current one when it connects, and can tell from it that it
+ * missed changes while disconnected. The cached environments of the files are evicted before anyone is told.
+ * <p>
+ * Every <code>heartbeatInterval</code> the subscribers are sent a comment, so that a client hearing nothing for
+ * longer can tell a silently dropped connection, e.g. by a killed container or a NAT timeout, from a quiet one.
+ */
+@Slf4j
+class ConfigChangeNotifier implements InitializingBean, DisposableBean {
+
+	private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	@Nullable
+	private final EnvironmentCache cache;
+
+	private final Counter notifications;
+
+	private final Duration heartbeatInterval;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "config-change-heartbeat");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	ConfigChangeNotifier(@Nullable EnvironmentCache cache, Duration heartbeatInterval, MeterRegistry registry) {
+		this.cache = cache;
+		this.heartbeatInterval = heartbeatInterval;
+		this.notifications = Counter.builder("petclinic.config.push.notifications")
+			.description("Change notifications sent to subscribed clients")
+			.register(registry);
+		Gauge.builder("petclinic.config.push.subscribers", subscriptions, Set::size).register(registry);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (heartbeatInterval.toMillis() > 0) {
+			executor.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	void subscribe(String application, String profiles, SseEmitter emitter) {
+		Subscription subscription = new Subscription(application, profiles, emitter);
+		subscriptions.add(subscription);
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onError(ex -> subscriptions.remove(subscription));
+		send(subscription, SseEmitter.event().name("subscribed").id(String.valueOf(sequence.get())).data(application));
+	}
+
+	/**
+	 * @param files names or paths of the files that were added, modified or deleted
+	 * @return the number of subscribers notified
+	 */
+	int filesChanged(Collection<String> files) {
+		if (files.isEmpty()) {
+			return 0;
+		}
+		String id = String.valueOf(sequence.incrementAndGet());
+		int evicted = cache == null ? 0 : files.stream().mapToInt(cache::evict).sum();
+		int notified = 0;
+		for (Subscription subscription : subscriptions) {
+			if (files.stream().anyMatch(subscription::readsFrom)
+					&& send(subscription, SseEmitter.event().name("refresh").id(id).data(String.join(",", files)))) {
+				notified++;
+			}
+		}
+		notifications.increment(notified);
+		log.info("{} changed, evicted {} cached environments, notified {} of {} subscribers", files, evicted, notified,
+				subscriptions.size());
+		return notified;
+	}
+
+	/**
+	 * Sends a comment to every subscriber, dropping those that cannot be reached.
+	 */
+	void heartbeat() {
+		for (Subscription subscription : subscriptions) {
+			send(subscription, SseEmitter.event().comment("heartbeat"));
+		}
+	}
+
+	int subscribers() {
+		return subscriptions.size();
+	}
+
+	private boolean send(Subscription subscription, SseEmitter.SseEventBuilder event) {
+		try {
+			subscription.emitter().send(event);
+			return true;
+		}
+		catch (IOException | IllegalStateException ex) {
+			// gone or timed out, the client subscribes again and learns from the sequence that it missed changes
+			subscriptions.remove(subscription);
+			return false;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private record Subscription(String application, String profiles, SseEmitter emitter) {
+
+		boolean readsFrom(String file) {
+			return ConfigFileNames.contributesTo(file, application, profiles);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.util.Arrays;
+
+/**
+ * Which environments a configuration file contributes to, going by the naming of the native and git backends:
+ * <code>{application}.yml</code> for all the profiles of an application and <code>{application}-{profile}.yml</code>
+ * for one of them, <code>application</code> standing for every application.
+ */
+final class ConfigFileNames {
+
+	private ConfigFileNames() {
+	}
+
+	/**
+	 * @param file name or path of the file, with or without extension
+	 * @param applications comma-separated application names, as clients ask for them
+	 * @param profiles comma-separated profiles, as clients ask for them
+	 */
+	static boolean contributesTo(String file, String applications, String profiles) {
+		String name = file.substring(file.lastIndexOf('/') + 1);
+		String baseName = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+		return isFileOf(baseName, "application", profiles)
+				|| Arrays.stream(applications.split(",")).anyMatch(application -> isFileOf(baseName, application.trim(), profiles));
+	}
+
+	private static boolean isFileOf(String baseName, String application, String profiles) {
+		if (baseName.equals(application)) {
+			return true;
+		}
+		if (!baseName.startsWith(application + "-")) {
+			return false;
+		}
+		String profile = baseName.substring(application.length() + 1);
+		return Arrays.stream(profiles.split(",")).anyMatch(candidate -> candidate.trim().equals(profile));
+	}
+}
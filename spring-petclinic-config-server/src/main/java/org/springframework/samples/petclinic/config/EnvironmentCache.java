@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.cloud.config.environment.Environment;
+
+/**
+ * Environments already served, keyed by application, profile and label. An environment is the composite of all the
+ * property sources a backend found for its key, so a hit skips the git fetch or the file parsing and merging
+ * entirely. Entries live until the files they were read from change, see {@link #evict(String)}, or until the
+ * optional time to live expires for backends that cannot be watched. Clients asking for an environment being loaded
+ * wait for that load rather than starting their own, so that the instances told of a change at once only cost one
+ * load per environment.
+ * <p>
+ * A cache that does not retain its environments only does the latter, which the config server always wants when
+ * changes are pushed to clients.
+ * <p>
+ * The application named by a client is only used as a tag of the <code>petclinic.config.serve</code> timer when it
+ * is one of the known applications, the others are tagged <code>other</code>.
+ */
+class EnvironmentCache {
+
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Map<Key, CompletableFuture<Environment>> loads = new ConcurrentHashMap<>();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private final boolean retaining;
+
+	private final Duration ttl;
+
+	private final Clock clock;
+
+	private final MeterRegistry registry;
+
+	private final Counter evictions;
+
+	private final Set<String> knownApplications;
+
+	EnvironmentCache(Duration ttl, Clock clock, MeterRegistry registry) {
+		this(true, ttl, Set.of(), clock, registry);
+	}
+
+	EnvironmentCache(boolean retaining, Duration ttl, Collection<String> knownApplications, Clock clock,
+			MeterRegistry registry) {
+		this.retaining = retaining;
+		this.knownApplications = Set.copyOf(knownApplications);
+		this.ttl = ttl;
+		this.clock = clock;
+		this.registry = registry;
+		this.evictions = Counter.builder("petclinic.config.cache.evictions")
+			.description("Environments dropped because a file they were read from changed")
+			.register(registry);
+		Gauge.builder("petclinic.config.cache.size", entries, Map::size).register(registry);
+	}
+
+	/**
+	 * Returns a copy of the cached environment, loading it on a miss or joining the load already running.
+	 */
+	Environment get(Key key, Supplier<Environment> loader) {
+		Timer.Sample sample = Timer.start(registry);
+		String outcome = "hit";
+		try {
+			Entry entry = entries.get(key);
+			if (entry != null && !entry.isExpired(clock.instant(), ttl)) {
+				return copy(entry.environment());
+			}
+			CompletableFuture<Environment> load = new CompletableFuture<>();
+			CompletableFuture<Environment> running = loads.putIfAbsent(key, load);
+			if (running != null) {
+				outcome = "coalesced";
+				return copy(await(running));
+			}
+			outcome = entry == null ? "miss" : "expired";
+			return copy(load(key, loader, load));
+		}
+		catch (RuntimeException ex) {
+			outcome = "error";
+			throw ex;
+		}
+		finally {
+			sample.stop(Timer.builder("petclinic.config.serve")
+				.description("Time to serve an environment, from the cache or the backend")
+				.tag("application", knownApplications.contains(key.application()) ? key.application() : "other")
+				.tag("outcome", outcome)
+				.publishPercentileHistogram()
+				.register(registry));
+		}
+	}
+
+	private Environment load(Key key, Supplier<Environment> loader, CompletableFuture<Environment> load) {
+		long loadedGeneration = generation.get();
+		try {
+			Environment environment = loader.get();
+			// a file evicted meanwhile may have been read before it changed, the next client loads it again
+			if (retaining && loadedGeneration == generation.get()) {
+				entries.put(key, new Entry(environment, clock.instant()));
+			}
+			load.complete(environment);
+			return environment;
+		}
+		catch (RuntimeException ex) {
+			load.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			loads.remove(key, load);
+		}
+	}
+
+	private static Environment await(CompletableFuture<Environment> load) {
+		try {
+			return load.join();
+		}
+		catch (CompletionException ex) {
+			throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+		}
+	}
+
+	/**
+	 * Drops the environments that a configuration file contributes to, see {@link ConfigFileNames}.
+	 * @param fileName name of the file, with or without extension
+	 * @return the number of environments dropped
+	 */
+	int evict(String fileName) {
+		generation.incrementAndGet();
+		int before = entries.size();
+		entries.keySet().removeIf(key -> ConfigFileNames.contributesTo(fileName, key.application(), key.profile()));
+		int evicted = Math.max(before - entries.size(), 0);
+		evictions.increment(evicted);
+		return evicted;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	private static Environment copy(Environment environment) {
+		// callers decrypt and relabel what they are given, the cached instance must stay as the backend returned it
+		Environment copy = new Environment(environment.getName(), environment.getProfiles(), environment.getLabel(),
+				environment.getVersion(), environment.getState());
+		copy.addAll(environment.getPropertySources());
+		return copy;
+	}
+
+	record Key(String application, String profile, String label, boolean includeOrigin) {
+	}
+
+	private record Entry(Environment environment, Instant loaded) {
+
+		boolean isExpired(Instant now, Duration ttl) {
+			return !ttl.isZero() && loaded.plus(ttl).isBefore(now);
+		}
+	}
+}
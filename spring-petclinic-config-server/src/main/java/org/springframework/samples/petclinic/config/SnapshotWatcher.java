@@ -0,0 +1,120 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Reports the files of the snapshot directory that were added, modified or deleted to the
+ * {@link ConfigChangeNotifier}, all those of a scan at once, which evicts the cached environments read from them and
+ * tells their clients. The directory is polled rather than watched, since file system events do not cross Docker
+ * bind mounts.
+ */
+@Slf4j
+class SnapshotWatcher implements InitializingBean, DisposableBean {
+
+	private final Path directory;
+
+	private final Duration interval;
+
+	private final ConfigChangeNotifier notifier;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "config-snapshot-watcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Map<Path, FileTime> lastModified = Map.of();
+
+	SnapshotWatcher(Path directory, Duration interval, ConfigChangeNotifier notifier) {
+		this.directory = directory;
+		this.interval = interval;
+		this.notifier = notifier;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (!Files.isDirectory(directory)) {
+			log.warn("Snapshot directory {} does not exist, nothing to serve until it is created", directory.toAbsolutePath());
+		}
+		lastModified = scan();
+		executor.scheduleWithFixedDelay(this::evictModified, interval.toMillis(), interval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	void evictModified() {
+		try {
+			Map<Path, FileTime> modified = scan();
+			Set<Path> changed = new HashSet<>(lastModified.keySet());
+			changed.addAll(modified.keySet());
+			changed.removeIf(file -> modified.get(file) != null && modified.get(file).equals(lastModified.get(file)));
+			lastModified = modified;
+			notifier.filesChanged(changed.stream().map(file -> file.getFileName().toString()).sorted().toList());
+		}
+		catch (RuntimeException ex) {
+			// the files scanned so far are checked again at the next run
+			log.error("Could not scan {}", directory.toAbsolutePath(), ex);
+		}
+	}
+
+	private Map<Path, FileTime> scan() {
+		if (!Files.isDirectory(directory)) {
+			return Map.of();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			Map<Path, FileTime> modified = new HashMap<>();
+			files.filter(Files::isRegularFile).forEach(file -> modified.put(file, lastModifiedTime(file)));
+			return modified;
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static FileTime lastModifiedTime(Path file) {
+		try {
+			return Files.getLastModifiedTime(file);
+		}
+		catch (IOException ex) {
+			// deleted while scanning, reported as changed by the next scan
+			return null;
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,103 @@
+package org.springframework.samples.petclinic.config;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConfigChangeNotifierTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final EnvironmentCache cache = new EnvironmentCache(Duration.ZERO, Clock.systemUTC(), registry);
+
+	private final ConfigChangeNotifier notifier = new ConfigChangeNotifier(cache, Duration.ZERO, registry);
+
+	@Test
+	void notifiesTheSubscribersReadingFromTheChangedFiles() {
+		RecordingEmitter customers = subscribe("customers-service", "docker");
+		RecordingEmitter customersMysql = subscribe("customers-service", "docker,mysql");
+		RecordingEmitter vets = subscribe("vets-service", "docker");
+
+		assertThat(notifier.filesChanged(List.of("customers-service-mysql.yml"))).isEqualTo(1);
+		assertThat(notifier.filesChanged(List.of("config/application.yml", "vets-service.yml"))).isEqualTo(3);
+
+		assertThat(customers.events).containsExactly("subscribed:0", "refresh:2");
+		assertThat(customersMysql.events).containsExactly("subscribed:0", "refresh:1", "refresh:2");
+		assertThat(vets.events).containsExactly("subscribed:0", "refresh:2");
+		assertThat(registry.get("petclinic.config.push.notifications").counter().count()).isEqualTo(4);
+	}
+
+	@Test
+	void evictsTheCachedEnvironmentsBeforeNotifying() {
+		cache.get(new EnvironmentCache.Key("vets-service", "default", null, false), () -> {
+			Environment environment = new Environment("vets-service", "default");
+			environment.add(new PropertySource("vets-service.yml", Map.of()));
+			return environment;
+		});
+
+		notifier.filesChanged(List.of("vets-service.yml"));
+
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void sendsHeartbeatsToEverySubscriber() {
+		RecordingEmitter customers = subscribe("customers-service", "docker");
+		subscribe("vets-service", "docker").failing = true;
+
+		notifier.heartbeat();
+
+		assertThat(customers.events).containsExactly("subscribed:0", "heartbeat");
+		assertThat(notifier.subscribers()).isEqualTo(1);
+	}
+
+	@Test
+	void dropsSubscribersThatCannotBeReached() {
+		subscribe("vets-service", "default").failing = true;
+
+		assertThat(notifier.filesChanged(List.of("application.yml"))).isZero();
+		assertThat(notifier.subscribers()).isZero();
+	}
+
+	private RecordingEmitter subscribe(String application, String profiles) {
+		RecordingEmitter emitter = new RecordingEmitter();
+		notifier.subscribe(application, profiles, emitter);
+		return emitter;
+	}
+
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final List<String> events = new ArrayList<>();
+
+		private boolean failing;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (failing) {
+				throw new IOException("Broken pipe");
+			}
+			Set<DataWithMediaType> data = builder.build();
+			String text = data.stream().map(item -> item.getData().toString()).reduce("", String::concat);
+			if (text.startsWith(":")) {
+				events.add(text.substring(1).trim());
+				return;
+			}
+			String name = text.substring(text.indexOf("event:") + 6, text.indexOf('\n', text.indexOf("event:")));
+			String id = text.substring(text.indexOf("id:") + 3, text.indexOf('\n', text.indexOf("id:")));
+			events.add(name + ":" + id);
+		}
+	}
+}
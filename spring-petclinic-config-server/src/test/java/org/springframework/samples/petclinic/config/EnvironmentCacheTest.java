@@ -0,0 +1,200 @@
+package org.springframework.samples.petclinic.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnvironmentCacheTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	void servesCopiesOfTheLoadedEnvironment() {
+		EnvironmentCache cache = new EnvironmentCache(Duration.ZERO, Clock.systemUTC(), registry);
+
+		Environment first = cache.get(key("customers-service", "default"), loader("customers-service"));
+		first.getPropertySources().clear();
+		Environment second = cache.get(key("customers-service", "default"), loader("customers-service"));
+
+		assertThat(loads).hasValue(1);
+		assertThat(second.getPropertySources()).hasSize(1);
+		assertThat(registry.get("petclinic.config.serve").tag("outcome", "miss").timer().count()).isEqualTo(1);
+		assertThat(registry.get("petclinic.config.serve").tag("outcome", "hit").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void tagsOnlyTheKnownApplications() {
+		EnvironmentCache cache = new EnvironmentCache(true, Duration.ZERO, Set.of("customers-service"),
+				Clock.systemUTC(), registry);
+
+		cache.get(key("customers-service", "default"), loader("customers-service"));
+		cache.get(key("made-up-1", "default"), loader("made-up-1"));
+		cache.get(key("made-up-2", "default"), loader("made-up-2"));
+
+		assertThat(registry.get("petclinic.config.serve").tag("application", "customers-service").timer().count())
+			.isEqualTo(1);
+		assertThat(registry.get("petclinic.config.serve").tag("application", "other").timer().count()).isEqualTo(2);
+		assertThat(registry.get("petclinic.config.serve").timers()).hasSize(2);
+	}
+
+	@Test
+	void evictsTheEnvironmentsAFileContributesTo() {
+		EnvironmentCache cache = new EnvironmentCache(Duration.ZERO, Clock.systemUTC(), registry);
+		cache.get(key("customers-service", "default"), loader("customers-service"));
+		cache.get(key("customers-service", "docker"), loader("customers-service"));
+		cache.get(key("customers-service", "docker,mysql"), loader("customers-service"));
+		cache.get(key("vets-service", "docker"), loader("vets-service"));
+
+		assertThat(cache.evict("customers-service-docker.yml")).isEqualTo(2);
+		assertThat(cache.evict("visits-service.yml")).isZero();
+		assertThat(cache.evict("application-mysql.yml")).isZero();
+		assertThat(cache.evict("customers-service.yml")).isEqualTo(1);
+		assertThat(cache.size()).isEqualTo(1);
+
+		assertThat(cache.evict("application.yml")).isEqualTo(1);
+		assertThat(cache.size()).isZero();
+		assertThat(registry.get("petclinic.config.cache.evictions").counter().count()).isEqualTo(4);
+	}
+
+	@Test
+	void sharesTheLoadOfAnEnvironmentBetweenConcurrentClients() throws Exception {
+		EnvironmentCache cache = new EnvironmentCache(Duration.ZERO, Clock.systemUTC(), registry);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<Environment> slowLoader = () -> {
+			loading.countDown();
+			await(release);
+			return loader("vets-service").get();
+		};
+
+		CompletableFuture<Environment> first = CompletableFuture.supplyAsync(
+				() -> cache.get(key("vets-service", "default"), slowLoader));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Environment> second = CompletableFuture.supplyAsync(
+				() -> cache.get(key("vets-service", "default"), slowLoader));
+		Thread.sleep(100);
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS).getPropertySources()).hasSize(1);
+		assertThat(second.get(5, TimeUnit.SECONDS).getPropertySources()).hasSize(1);
+		assertThat(loads).hasValue(1);
+		assertThat(registry.get("petclinic.config.serve").tag("outcome", "coalesced").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void sharesConcurrentLoadsWithoutRetainingWhenDisabled() throws Exception {
+		EnvironmentCache cache = new EnvironmentCache(false, Duration.ZERO, Set.of(), Clock.systemUTC(), registry);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Supplier<Environment> slowLoader = () -> {
+			loading.countDown();
+			await(release);
+			return loader("vets-service").get();
+		};
+
+		CompletableFuture<Environment> first = CompletableFuture.supplyAsync(
+				() -> cache.get(key("vets-service", "default"), slowLoader));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Environment> second = CompletableFuture.supplyAsync(
+				() -> cache.get(key("vets-service", "default"), slowLoader));
+		Thread.sleep(100);
+		release.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+		assertThat(loads).hasValue(1);
+
+		cache.get(key("vets-service", "default"), loader("vets-service"));
+		assertThat(loads).hasValue(2);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	void doesNotCacheWhatWasLoadedWhileAFileChanged() {
+		EnvironmentCache cache = new EnvironmentCache(Duration.ZERO, Clock.systemUTC(), registry);
+
+		cache.get(key("vets-service", "default"), () -> {
+			cache.evict("vets-service.yml");
+			return loader("vets-service").get();
+		});
+		cache.get(key("vets-service", "default"), loader("vets-service"));
+
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	void reloadsExpiredEnvironments() {
+		MutableClock clock = new MutableClock();
+		EnvironmentCache cache = new EnvironmentCache(Duration.ofMinutes(5), clock, registry);
+
+		cache.get(key("vets-service", "default"), loader("vets-service"));
+		clock.now = clock.now.plus(Duration.ofMinutes(4));
+		cache.get(key("vets-service", "default"), loader("vets-service"));
+		assertThat(loads).hasValue(1);
+
+		clock.now = clock.now.plus(Duration.ofMinutes(2));
+		cache.get(key("vets-service", "default"), loader("vets-service"));
+		assertThat(loads).hasValue(2);
+		assertThat(registry.get("petclinic.config.serve").tag("outcome", "expired").timer().count()).isEqualTo(1);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static EnvironmentCache.Key key(String application, String profile) {
+		return new EnvironmentCache.Key(application, profile, null, false);
+	}
+
+	private Supplier<Environment> loader(String application) {
+		return () -> {
+			loads.incrementAndGet();
+			Environment environment = new Environment(application, "default");
+			environment.add(new PropertySource(application + ".yml", Map.of("server.port", 8080)));
+			return environment;
+		};
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant now = Instant.parse("2023-01-01T00:00:00Z");
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		@Override
+		public ZoneOffset getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+	}
+}
@@ -15,6 +15,9 @@
  */
 package org.springframework.samples.petclinic.customers.model;
 
+import java.util.List;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 /**
@@ -27,4 +30,12 @@ import org.springframework.data.jpa.repository.JpaRepository;
  * @author Michael Isvy
  * @author Maciej Szarlinski
  */
-public interface OwnerRepository extends JpaRepository<Owner, Integer> { }
+public interface OwnerRepository extends JpaRepository<Owner, Integer> {
+
+    /**
+     * Fetches the pets along with their owners, instead of one select of the eagerly loaded pets per owner.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"pets", "pets.type"})
+    List<Owner> findAll();
+}
@@ -78,7 +78,7 @@ class PetResource {
         petRepository.findPetTypeById(petRequest.getTypeId())
             .ifPresent(pet::setType);
 
-        log.info("Saving pet {}", pet);
+        log.info("Saving pet {} of owner {}", pet.getId(), pet.getOwner().getId());
         return petRepository.save(pet);
     }
 
@@ -0,0 +1,47 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConnectionPoolMetricsTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void shouldTimeConnectionsPerEndpoint() throws Exception {
+        mvc.perform(get("/owners/{ownerId}", 1)).andExpect(status().isOk());
+
+        assertThat(registry.get("petclinic.datasource.connection.acquire").tag("uri", "/owners/{ownerId}").timer().count())
+            .isPositive();
+        assertThat(registry.get("petclinic.datasource.connection.hold").tag("uri", "/owners/{ownerId}").timer().count())
+            .isPositive();
+    }
+
+    @Test
+    void shouldKeepHikariPoolMetrics() throws Exception {
+        assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(12);
+        assertThat(registry.get("hikaricp.connections.max").gauge().value()).isEqualTo(12);
+    }
+}
@@ -0,0 +1,28 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LoggingPipelineTest {
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void shouldMeterTheAppendersAndSamplingOfLogbackSpringXml() {
+        assertThat(registry.get("petclinic.logging.dropped").tag("appender", "ASYNC_CONSOLE").functionCounter().count())
+            .isZero();
+        assertThat(registry.get("petclinic.logging.queue.remaining").tag("appender", "ASYNC_FILE").gauge().value())
+            .isPositive();
+        assertThat(registry.get("petclinic.logging.sampled.out")
+            .tag("logger", "org.springframework.samples.petclinic.customers.web").functionCounter())
+            .isNotNull();
+    }
+}
@@ -0,0 +1,55 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ServerTimingFilterTest {
+
+    private static final String TIMING = "db;dur=\\d+\\.\\d\\d, ser;dur=\\d+\\.\\d\\d, app;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void shouldReportDatabaseAndSerializationTime() throws Exception {
+        MvcResult result = mvc.perform(get("/owners/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.firstName").value("George"))
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)))
+            .andReturn();
+
+        double db = Double.parseDouble(result.getResponse().getHeader("Server-Timing").replaceAll("^db;dur=([\\d.]+),.*", "$1"));
+        assertThat(db).isPositive();
+        assertThat(registry.get("petclinic.server.timing").tag("hop", "customers-service").tag("phase", "db").timer().count())
+            .isPositive();
+    }
+
+    @Test
+    void shouldReportTimingOfErrors() throws Exception {
+        mvc.perform(put("/owners/999").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\": \"John\", \"lastName\": \"Doe\", \"address\": \"1 Main St.\", \"city\": \"Madison\", \"telephone\": \"6085551023\"}"))
+            .andExpect(status().isNotFound())
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)));
+    }
+}
@@ -0,0 +1,58 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.samples.petclinic.support.sql.SqlStatementMatchers.rowCount;
+import static org.springframework.samples.petclinic.support.sql.SqlStatementMatchers.statementCount;
+import static org.springframework.samples.petclinic.support.sql.SqlStatementMatchers.statementCountAtMost;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SqlStatementFilterTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void shouldLoadAnOwnerWithItsPetsInOneStatement() throws Exception {
+        mvc.perform(get("/owners/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.pets[0].name").value("Leo"))
+            .andExpect(statementCount(1))
+            .andExpect(rowCount(1));
+    }
+
+    @Test
+    void shouldLoadAPetAndItsOwner() throws Exception {
+        mvc.perform(get("/owners/1/pets/1"))
+            .andExpect(status().isOk())
+            .andExpect(statementCountAtMost(2));
+    }
+
+    @Test
+    void shouldRecordStatementsPerEndpoint() throws Exception {
+        mvc.perform(get("/owners"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(10))
+            .andExpect(jsonPath("$[0].pets[0].name").value("Leo"))
+            .andExpect(jsonPath("$[0].pets[0].type.name").value("cat"))
+            .andExpect(statementCount(1));
+
+        assertThat(registry.get("petclinic.sql.statements").tag("uri", "/owners").summary().max()).isEqualTo(1);
+        assertThat(registry.get("petclinic.sql.rows").tag("uri", "/owners").summary().max()).isPositive();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.discovery;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+class DiscoveryServerConfig {
+
+	@Bean
+	EurekaRegistryMetrics eurekaRegistryMetrics(PeerAwareInstanceRegistry registry) {
+		return new EurekaRegistryMetrics(registry);
+	}
+
+	@Bean
+	EurekaRequestObservationConvention eurekaRequestObservationConvention() {
+		return new EurekaRequestObservationConvention();
+	}
+}
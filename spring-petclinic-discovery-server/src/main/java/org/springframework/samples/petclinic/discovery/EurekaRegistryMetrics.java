@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.discovery;
+
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.registry.ResponseCacheImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the state of the Eureka registry, which the server otherwise only shows on its dashboard: the number of
+ * registered instances and applications, the renewals against the self-preservation threshold, and the size of the
+ * response cache that registry fetches are served from.
+ */
+class EurekaRegistryMetrics implements MeterBinder {
+
+	private final PeerAwareInstanceRegistry registry;
+
+	EurekaRegistryMetrics(PeerAwareInstanceRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry meterRegistry) {
+		Gauge.builder("petclinic.eureka.registry.instances", registry, r -> r.getApplications().size())
+			.description("Instances registered, whatever their status")
+			.register(meterRegistry);
+		Gauge.builder("petclinic.eureka.registry.applications", registry,
+				r -> r.getApplications().getRegisteredApplications().size())
+			.register(meterRegistry);
+		Gauge.builder("petclinic.eureka.renews.last-minute", registry, PeerAwareInstanceRegistry::getNumOfRenewsInLastMin)
+			.register(meterRegistry);
+		Gauge.builder("petclinic.eureka.renews.threshold", registry, PeerAwareInstanceRegistry::getNumOfRenewsPerMinThreshold)
+			.description("Renewals per minute below which the server stops expiring leases")
+			.register(meterRegistry);
+		Gauge.builder("petclinic.eureka.self-preservation.active", registry, r -> r.isLeaseExpirationEnabled() ? 0 : 1)
+			.description("1 while expired leases are kept because too few instances renew")
+			.register(meterRegistry);
+		Gauge.builder("petclinic.eureka.response-cache.size", registry,
+				r -> r.getResponseCache() instanceof ResponseCacheImpl cache ? cache.getCurrentSize() : Double.NaN)
+			.description("Payloads in the read-write response cache")
+			.register(meterRegistry);
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.discovery;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import io.micrometer.common.KeyValue;
+
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * Tags the <code>http.server.requests</code> of the Eureka REST API with their URI template. The API is served by
+ * Jersey, outside of Spring MVC, so registrations, renewals and registry fetches would otherwise all be recorded as
+ * <code>UNKNOWN</code>.
+ */
+class EurekaRequestObservationConvention extends DefaultServerRequestObservationConvention {
+
+	private static final List<UriTemplate> TEMPLATES = List.of(
+		new UriTemplate("/eureka/apps/delta"),
+		new UriTemplate("/eureka/apps"),
+		new UriTemplate("/eureka/apps/{app}"),
+		new UriTemplate("/eureka/apps/{app}/{id}"),
+		new UriTemplate("/eureka/apps/{app}/{id}/status"),
+		new UriTemplate("/eureka/apps/{app}/{id}/metadata"),
+		new UriTemplate("/eureka/instances/{id}"),
+		new UriTemplate("/eureka/vips/{vip}"),
+		new UriTemplate("/eureka/svips/{svip}"),
+		new UriTemplate("/eureka/peerreplication/batch"));
+
+	@Override
+	protected KeyValue uri(ServerRequestObservationContext context) {
+		if (context.getPathPattern() == null && context.getCarrier() != null) {
+			String path = context.getCarrier().getRequestURI().substring(context.getCarrier().getContextPath().length());
+			for (UriTemplate template : TEMPLATES) {
+				if (template.matches(path)) {
+					return KeyValue.of("uri", template.template());
+				}
+			}
+		}
+		return super.uri(context);
+	}
+
+	private record UriTemplate(String template, Pattern pattern) {
+
+		UriTemplate(String template) {
+			this(template, Pattern.compile(template.replaceAll("\\{\\w+}", "[^/]+") + "/?"));
+		}
+
+		boolean matches(String path) {
+			return pattern.matcher(path).matches();
+		}
+	}
+}
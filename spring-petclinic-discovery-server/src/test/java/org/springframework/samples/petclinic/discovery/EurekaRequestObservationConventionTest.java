@@ -0,0 +1,39 @@
+package org.springframework.samples.petclinic.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EurekaRequestObservationConventionTest {
+
+	private final EurekaRequestObservationConvention convention = new EurekaRequestObservationConvention();
+
+	@Test
+	void tagsEurekaRequestsWithTheirUriTemplate() {
+		assertThat(uri("GET", "/eureka/apps/delta")).isEqualTo("/eureka/apps/delta");
+		assertThat(uri("GET", "/eureka/apps/")).isEqualTo("/eureka/apps");
+		assertThat(uri("POST", "/eureka/apps/CUSTOMERS-SERVICE")).isEqualTo("/eureka/apps/{app}");
+		assertThat(uri("PUT", "/eureka/apps/CUSTOMERS-SERVICE/10.0.0.1:customers-service:8081"))
+			.isEqualTo("/eureka/apps/{app}/{id}");
+		assertThat(uri("PUT", "/eureka/apps/CUSTOMERS-SERVICE/10.0.0.1:customers-service:8081/status"))
+			.isEqualTo("/eureka/apps/{app}/{id}/status");
+	}
+
+	@Test
+	void leavesOtherRequestsToTheDefaultConvention() {
+		assertThat(uri("GET", "/lastn")).isEqualTo("UNKNOWN");
+	}
+
+	private String uri(String method, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+		ServerRequestObservationContext context = new ServerRequestObservationContext(request,
+			new MockHttpServletResponse());
+		return convention.getLowCardinalityKeyValues(context).stream()
+			.filter(keyValue -> keyValue.getKey().equals("uri"))
+			.findFirst().orElseThrow().getValue();
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The requests of the workload, with their share of the traffic: mostly the owner details page composed by the
+ * gateway, plus plain routed calls to customers-service and vets-service.
+ */
+enum Endpoint {
+
+    OWNER_DETAILS("/api/gateway/owners/%d", 6),
+    OWNER("/api/customer/owners/%d", 2),
+    VETS("/api/vet/vets", 2);
+
+    private static final int OWNERS = 10;
+
+    private static final List<Endpoint> SEQUENCE = new ArrayList<>();
+
+    static {
+        for (Endpoint endpoint : values()) {
+            for (int i = 0; i < endpoint.weight; i++) {
+                SEQUENCE.add(endpoint);
+            }
+        }
+    }
+
+    private final String path;
+
+    private final int weight;
+
+    Endpoint(String path, int weight) {
+        this.path = path;
+        this.weight = weight;
+    }
+
+    /**
+     * The endpoint of the <code>i</code>th request, so that every run sends the same deterministic mix.
+     */
+    static Endpoint of(long i) {
+        return SEQUENCE.get((int) (i % SEQUENCE.size()));
+    }
+
+    String path(long i) {
+        return String.format(path, i % OWNERS + 1);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies, in microseconds, and failures of the requests to one endpoint. Failed requests are recorded in the
+ * histogram too, since a client waited for them just as long.
+ */
+class EndpointResult {
+
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final Endpoint endpoint;
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY, 3);
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final Map<String, LongAdder> failuresByCause = new ConcurrentHashMap<>();
+
+    EndpointResult(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void success(long latencyNanos) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY));
+    }
+
+    void failure(long latencyNanos, String cause) {
+        success(latencyNanos);
+        failures.incrementAndGet();
+        failuresByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    Endpoint endpoint() {
+        return endpoint;
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long requests() {
+        return latencies.getTotalCount();
+    }
+
+    long failures() {
+        return failures.get();
+    }
+
+    double errorRatio() {
+        return requests() == 0 ? 0 : (double) failures() / requests();
+    }
+
+    Map<String, LongAdder> failuresByCause() {
+        return failuresByCause;
+    }
+}
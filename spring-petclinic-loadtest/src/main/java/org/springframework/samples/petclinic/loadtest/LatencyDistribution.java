@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Response time of a stand-in service. Parsed from <code>fixed:20</code>, <code>uniform:5-50</code> or
+ * <code>lognormal:20,0.5</code> (median and sigma), all in milliseconds.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    Duration sample(Random random);
+
+    static LatencyDistribution fixed(long millis) {
+        Duration latency = Duration.ofMillis(millis);
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return random -> Duration.ofMillis(minMillis + (long) (random.nextDouble() * (maxMillis - minMillis)));
+    }
+
+    /**
+     * Long-tailed latency as seen from real services: most responses near the median, a few much slower.
+     */
+    static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        return random -> Duration.ofNanos((long) (medianMillis * Math.exp(sigma * random.nextGaussian()) * 1_000_000));
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndArguments = spec.split(":", 2);
+        String[] arguments = kindAndArguments.length > 1 ? kindAndArguments[1].split("[-,]") : new String[0];
+        try {
+            return switch (kindAndArguments[0]) {
+                case "fixed" -> fixed(Long.parseLong(arguments[0]));
+                case "uniform" -> uniform(Long.parseLong(arguments[0]), Long.parseLong(arguments[1]));
+                case "lognormal" -> logNormal(Double.parseDouble(arguments[0]), Double.parseDouble(arguments[1]));
+                default -> throw new IllegalArgumentException("Unknown latency distribution " + spec);
+            };
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed latency distribution " + spec, ex);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of a measured run: prints a summary, writes the full latency distributions as <code>.hgrm</code> files
+ * (which the HdrHistogram plotter reads) and checks the objectives of the regression gate.
+ */
+class LoadResult {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final int rate;
+
+    private final Duration duration;
+
+    private final Map<Endpoint, EndpointResult> endpoints;
+
+    LoadResult(int rate, Duration duration, Map<Endpoint, EndpointResult> endpoints) {
+        this.rate = rate;
+        this.duration = duration;
+        this.endpoints = endpoints;
+    }
+
+    EndpointResult endpoint(Endpoint endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * The objectives this run misses, empty when every endpoint stays within them.
+     */
+    List<String> violations(Duration maxP99, double maxErrorRatio) {
+        List<String> violations = new ArrayList<>();
+        for (EndpointResult result : endpoints.values()) {
+            if (result.requests() == 0) {
+                violations.add(result.endpoint() + ": no request completed");
+                continue;
+            }
+            double p99 = result.latencies().getValueAtPercentile(99) / MICROS_PER_MILLI;
+            if (p99 > maxP99.toMillis()) {
+                violations.add(String.format(Locale.ROOT, "%s: p99 %.1f ms exceeds %d ms",
+                    result.endpoint(), p99, maxP99.toMillis()));
+            }
+            if (result.errorRatio() > maxErrorRatio) {
+                violations.add(String.format(Locale.ROOT, "%s: error ratio %.4f exceeds %.4f %s",
+                    result.endpoint(), result.errorRatio(), maxErrorRatio, result.failuresByCause()));
+            }
+        }
+        return violations;
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%d requests/s for %ds, latencies in ms%n", rate, duration.toSeconds());
+        out.printf(Locale.ROOT, "%-14s %8s %8s %8s %8s %8s %8s %8s%n",
+            "endpoint", "requests", "errors", "p50", "p90", "p99", "p99.9", "max");
+        for (EndpointResult result : endpoints.values()) {
+            Histogram latencies = result.latencies();
+            out.printf(Locale.ROOT, "%-14s %8d %8d %8.1f %8.1f %8.1f %8.1f %8.1f%n",
+                result.endpoint(), result.requests(), result.failures(),
+                latencies.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                latencies.getMaxValue() / MICROS_PER_MILLI);
+        }
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rate", rate);
+        summary.put("durationSeconds", duration.toSeconds());
+        Map<String, Object> byEndpoint = new LinkedHashMap<>();
+        for (EndpointResult result : endpoints.values()) {
+            String name = result.endpoint().name().toLowerCase(Locale.ROOT);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name + ".hgrm")))) {
+                result.latencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            Histogram latencies = result.latencies();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", result.requests());
+            stats.put("errors", result.failures());
+            stats.put("p50Millis", latencies.getValueAtPercentile(50) / MICROS_PER_MILLI);
+            stats.put("p99Millis", latencies.getValueAtPercentile(99) / MICROS_PER_MILLI);
+            stats.put("p999Millis", latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+            stats.put("maxMillis", latencies.getMaxValue() / MICROS_PER_MILLI);
+            byEndpoint.put(name, stats);
+        }
+        summary.put("endpoints", byEndpoint);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+}
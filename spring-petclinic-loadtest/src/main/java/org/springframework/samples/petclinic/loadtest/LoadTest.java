@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.api.ApiGatewayApplication;
+
+/**
+ * Boots the API gateway in-process against stand-in customers, visits and vets services, so that its own
+ * overhead (routing, aggregation, circuit breakers) is measured against backends of known latency, then drives it
+ * with an open workload. Run <code>main</code>, or the <code>GatewayLoadTest</code> of this module, with
+ * <code>loadtest.*</code> system properties (see {@link LoadTestSettings}); exits with 1 when an objective is missed.
+ */
+@Slf4j
+public class LoadTest implements AutoCloseable {
+
+    private final LoadTestSettings settings;
+
+    private final StandInService customers;
+
+    private final StandInService visits;
+
+    private final StandInService vets;
+
+    private final ConfigurableApplicationContext gateway;
+
+    public LoadTest(LoadTestSettings settings) throws IOException {
+        this.settings = settings;
+        this.customers = StandIns.customers(settings);
+        this.visits = StandIns.visits(settings);
+        this.vets = StandIns.vets(settings);
+        this.gateway = new SpringApplicationBuilder(ApiGatewayApplication.class).run(
+            "--server.port=0",
+            "--spring.cloud.config.enabled=false",
+            "--eureka.client.enabled=false",
+            "--logging.level.root=WARN",
+            instance(customers),
+            instance(visits),
+            instance(vets));
+    }
+
+    private static String instance(StandInService service) {
+        return "--spring.cloud.discovery.client.simple.instances." + service.name() + "[0].uri=" + service.url();
+    }
+
+    /**
+     * Warms the gateway up, discarding the results, then runs the measured workload and reports it.
+     */
+    public LoadResult run() throws IOException, InterruptedException {
+        int port = ((WebServerApplicationContext) gateway).getWebServer().getPort();
+        try (OpenLoadGenerator generator = new OpenLoadGenerator("http://localhost:" + port, settings.getTimeout())) {
+            if (!settings.getWarmup().isZero()) {
+                generator.run(settings.getRate(), settings.getWarmup());
+            }
+            LoadResult result = generator.run(settings.getRate(), settings.getDuration());
+            result.print(System.out);
+            System.out.printf("stand-ins served %d customers, %d visits and %d vets requests%n",
+                customers.requests(), visits.requests(), vets.requests());
+            Path reports = settings.getReportDirectory();
+            result.write(reports);
+            log.info("Latency distributions written to {}", reports.toAbsolutePath());
+            return result;
+        }
+    }
+
+    public List<String> violations(LoadResult result) {
+        return result.violations(settings.getMaxP99(), settings.getMaxErrorRatio());
+    }
+
+    @Override
+    public void close() throws IOException {
+        gateway.close();
+        vets.close();
+        visits.close();
+        customers.close();
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> violations;
+        try (LoadTest loadTest = new LoadTest(LoadTestSettings.fromSystemProperties())) {
+            violations = loadTest.violations(loadTest.run());
+        }
+        violations.forEach(violation -> System.err.println("FAILED " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings of a load test run, read from <code>loadtest.*</code> system properties, for example
+ * <code>-Dloadtest.rate=500 -Dloadtest.visits.latency=lognormal:20,0.8</code>.
+ */
+@Value
+@Builder
+public class LoadTestSettings {
+
+    /**
+     * Requests per second, started at a constant rate whether or not earlier requests have completed.
+     */
+    int rate;
+
+    Duration warmup;
+
+    Duration duration;
+
+    Duration timeout;
+
+    LatencyDistribution customersLatency;
+
+    LatencyDistribution visitsLatency;
+
+    LatencyDistribution vetsLatency;
+
+    double customersErrorRate;
+
+    double visitsErrorRate;
+
+    double vetsErrorRate;
+
+    int petsPerOwner;
+
+    int visitsPerPet;
+
+    /**
+     * The run fails when the 99th percentile of any endpoint is higher.
+     */
+    Duration maxP99;
+
+    /**
+     * The run fails when a larger share of the requests of any endpoint fails.
+     */
+    double maxErrorRatio;
+
+    Path reportDirectory;
+
+    public static LoadTestSettings fromSystemProperties() {
+        return from(System.getProperties());
+    }
+
+    static LoadTestSettings from(Properties properties) {
+        return LoadTestSettings.builder()
+            .rate(Integer.parseInt(properties.getProperty("loadtest.rate", "50")))
+            .warmup(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.warmup", "10"))))
+            .duration(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.duration", "20"))))
+            .timeout(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.timeout", "5"))))
+            .customersLatency(LatencyDistribution.parse(properties.getProperty("loadtest.customers.latency", "lognormal:5,0.5")))
+            .visitsLatency(LatencyDistribution.parse(properties.getProperty("loadtest.visits.latency", "lognormal:10,0.6")))
+            .vetsLatency(LatencyDistribution.parse(properties.getProperty("loadtest.vets.latency", "fixed:2")))
+            .customersErrorRate(Double.parseDouble(properties.getProperty("loadtest.customers.error-rate", "0")))
+            .visitsErrorRate(Double.parseDouble(properties.getProperty("loadtest.visits.error-rate", "0.01")))
+            .vetsErrorRate(Double.parseDouble(properties.getProperty("loadtest.vets.error-rate", "0")))
+            .petsPerOwner(Integer.parseInt(properties.getProperty("loadtest.pets-per-owner", "3")))
+            .visitsPerPet(Integer.parseInt(properties.getProperty("loadtest.visits-per-pet", "5")))
+            .maxP99(Duration.ofMillis(Long.parseLong(properties.getProperty("loadtest.max-p99", "250"))))
+            .maxErrorRatio(Double.parseDouble(properties.getProperty("loadtest.max-error-ratio", "0.01")))
+            .reportDirectory(Path.of(properties.getProperty("loadtest.report-directory", "target/loadtest")))
+            .build();
+    }
+}
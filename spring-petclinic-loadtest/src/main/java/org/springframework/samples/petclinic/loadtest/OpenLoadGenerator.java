@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Open workload model: requests are started at a constant arrival rate, independently of how fast earlier ones
+ * complete, as real users do. A closed-loop generator would slow down together with the system under test and
+ * hide its queueing delays. Latency is measured from the moment a request was scheduled to start, so a generator
+ * falling behind shows up in the percentiles instead of being silently omitted.
+ */
+@Slf4j
+class OpenLoadGenerator implements AutoCloseable {
+
+    private final String baseUrl;
+
+    private final Duration timeout;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final HttpClient client;
+
+    OpenLoadGenerator(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .executor(executor)
+            .build();
+    }
+
+    LoadResult run(int rate, Duration duration) throws InterruptedException {
+        Map<Endpoint, EndpointResult> results = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            results.put(endpoint, new EndpointResult(endpoint));
+        }
+        Phaser inFlight = new Phaser(1);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long lag = 0;
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                lag = Math.max(lag, -wait);
+            }
+            Endpoint endpoint = Endpoint.of(i);
+            EndpointResult result = results.get(endpoint);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint.path(i)))
+                .timeout(timeout)
+                .GET()
+                .build();
+            inFlight.register();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    long latency = System.nanoTime() - intended;
+                    if (failure == null && response.statusCode() < 400) {
+                        result.success(latency);
+                    } else {
+                        result.failure(latency, failure == null ? "HTTP " + response.statusCode()
+                            : failure.getClass().getSimpleName());
+                    }
+                    inFlight.arriveAndDeregister();
+                });
+        }
+        if (lag > TimeUnit.MILLISECONDS.toNanos(10)) {
+            log.warn("The load generator fell up to {} ms behind schedule", TimeUnit.NANOSECONDS.toMillis(lag));
+        }
+        try {
+            inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), timeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("{} requests did not complete", inFlight.getUnarrivedParties());
+        }
+        return new LoadResult(rate, duration, results);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
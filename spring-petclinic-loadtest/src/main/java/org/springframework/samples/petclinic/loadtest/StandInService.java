@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * A downstream service played by a {@link MockWebServer}, like in the api-gateway's
+ * <code>VisitsServiceClientIntegrationTest</code>, but answering every request from a dispatcher instead of a
+ * queue. Each response is delayed according to a {@link LatencyDistribution}, and a share of them, the error rate,
+ * fails with 503.
+ */
+@Slf4j
+public class StandInService implements AutoCloseable {
+
+    private final String name;
+
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    public StandInService(String name, LatencyDistribution latency, double errorRate,
+                          Function<RecordedRequest, String> responses) throws IOException {
+        this.name = name;
+        // one generator per stand-in, seeded so that runs with the same settings see the same latencies
+        Random random = new Random(name.hashCode());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                requests.incrementAndGet();
+                long delay;
+                boolean fail;
+                synchronized (random) {
+                    delay = latency.sample(random).toNanos();
+                    fail = random.nextDouble() < errorRate;
+                }
+                MockResponse response = fail
+                    ? new MockResponse().setResponseCode(503)
+                    : new MockResponse().setHeader("Content-Type", "application/json").setBody(responses.apply(request));
+                if (fail) {
+                    errors.incrementAndGet();
+                }
+                return response.setHeadersDelay(delay, TimeUnit.NANOSECONDS);
+            }
+        });
+        server.start();
+        log.info("Stand-in {} listening on {}", name, url());
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String url() {
+        return server.url("/").toString();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
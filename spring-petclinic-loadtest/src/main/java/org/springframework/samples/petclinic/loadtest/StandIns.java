@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Stand-ins of the customers, visits and vets services answering the requests the api-gateway sends them with
+ * canned JSON of the configured size.
+ */
+final class StandIns {
+
+    private static final Pattern OWNER = Pattern.compile("/owners/(\\d+)");
+
+    private static final String VETS = "["
+        + "{\"id\":1,\"firstName\":\"James\",\"lastName\":\"Carter\",\"specialties\":[],\"nrOfSpecialties\":0},"
+        + "{\"id\":2,\"firstName\":\"Helen\",\"lastName\":\"Leary\",\"specialties\":[{\"id\":1,\"name\":\"radiology\"}],\"nrOfSpecialties\":1},"
+        + "{\"id\":3,\"firstName\":\"Linda\",\"lastName\":\"Douglas\",\"specialties\":[{\"id\":3,\"name\":\"dentistry\"},{\"id\":2,\"name\":\"surgery\"}],\"nrOfSpecialties\":2},"
+        + "{\"id\":4,\"firstName\":\"Rafael\",\"lastName\":\"Ortega\",\"specialties\":[{\"id\":2,\"name\":\"surgery\"}],\"nrOfSpecialties\":1},"
+        + "{\"id\":5,\"firstName\":\"Henry\",\"lastName\":\"Stevens\",\"specialties\":[{\"id\":1,\"name\":\"radiology\"}],\"nrOfSpecialties\":1},"
+        + "{\"id\":6,\"firstName\":\"Sharon\",\"lastName\":\"Jenkins\",\"specialties\":[],\"nrOfSpecialties\":0}]";
+
+    private StandIns() {
+    }
+
+    static StandInService customers(LoadTestSettings settings) throws IOException {
+        return new StandInService("customers-service", settings.getCustomersLatency(),
+            settings.getCustomersErrorRate(), request -> owner(request, settings.getPetsPerOwner()));
+    }
+
+    static StandInService visits(LoadTestSettings settings) throws IOException {
+        return new StandInService("visits-service", settings.getVisitsLatency(), settings.getVisitsErrorRate(),
+            request -> visits(request, settings.getVisitsPerPet()));
+    }
+
+    static StandInService vets(LoadTestSettings settings) throws IOException {
+        return new StandInService("vets-service", settings.getVetsLatency(), settings.getVetsErrorRate(),
+            request -> VETS);
+    }
+
+    private static String owner(RecordedRequest request, int pets) {
+        Matcher matcher = OWNER.matcher(request.getRequestUrl().encodedPath());
+        int ownerId = matcher.matches() ? Integer.parseInt(matcher.group(1)) : 1;
+        StringJoiner petsJson = new StringJoiner(",", "[", "]");
+        for (int i = 0; i < pets; i++) {
+            int petId = ownerId * 100 + i;
+            petsJson.add("{\"id\":" + petId + ",\"name\":\"Pet " + petId + "\",\"birthDate\":\"2020-09-07\","
+                + "\"type\":{\"id\":1,\"name\":\"cat\"}}");
+        }
+        return "{\"id\":" + ownerId + ",\"firstName\":\"George\",\"lastName\":\"Franklin\","
+            + "\"address\":\"110 W. Liberty St.\",\"city\":\"Madison\",\"telephone\":\"6085551023\","
+            + "\"pets\":" + petsJson + "}";
+    }
+
+    private static String visits(RecordedRequest request, int visitsPerPet) {
+        HttpUrl url = request.getRequestUrl();
+        String petIds = url.queryParameter("petId");
+        StringJoiner items = new StringJoiner(",", "{\"items\":[", "]}");
+        if (petIds != null && !petIds.isEmpty()) {
+            int[] pets = Arrays.stream(petIds.split(",")).mapToInt(Integer::parseInt).toArray();
+            for (int petId : pets) {
+                for (int i = 0; i < visitsPerPet; i++) {
+                    items.add("{\"id\":" + (petId * 1000 + i) + ",\"petId\":" + petId + ",\"date\":\"2023-01-0"
+                        + (i % 9 + 1) + "\",\"description\":\"rabies shot\",\"descriptionTruncated\":false}");
+                }
+            }
+        }
+        return items.toString();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of a discovery-server scale run: latencies per operation as seen by the fleet, and the CPU and heap the
+ * server needed to serve it. Written like the gateway load test results, as <code>.hgrm</code> files and a
+ * <code>summary.json</code>.
+ */
+class DiscoveryLoadResult {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final DiscoveryLoadSettings settings;
+
+    private final Map<DiscoveryOperation, OperationResult> operations;
+
+    private final ServerUsage usage;
+
+    private final double registeredInstances;
+
+    DiscoveryLoadResult(DiscoveryLoadSettings settings, Map<DiscoveryOperation, OperationResult> operations,
+                        ServerUsage usage, double registeredInstances) {
+        this.settings = settings;
+        this.operations = operations;
+        this.usage = usage;
+        this.registeredInstances = registeredInstances;
+    }
+
+    OperationResult operation(DiscoveryOperation operation) {
+        return operations.get(operation);
+    }
+
+    double registeredInstances() {
+        return registeredInstances;
+    }
+
+    /**
+     * The objectives this run misses, empty when the fetches are fast enough and no operation fails too often.
+     */
+    List<String> violations(Duration maxFetchP99, double maxErrorRatio) {
+        List<String> violations = new ArrayList<>();
+        double fetchP99 = operations.get(DiscoveryOperation.FETCH_DELTA).latencies().getValueAtPercentile(99)
+            / MICROS_PER_MILLI;
+        if (fetchP99 > maxFetchP99.toMillis()) {
+            violations.add(String.format(Locale.ROOT, "FETCH_DELTA: p99 %.1f ms exceeds %d ms",
+                fetchP99, maxFetchP99.toMillis()));
+        }
+        for (OperationResult result : operations.values()) {
+            if (result.errorRatio() > maxErrorRatio) {
+                violations.add(String.format(Locale.ROOT, "%s: error ratio %.4f exceeds %.4f %s",
+                    result.operation(), result.errorRatio(), maxErrorRatio, result.failuresByCause()));
+            }
+        }
+        return violations;
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%d instances of %d applications, renewing every %ds and fetching deltas every %ds, "
+                + "%.1f re-registrations/s for %ds, latencies in ms%n",
+            settings.getInstances(), settings.getApplications(), settings.getRenewalInterval().toSeconds(),
+            settings.getFetchInterval().toSeconds(), settings.getChurn(), settings.getDuration().toSeconds());
+        out.printf(Locale.ROOT, "%-12s %8s %8s %8s %8s %8s %8s %8s %10s%n",
+            "operation", "requests", "errors", "p50", "p90", "p99", "p99.9", "max", "bytes");
+        for (OperationResult result : operations.values()) {
+            Histogram latencies = result.latencies();
+            out.printf(Locale.ROOT, "%-12s %8d %8d %8.1f %8.1f %8.1f %8.1f %8.1f %10.0f%n",
+                result.operation(), result.requests(), result.failures(),
+                latencies.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(90) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+                latencies.getMaxValue() / MICROS_PER_MILLI,
+                result.meanResponseBytes());
+        }
+        DoubleSummaryStatistics cpu = usage.cpu();
+        DoubleSummaryStatistics heap = usage.heap();
+        out.printf(Locale.ROOT, "discovery-server: cpu mean %.1f%% max %.1f%%, heap mean %.0f MB max %.0f MB, "
+                + "%.0f instances registered%n",
+            cpu.getAverage() * 100, cpu.getMax() * 100, heap.getAverage() / BYTES_PER_MEGABYTE,
+            heap.getMax() / BYTES_PER_MEGABYTE, registeredInstances);
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("instances", settings.getInstances());
+        summary.put("applications", settings.getApplications());
+        summary.put("renewalIntervalSeconds", settings.getRenewalInterval().toSeconds());
+        summary.put("fetchIntervalSeconds", settings.getFetchInterval().toSeconds());
+        summary.put("churn", settings.getChurn());
+        summary.put("durationSeconds", settings.getDuration().toSeconds());
+        Map<String, Object> byOperation = new LinkedHashMap<>();
+        for (OperationResult result : operations.values()) {
+            String name = result.operation().name().toLowerCase(Locale.ROOT);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name + ".hgrm")))) {
+                result.latencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            Histogram latencies = result.latencies();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", result.requests());
+            stats.put("errors", result.failures());
+            stats.put("p50Millis", latencies.getValueAtPercentile(50) / MICROS_PER_MILLI);
+            stats.put("p99Millis", latencies.getValueAtPercentile(99) / MICROS_PER_MILLI);
+            stats.put("p999Millis", latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+            stats.put("maxMillis", latencies.getMaxValue() / MICROS_PER_MILLI);
+            stats.put("meanResponseBytes", result.meanResponseBytes());
+            byOperation.put(name, stats);
+        }
+        summary.put("operations", byOperation);
+        Map<String, Object> server = new LinkedHashMap<>();
+        server.put("cpuMean", usage.cpu().getAverage());
+        server.put("cpuMax", usage.cpu().getMax());
+        server.put("heapMeanBytes", usage.heap().getAverage());
+        server.put("heapMaxBytes", usage.heap().getMax());
+        server.put("registeredInstances", registeredInstances);
+        summary.put("server", server);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+            .writeValue(directory.resolve("summary.json").toFile(), summary);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings of a discovery-server scale run, read from <code>loadtest.discovery.*</code> system properties, for
+ * example <code>-Dloadtest.discovery.instances=5000 -Dloadtest.discovery.churn=5</code>.
+ */
+@Value
+@Builder
+public class DiscoveryLoadSettings {
+
+    /**
+     * The discovery-server under test. Its actuator <code>metrics</code> endpoint is read for CPU and heap usage.
+     */
+    URI url;
+
+    int instances;
+
+    /**
+     * The instances are spread evenly over this many applications.
+     */
+    int applications;
+
+    /**
+     * How often each instance renews its lease, 30s for real Eureka clients.
+     */
+    Duration renewalInterval;
+
+    /**
+     * How often each instance fetches the registry delta, 30s for real Eureka clients.
+     */
+    Duration fetchInterval;
+
+    /**
+     * Instances cancelled and registered again per second, so that deltas are not empty.
+     */
+    double churn;
+
+    Duration duration;
+
+    Duration timeout;
+
+    Duration sampleInterval;
+
+    /**
+     * The run fails when the 99th percentile of the delta fetches is higher.
+     */
+    Duration maxFetchP99;
+
+    /**
+     * The run fails when a larger share of the requests of any operation fails.
+     */
+    double maxErrorRatio;
+
+    Path reportDirectory;
+
+    public static DiscoveryLoadSettings fromSystemProperties() {
+        return from(System.getProperties());
+    }
+
+    static DiscoveryLoadSettings from(Properties properties) {
+        return DiscoveryLoadSettings.builder()
+            .url(URI.create(properties.getProperty("loadtest.discovery.url", "http://localhost:8761")))
+            .instances(Integer.parseInt(properties.getProperty("loadtest.discovery.instances", "2000")))
+            .applications(Integer.parseInt(properties.getProperty("loadtest.discovery.applications", "50")))
+            .renewalInterval(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.discovery.renewal-interval", "30"))))
+            .fetchInterval(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.discovery.fetch-interval", "30"))))
+            .churn(Double.parseDouble(properties.getProperty("loadtest.discovery.churn", "1")))
+            .duration(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.discovery.duration", "120"))))
+            .timeout(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.discovery.timeout", "5"))))
+            .sampleInterval(Duration.ofSeconds(Long.parseLong(properties.getProperty("loadtest.discovery.sample-interval", "5"))))
+            .maxFetchP99(Duration.ofMillis(Long.parseLong(properties.getProperty("loadtest.discovery.max-fetch-p99", "200"))))
+            .maxErrorRatio(Double.parseDouble(properties.getProperty("loadtest.discovery.max-error-ratio", "0.001")))
+            .reportDirectory(Path.of(properties.getProperty("loadtest.report-directory", "target/loadtest"), "discovery"))
+            .build();
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Simulates a fleet of Eureka clients against a running discovery-server, through the same REST API the Eureka
+ * client uses: every instance registers, then renews its lease and fetches the registry delta at the intervals of a
+ * real client, while a few instances are cancelled and registered again so that the deltas carry changes. Requests
+ * are sent in an open workload, as in the gateway load test, and the CPU and heap usage of the server is sampled
+ * meanwhile. Run <code>main</code>, or <code>scripts/benchmark/discovery_scale.sh</code>, with
+ * <code>loadtest.discovery.*</code> system properties (see {@link DiscoveryLoadSettings}); exits with 1 when an
+ * objective is missed.
+ */
+@Slf4j
+public class DiscoveryLoadTest implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final DiscoveryLoadSettings settings;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+
+    private final HttpClient client;
+
+    private final URI apps;
+
+    private final Map<DiscoveryOperation, OperationResult> results = new EnumMap<>(DiscoveryOperation.class);
+
+    private final Phaser inFlight = new Phaser(1);
+
+    public DiscoveryLoadTest(DiscoveryLoadSettings settings) {
+        this.settings = settings;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(settings.getTimeout())
+            .executor(executor)
+            .build();
+        this.apps = settings.getUrl().resolve("/eureka/apps/");
+        for (DiscoveryOperation operation : DiscoveryOperation.values()) {
+            results.put(operation, new OperationResult(operation));
+        }
+    }
+
+    /**
+     * Registers the fleet, spread over one renewal interval as if it had just been rolled out, then runs the
+     * measured workload and reports it. The instances are cancelled at the end, so that runs do not add up.
+     */
+    public DiscoveryLoadResult run() throws IOException, InterruptedException {
+        int instances = settings.getInstances();
+        Duration renewal = settings.getRenewalInterval();
+        drive(renewal, List.of(new Schedule(renewal.toNanos() / instances, this::register)));
+        awaitInFlight();
+
+        ServerUsage usage = new ServerUsage(client, settings.getUrl(), settings.getTimeout());
+        long sampleInterval = settings.getSampleInterval().toMillis();
+        ScheduledFuture<?> sampling = sampler.scheduleAtFixedRate(usage::sample, sampleInterval, sampleInterval,
+            TimeUnit.MILLISECONDS);
+        List<Schedule> schedules = new ArrayList<>();
+        schedules.add(new Schedule(renewal.toNanos() / instances, this::renew));
+        schedules.add(new Schedule(settings.getFetchInterval().toNanos() / instances, this::fetchDelta));
+        if (settings.getChurn() > 0) {
+            schedules.add(new Schedule((long) (TimeUnit.SECONDS.toNanos(1) / settings.getChurn()), this::reregister));
+        }
+        drive(settings.getDuration(), schedules);
+        sampling.cancel(false);
+        awaitInFlight();
+
+        DiscoveryLoadResult result = new DiscoveryLoadResult(settings, results, usage,
+            usage.value("petclinic.eureka.registry.instances"));
+        result.print(System.out);
+        Path reports = settings.getReportDirectory();
+        result.write(reports);
+        log.info("Latency distributions written to {}", reports.toAbsolutePath());
+        cancelAll();
+        return result;
+    }
+
+    public List<String> violations(DiscoveryLoadResult result) {
+        return result.violations(settings.getMaxFetchP99(), settings.getMaxErrorRatio());
+    }
+
+    /**
+     * Sends the requests of all <code>schedules</code> at their intended times until <code>duration</code> has
+     * elapsed. Latency is measured from the intended time, so a simulator falling behind shows in the percentiles.
+     */
+    private void drive(Duration duration, List<Schedule> schedules) {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long lag = 0;
+        while (true) {
+            Schedule schedule = schedules.stream().min(Comparator.comparingLong(s -> s.intended(start))).orElseThrow();
+            long intended = schedule.intended(start);
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                lag = Math.max(lag, -wait);
+            }
+            schedule.request.send(schedule.sent++, intended);
+        }
+        if (lag > TimeUnit.MILLISECONDS.toNanos(10)) {
+            log.warn("The simulator fell up to {} ms behind schedule", TimeUnit.NANOSECONDS.toMillis(lag));
+        }
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        try {
+            inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), settings.getTimeout().toMillis() * 2,
+                TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            log.warn("{} requests did not complete", inFlight.getUnarrivedParties());
+        }
+    }
+
+    private void register(long i, long intended) {
+        int instance = (int) (i % settings.getInstances());
+        send(DiscoveryOperation.REGISTER, HttpRequest.newBuilder(apps.resolve(application(instance)))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(instanceInfo(instance)))
+            .build(), intended, null);
+    }
+
+    private void renew(long i, long intended) {
+        int instance = (int) (i % settings.getInstances());
+        send(DiscoveryOperation.RENEW, HttpRequest.newBuilder(URI.create(instanceUri(instance) + "?status=UP"))
+            .PUT(HttpRequest.BodyPublishers.noBody())
+            .build(), intended, null);
+    }
+
+    private void fetchDelta(long i, long intended) {
+        send(DiscoveryOperation.FETCH_DELTA, HttpRequest.newBuilder(apps.resolve("delta"))
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip")
+            .GET()
+            .build(), intended, null);
+    }
+
+    /**
+     * Cancels an instance, as at a redeployment, and registers it again once cancelled. Instances are picked in a
+     * scattered order, so that the changes are spread over the applications.
+     */
+    private void reregister(long i, long intended) {
+        int instance = (int) (i * 7919 % settings.getInstances());
+        send(DiscoveryOperation.CANCEL, cancellation(instance), intended,
+            () -> register(instance, System.nanoTime()));
+    }
+
+    private void send(DiscoveryOperation operation, HttpRequest request, long intended, Runnable onSuccess) {
+        OperationResult result = results.get(operation);
+        inFlight.register();
+        client.sendAsync(withTimeout(request), HttpResponse.BodyHandlers.ofByteArray())
+            .whenComplete((response, failure) -> {
+                long latency = System.nanoTime() - intended;
+                if (failure == null && response.statusCode() < 300) {
+                    result.success(latency, response.body().length);
+                    if (onSuccess != null) {
+                        onSuccess.run();
+                    }
+                } else {
+                    result.failure(latency, failure == null ? "HTTP " + response.statusCode()
+                        : failure.getClass().getSimpleName());
+                }
+                inFlight.arriveAndDeregister();
+            });
+    }
+
+    private HttpRequest withTimeout(HttpRequest request) {
+        return HttpRequest.newBuilder(request, (name, value) -> true).timeout(settings.getTimeout()).build();
+    }
+
+    private void cancelAll() {
+        List<CompletableFuture<?>> cancellations = new ArrayList<>();
+        for (int instance = 0; instance < settings.getInstances(); instance++) {
+            cancellations.add(client.sendAsync(withTimeout(cancellation(instance)), HttpResponse.BodyHandlers.discarding()));
+        }
+        CompletableFuture.allOf(cancellations.toArray(CompletableFuture[]::new))
+            .exceptionally(ex -> {
+                log.warn("Not every instance could be cancelled: {}", ex.toString());
+                return null;
+            })
+            .join();
+    }
+
+    private HttpRequest cancellation(int instance) {
+        return HttpRequest.newBuilder(instanceUri(instance)).DELETE().build();
+    }
+
+    private String application(int instance) {
+        return String.format(Locale.ROOT, "LOADTEST-%03d", instance % settings.getApplications());
+    }
+
+    private URI instanceUri(int instance) {
+        return apps.resolve(application(instance) + "/loadtest-" + instance);
+    }
+
+    private byte[] instanceInfo(int instance) {
+        String host = String.format(Locale.ROOT, "10.%d.%d.%d", instance >> 16 & 0xff, instance >> 8 & 0xff,
+            instance & 0xff);
+        String application = application(instance);
+        long renewalSeconds = settings.getRenewalInterval().toSeconds();
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("instanceId", "loadtest-" + instance);
+        info.put("hostName", host);
+        info.put("app", application);
+        info.put("ipAddr", host);
+        info.put("status", "UP");
+        info.put("port", Map.of("$", 8080, "@enabled", "true"));
+        info.put("securePort", Map.of("$", 8443, "@enabled", "false"));
+        info.put("vipAddress", application.toLowerCase(Locale.ROOT));
+        info.put("secureVipAddress", application.toLowerCase(Locale.ROOT));
+        info.put("homePageUrl", "http://" + host + ":8080/");
+        info.put("statusPageUrl", "http://" + host + ":8080/actuator/info");
+        info.put("healthCheckUrl", "http://" + host + ":8080/actuator/health");
+        info.put("dataCenterInfo", Map.of("@class", "com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo",
+            "name", "MyOwn"));
+        info.put("leaseInfo", Map.of("renewalIntervalInSecs", renewalSeconds, "durationInSecs", 3 * renewalSeconds));
+        try {
+            return JSON.writeValueAsBytes(Map.of("instance", info));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> violations;
+        try (DiscoveryLoadTest loadTest = new DiscoveryLoadTest(DiscoveryLoadSettings.fromSystemProperties())) {
+            violations = loadTest.violations(loadTest.run());
+        }
+        violations.forEach(violation -> System.err.println("FAILED " + violation));
+        System.exit(violations.isEmpty() ? 0 : 1);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        void send(long i, long intended);
+    }
+
+    /**
+     * One kind of request sent at a constant interval.
+     */
+    private static final class Schedule {
+
+        private final long intervalNanos;
+
+        private final Request request;
+
+        private long sent;
+
+        Schedule(long intervalNanos, Request request) {
+            this.intervalNanos = intervalNanos;
+            this.request = request;
+        }
+
+        long intended(long start) {
+            return start + sent * intervalNanos;
+        }
+    }
+}
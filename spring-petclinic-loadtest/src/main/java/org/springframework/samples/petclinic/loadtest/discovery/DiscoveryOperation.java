@@ -0,0 +1,28 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+/**
+ * The requests a Eureka client sends: one registration at startup, then a lease renewal and a delta fetch of the
+ * registry every 30 seconds, and a cancellation at shutdown.
+ */
+enum DiscoveryOperation {
+
+    REGISTER,
+    RENEW,
+    FETCH_DELTA,
+    CANCEL
+}
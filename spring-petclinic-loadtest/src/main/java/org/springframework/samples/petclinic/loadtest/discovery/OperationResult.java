@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies, in microseconds, failures and response sizes of the requests of one {@link DiscoveryOperation}.
+ */
+class OperationResult {
+
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final DiscoveryOperation operation;
+
+    private final Histogram latencies = new ConcurrentHistogram(HIGHEST_LATENCY, 3);
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder responseBytes = new LongAdder();
+
+    private final Map<String, LongAdder> failuresByCause = new ConcurrentHashMap<>();
+
+    OperationResult(DiscoveryOperation operation) {
+        this.operation = operation;
+    }
+
+    void success(long latencyNanos, long bytes) {
+        latencies.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_LATENCY));
+        responseBytes.add(bytes);
+    }
+
+    void failure(long latencyNanos, String cause) {
+        success(latencyNanos, 0);
+        failures.increment();
+        failuresByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+    }
+
+    DiscoveryOperation operation() {
+        return operation;
+    }
+
+    Histogram latencies() {
+        return latencies;
+    }
+
+    long requests() {
+        return latencies.getTotalCount();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+
+    double errorRatio() {
+        return requests() == 0 ? 0 : (double) failures() / requests();
+    }
+
+    /**
+     * Mean size of the successful responses, as sent over the wire (gzipped when the server compressed them).
+     */
+    double meanResponseBytes() {
+        long successes = requests() - failures();
+        return successes == 0 ? 0 : (double) responseBytes.sum() / successes;
+    }
+
+    Map<String, LongAdder> failuresByCause() {
+        return failuresByCause;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.DoubleSummaryStatistics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * CPU and heap usage of the discovery-server, sampled from its actuator <code>metrics</code> endpoint while the
+ * fleet runs. The simulator runs in another process, so its own work does not count.
+ */
+@Slf4j
+class ServerUsage {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpClient client;
+
+    private final URI metrics;
+
+    private final Duration timeout;
+
+    private final DoubleSummaryStatistics cpu = new DoubleSummaryStatistics();
+
+    private final DoubleSummaryStatistics heap = new DoubleSummaryStatistics();
+
+    ServerUsage(HttpClient client, URI server, Duration timeout) {
+        this.client = client;
+        this.metrics = server.resolve("/actuator/metrics/");
+        this.timeout = timeout;
+    }
+
+    synchronized void sample() {
+        try {
+            cpu.accept(value("process.cpu.usage"));
+            heap.accept(value("jvm.memory.used?tag=area:heap"));
+        } catch (IOException ex) {
+            log.warn("Could not sample the discovery-server: {}", ex.toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The value of one metric of the server, {@link Double#NaN} if it does not publish it.
+     */
+    double value(String metric) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(metrics.resolve(metric)).timeout(timeout).build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            return Double.NaN;
+        }
+        JsonNode measurements = JSON.readTree(response.body()).path("measurements");
+        return measurements.isEmpty() ? Double.NaN : measurements.get(0).path("value").asDouble();
+    }
+
+    synchronized DoubleSummaryStatistics cpu() {
+        return cpu;
+    }
+
+    synchronized DoubleSummaryStatistics heap() {
+        return heap;
+    }
+}
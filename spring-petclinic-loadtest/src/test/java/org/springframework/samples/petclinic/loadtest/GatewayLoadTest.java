@@ -0,0 +1,18 @@
+package org.springframework.samples.petclinic.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayLoadTest {
+
+    @Test
+    void gatewayMeetsLatencyAndErrorObjectives() throws Exception {
+        try (LoadTest loadTest = new LoadTest(LoadTestSettings.fromSystemProperties())) {
+            LoadResult result = loadTest.run();
+
+            assertThat(result.endpoint(Endpoint.OWNER_DETAILS).requests()).isPositive();
+            assertThat(loadTest.violations(result)).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.springframework.samples.petclinic.loadtest.discovery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Needs a running discovery-server, started by <code>scripts/benchmark/discovery_scale.sh</code>.
+ */
+@EnabledIfSystemProperty(named = "loadtest.discovery.url", matches = ".+")
+class DiscoveryScaleTest {
+
+    @Test
+    void discoveryServerServesTheFleetWithinObjectives() throws Exception {
+        DiscoveryLoadSettings settings = DiscoveryLoadSettings.fromSystemProperties();
+        try (DiscoveryLoadTest loadTest = new DiscoveryLoadTest(settings)) {
+            DiscoveryLoadResult result = loadTest.run();
+
+            assertThat(result.operation(DiscoveryOperation.RENEW).requests()).isPositive();
+            assertThat(result.registeredInstances()).isGreaterThanOrEqualTo(settings.getInstances());
+            assertThat(loadTest.violations(result)).isEmpty();
+        }
+    }
+}
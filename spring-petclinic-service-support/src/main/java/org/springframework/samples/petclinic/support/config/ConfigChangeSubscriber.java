@@ -0,0 +1,243 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+
+/**
+ * Keeps a stream of server-sent events open to the <code>/changes</code> endpoint of the config server, which only
+ * notifies the instances reading from the files that changed, and refreshes the environment when notified. The
+ * refresh waits a random delay of up to <code>maxJitter</code>, so that the instances notified at once do not all
+ * fetch their configuration at once, and applies the notifications arriving meanwhile in the same refresh. A
+ * subscription that finds the sequence of changes moved on since the previous one refreshes as well, as changes
+ * were missed while disconnected. A stream silent for longer than <code>heartbeatTimeout</code>, several of the
+ * heartbeat intervals of the config server, is given up and subscribed again.
+ */
+@Slf4j
+class ConfigChangeSubscriber implements InitializingBean, DisposableBean {
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private final URI uri;
+
+    private final Duration maxJitter;
+
+    private final Duration heartbeatTimeout;
+
+    private final ContextRefresher refresher;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    // one thread reads the stream for as long as the service runs, the other refreshes
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "config-change-subscriber");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // the lines of successive subscriptions are read on the threads of the http client
+    private volatile Long lastSequence;
+
+    private String eventName;
+
+    private String eventId;
+
+    ConfigChangeSubscriber(URI uri, Duration maxJitter, Duration heartbeatTimeout, ContextRefresher refresher) {
+        this.uri = uri;
+        this.maxJitter = maxJitter;
+        this.heartbeatTimeout = heartbeatTimeout;
+        this.refresher = refresher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        executor.execute(this::listen);
+    }
+
+    private void listen() {
+        Duration backoff = MIN_BACKOFF;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (subscribe()) {
+                    backoff = MIN_BACKOFF;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException ex) {
+                // the config server is optional, it may not be started yet or at all
+                log.debug("Could not subscribe to configuration changes at {}: {}", uri, ex.toString());
+            }
+            try {
+                Thread.sleep(backoff.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) < 0 ? backoff.multipliedBy(2) : MAX_BACKOFF;
+        }
+    }
+
+    /**
+     * Reads the stream until the config server closes it, or until it has been silent for longer than
+     * <code>heartbeatTimeout</code>: the server sends heartbeats, so the connection was dropped without a close
+     * reaching this side, and would otherwise never be read from again.
+     *
+     * @return whether the config server accepted the subscription
+     */
+    private boolean subscribe() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "text/event-stream").build();
+        LineSubscriber lines = new LineSubscriber();
+        CompletableFuture<HttpResponse<Void>> response = client.sendAsync(request, info -> info.statusCode() == 200
+            ? HttpResponse.BodySubscribers.fromLineSubscriber(lines)
+            : HttpResponse.BodySubscribers.discarding());
+        try {
+            while (true) {
+                long remaining = heartbeatTimeout.toNanos() - (System.nanoTime() - lines.lastReceived);
+                if (remaining <= 0) {
+                    log.info("Heard nothing from {} for {}, subscribing again", uri, heartbeatTimeout);
+                    return lines.accepted;
+                }
+                try {
+                    HttpResponse<Void> done = response.get(remaining, TimeUnit.NANOSECONDS);
+                    if (done.statusCode() != 200) {
+                        log.debug("Config server answered {} to the subscription", done.statusCode());
+                    }
+                    return lines.accepted;
+                } catch (TimeoutException ex) {
+                    // a line may have arrived meanwhile, the deadline is computed again
+                } catch (ExecutionException ex) {
+                    throw ex.getCause() instanceof IOException io ? io : new IOException(ex.getCause());
+                }
+            }
+        } finally {
+            lines.cancel();
+            response.cancel(true);
+        }
+    }
+
+    void onLine(String line) {
+        if (line.isEmpty()) {
+            dispatch();
+        } else if (line.startsWith("event:")) {
+            eventName = line.substring(6).trim();
+        } else if (line.startsWith("id:")) {
+            eventId = line.substring(3).trim();
+        }
+    }
+
+    private void dispatch() {
+        Long sequence = eventId == null ? null : Long.valueOf(eventId);
+        if ("subscribed".equals(eventName)) {
+            if (lastSequence != null && !lastSequence.equals(sequence)) {
+                scheduleRefresh();
+            }
+            lastSequence = sequence;
+        } else if ("refresh".equals(eventName)) {
+            lastSequence = sequence;
+            scheduleRefresh();
+        }
+        eventName = null;
+        eventId = null;
+    }
+
+    private void scheduleRefresh() {
+        if (pending.getAndIncrement() == 0) {
+            long delay = ThreadLocalRandom.current().nextLong(maxJitter.toMillis() + 1);
+            executor.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        // notifications arriving from now on schedule another refresh, as this one may fetch before their change
+        int changes = pending.getAndSet(0);
+        try {
+            Set<String> keys = refresher.refresh();
+            log.info("Applied {} configuration changes, {} properties changed", changes, keys.size());
+        } catch (RuntimeException ex) {
+            log.error("Could not refresh the configuration", ex);
+        }
+    }
+
+    private class LineSubscriber implements Flow.Subscriber<String> {
+
+        private volatile long lastReceived = System.nanoTime();
+
+        private volatile boolean accepted;
+
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            accepted = true;
+            lastReceived = System.nanoTime();
+            log.info("Subscribed to configuration changes at {}", uri);
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lastReceived = System.nanoTime();
+            onLine(line);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
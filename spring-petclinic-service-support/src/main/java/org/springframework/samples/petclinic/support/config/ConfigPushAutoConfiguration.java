@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Refreshes the configuration when the config server notifies a change to it, see {@link ConfigChangeSubscriber}.
+ * Servlet and reactive services alike, the subscriber only needs Spring Cloud's {@link ContextRefresher}.
+ */
+@AutoConfiguration(afterName = "org.springframework.cloud.autoconfigure.RefreshAutoConfiguration")
+@ConditionalOnClass(ContextRefresher.class)
+@ConditionalOnBean(ContextRefresher.class)
+@ConditionalOnProperty(name = {"spring.cloud.config.enabled", "petclinic.config.push.enabled"}, matchIfMissing = true)
+public class ConfigPushAutoConfiguration {
+
+    @Bean
+    ConfigChangeSubscriber configChangeSubscriber(Environment environment, ContextRefresher refresher,
+                                                  @Value("${petclinic.config.push.uri:${CONFIG_SERVER_URL:http://localhost:8888/}}") String configServer,
+                                                  @Value("${petclinic.config.push.max-jitter:5s}") Duration maxJitter,
+                                                  @Value("${petclinic.config.push.heartbeat-timeout:90s}") Duration heartbeatTimeout) {
+        String[] profiles = environment.getActiveProfiles().length > 0 ? environment.getActiveProfiles() : environment.getDefaultProfiles();
+        var uri = UriComponentsBuilder.fromUriString(configServer)
+            .path("/changes")
+            .queryParam("application", environment.getRequiredProperty("spring.application.name"))
+            .queryParam("profile", String.join(",", profiles))
+            .build()
+            .encode()
+            .toUri();
+        return new ConfigChangeSubscriber(uri, maxJitter, heartbeatTimeout, refresher);
+    }
+}
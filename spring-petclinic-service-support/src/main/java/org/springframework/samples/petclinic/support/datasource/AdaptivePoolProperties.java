@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.time.Duration;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bounds and thresholds of the {@link AdaptivePoolSizer}.
+ */
+@Data
+@ConfigurationProperties(prefix = "petclinic.datasource.adaptive")
+public class AdaptivePoolProperties {
+
+    /**
+     * Resize the connection pool at runtime instead of keeping spring.datasource.hikari.maximum-pool-size.
+     */
+    private boolean enabled;
+
+    private int minSize = 2;
+
+    private int maxSize = 20;
+
+    /**
+     * Number of connections added or removed at a time.
+     */
+    private int step = 2;
+
+    /**
+     * How often the pool size is reconsidered.
+     */
+    private Duration interval = Duration.ofSeconds(10);
+
+    /**
+     * Mean time to acquire a connection above which the pool grows.
+     */
+    private Duration targetWait = Duration.ofMillis(5);
+
+    /**
+     * The pool shrinks when connections are held this many times longer than usual, a sign of database latency.
+     */
+    private double latencyTolerance = 2.0;
+
+    /**
+     * Number of intervals without waits after which the pool shrinks.
+     */
+    private int quietIntervals = 6;
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Resizes the Hikari pool within {@link AdaptivePoolProperties} bounds from what the {@link ConnectionTimingDataSource}
+ * observed during the last interval. The pool grows while callers wait longer than the target for a connection, as
+ * long as connections are not held much longer than usual: a rising hold time means the database itself is slowing
+ * down and more concurrent statements would only make that worse, so the pool shrinks instead. After a number of
+ * intervals without noticeable waits it gives connections back, one step at a time.
+ * <p>
+ * The usual hold time is the lowest mean seen so far, allowed to drift upwards by a few percent per interval so that
+ * a lasting change of the workload is eventually accepted.
+ */
+@Slf4j
+class AdaptivePoolSizer implements InitializingBean, DisposableBean {
+
+    private static final double BASELINE_DRIFT = 1.05;
+
+    private final HikariDataSource hikari;
+
+    private final ConnectionTimingDataSource timing;
+
+    private final AdaptivePoolProperties properties;
+
+    private final int minimumIdle;
+
+    private final Counter grown;
+
+    private final Counter shrunk;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "adaptive-pool-sizer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private double baselineHoldNanos;
+
+    private int quietIntervals;
+
+    AdaptivePoolSizer(HikariDataSource hikari, ConnectionTimingDataSource timing, AdaptivePoolProperties properties,
+                      MeterRegistry registry) {
+        this.hikari = hikari;
+        this.timing = timing;
+        this.properties = properties;
+        // unset, Hikari keeps the pool at its maximum size
+        this.minimumIdle = hikari.getMinimumIdle() < 0 ? hikari.getMaximumPoolSize() : hikari.getMinimumIdle();
+        this.grown = resizes(registry, "grow");
+        this.shrunk = resizes(registry, "shrink");
+    }
+
+    private static Counter resizes(MeterRegistry registry, String direction) {
+        return Counter.builder("petclinic.datasource.pool.resizes")
+            .description("Pool size changes made by the adaptive pool sizer")
+            .tag("direction", direction)
+            .register(registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        resize(clamp(hikari.getMaximumPoolSize()));
+        long interval = properties.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    void adjust() {
+        try {
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            int awaiting = pool == null ? 0 : pool.getThreadsAwaitingConnection();
+            int size = hikari.getMaximumPoolSize();
+            int next = nextSize(size, timing.drainUsage(), awaiting);
+            if (next != size) {
+                resize(next);
+                (next > size ? grown : shrunk).increment();
+                log.info("Resized connection pool from {} to {}", size, next);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Could not adjust the connection pool size", ex);
+        }
+    }
+
+    int nextSize(int size, ConnectionTimingDataSource.Usage usage, int awaiting) {
+        if (usage.releases() > 0) {
+            double hold = usage.meanHoldNanos();
+            double baseline = baselineHoldNanos;
+            baselineHoldNanos = baseline == 0 ? hold : Math.min(hold, baseline * BASELINE_DRIFT);
+            if (baseline > 0 && hold > baseline * properties.getLatencyTolerance()) {
+                quietIntervals = 0;
+                return clamp(size - properties.getStep());
+            }
+        }
+        if (awaiting > 0 || usage.meanAcquireNanos() > properties.getTargetWait().toNanos()) {
+            quietIntervals = 0;
+            return clamp(size + properties.getStep());
+        }
+        if (++quietIntervals >= properties.getQuietIntervals()) {
+            quietIntervals = 0;
+            return clamp(size - properties.getStep());
+        }
+        return size;
+    }
+
+    private int clamp(int size) {
+        return Math.max(properties.getMinSize(), Math.min(properties.getMaxSize(), size));
+    }
+
+    private void resize(int size) {
+        HikariConfigMXBean config = hikari.getHikariConfigMXBean();
+        // lower the idle floor along with the size, otherwise Hikari keeps the connections a smaller pool gave up
+        config.setMinimumIdle(Math.min(minimumIdle, size));
+        config.setMaximumPoolSize(size);
+    }
+}
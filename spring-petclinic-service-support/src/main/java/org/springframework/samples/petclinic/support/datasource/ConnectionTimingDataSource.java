@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times how long callers wait for a pooled connection and how long they hold on to it, as
+ * <code>petclinic.datasource.connection.acquire</code> and <code>petclinic.datasource.connection.hold</code>
+ * histograms tagged with the <code>uri</code> template of the request that asked for the connection, or
+ * <code>none</code> outside of a request. Running totals of both feed the {@link AdaptivePoolSizer}.
+ * <p>
+ * Connections handed out before the meter registry is bound, e.g. by the SQL init scripts, are only counted in the
+ * totals.
+ */
+class ConnectionTimingDataSource extends DelegatingDataSource {
+
+    private static final String NO_ENDPOINT = "none";
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder acquireNanos = new LongAdder();
+
+    private final LongAdder releases = new LongAdder();
+
+    private final LongAdder holdNanos = new LongAdder();
+
+    private volatile MeterRegistry registry;
+
+    ConnectionTimingDataSource(DataSource target) {
+        super(target);
+    }
+
+    void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        return timed(super.getConnection(), start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        return timed(super.getConnection(username, password), start);
+    }
+
+    /**
+     * Connection acquisitions and releases since the previous call.
+     */
+    Usage drainUsage() {
+        return new Usage(acquisitions.sumThenReset(), acquireNanos.sumThenReset(),
+            releases.sumThenReset(), holdNanos.sumThenReset());
+    }
+
+    private Connection timed(Connection connection, long start) {
+        long acquired = System.nanoTime();
+        String endpoint = currentEndpoint();
+        acquisitions.increment();
+        acquireNanos.add(acquired - start);
+        record("petclinic.datasource.connection.acquire", "Time spent waiting for a pooled connection", endpoint,
+            acquired - start);
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        long held = System.nanoTime() - acquired;
+                        releases.increment();
+                        holdNanos.add(held);
+                        record("petclinic.datasource.connection.hold", "Time a pooled connection was held", endpoint,
+                            held);
+                    }
+                    try {
+                        yield method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                }
+            });
+    }
+
+    private void record(String name, String description, String endpoint, long nanos) {
+        MeterRegistry registry = this.registry;
+        if (registry != null) {
+            Timer.builder(name)
+                .description(description)
+                .tag("uri", endpoint)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String currentEndpoint() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletRequest request = attributes.getRequest();
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern) {
+                return pattern;
+            }
+        }
+        return NO_ENDPOINT;
+    }
+
+    record Usage(long acquisitions, long acquireNanos, long releases, long holdNanos) {
+
+        double meanAcquireNanos() {
+            return acquisitions == 0 ? 0 : (double) acquireNanos / acquisitions;
+        }
+
+        double meanHoldNanos() {
+            return releases == 0 ? 0 : (double) holdNanos / releases;
+        }
+    }
+}
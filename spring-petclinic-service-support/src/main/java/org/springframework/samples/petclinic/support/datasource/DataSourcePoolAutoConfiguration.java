@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Connection wait and hold time metrics for the JDBC pool, see {@link ConnectionTimingDataSource}, and the optional
+ * {@link AdaptivePoolSizer}. Backs off when the service has no JDBC pool, like visits-service in its reactive profile.
+ */
+@AutoConfiguration(after = DataSourceAutoConfiguration.class)
+@ConditionalOnClass(HikariDataSource.class)
+@ConditionalOnBean(DataSource.class)
+@EnableConfigurationProperties(AdaptivePoolProperties.class)
+public class DataSourcePoolAutoConfiguration {
+
+    @Bean
+    static BeanPostProcessor connectionTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof ConnectionTimingDataSource)
+                    ? new ConnectionTimingDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder connectionTimingMetrics(DataSource dataSource) throws SQLException {
+        ConnectionTimingDataSource timing = dataSource.unwrap(ConnectionTimingDataSource.class);
+        return timing::bindTo;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "petclinic.datasource.adaptive", name = "enabled", havingValue = "true")
+    AdaptivePoolSizer adaptivePoolSizer(DataSource dataSource, AdaptivePoolProperties properties,
+                                        MeterRegistry registry) throws SQLException {
+        return new AdaptivePoolSizer(dataSource.unwrap(HikariDataSource.class),
+            dataSource.unwrap(ConnectionTimingDataSource.class), properties, registry);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.discovery;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Reloads the discovery file named by <code>petclinic.discovery.file</code>, which the services resolving their
+ * peers from it set in their <code>static-discovery</code> profile, see {@link DiscoveryFileWatcher}.
+ */
+@AutoConfiguration(afterName = "org.springframework.cloud.autoconfigure.RefreshAutoConfiguration")
+@ConditionalOnClass({ContextRefresher.class, HeartbeatEvent.class})
+@ConditionalOnBean(ContextRefresher.class)
+@ConditionalOnProperty(prefix = "petclinic.discovery", name = "file")
+public class DiscoveryFileAutoConfiguration {
+
+    @Bean
+    DiscoveryFileWatcher discoveryFileWatcher(@Value("${petclinic.discovery.file}") Path file,
+                                              @Value("${petclinic.discovery.reload-interval:2s}") Duration interval,
+                                              ContextRefresher refresher, ApplicationEventPublisher publisher) {
+        return new DiscoveryFileWatcher(file, interval, refresher, publisher);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.discovery;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Reloads the discovery file when it changes. The file is imported as a config data location by the
+ * <code>static-discovery</code> profile, so refreshing the environment rebinds the
+ * <code>spring.cloud.discovery.client.simple.instances</code> it lists; the {@link HeartbeatEvent} then tells the
+ * listeners of the discovery client, such as Spring Boot Admin, that the instances may have changed, as the Eureka
+ * client does after a fetch.
+ * The file is polled rather than watched, since file system events do not cross Docker bind mounts.
+ */
+@Slf4j
+class DiscoveryFileWatcher implements InitializingBean, DisposableBean {
+
+    private final Path file;
+
+    private final Duration interval;
+
+    private final ContextRefresher refresher;
+
+    private final ApplicationEventPublisher publisher;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "discovery-file-watcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong reloads = new AtomicLong();
+
+    private FileTime lastModified;
+
+    DiscoveryFileWatcher(Path file, Duration interval, ContextRefresher refresher, ApplicationEventPublisher publisher) {
+        this.file = file;
+        this.interval = interval;
+        this.refresher = refresher;
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        lastModified = lastModified();
+        if (lastModified == null) {
+            log.warn("Discovery file {} does not exist, only instances from the configuration are known", file.toAbsolutePath());
+        }
+        executor.scheduleWithFixedDelay(this::reloadIfModified, interval.toMillis(), interval.toMillis(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    void reloadIfModified() {
+        FileTime modified = lastModified();
+        if (Objects.equals(modified, lastModified)) {
+            return;
+        }
+        lastModified = modified;
+        try {
+            Set<String> changed = refresher.refresh();
+            log.info("Reloaded {}, {} properties changed", file.toAbsolutePath(), changed.size());
+            publisher.publishEvent(new HeartbeatEvent(this, reloads.incrementAndGet()));
+        } catch (RuntimeException ex) {
+            // keep the instances known so far, the next change of the file gets another chance
+            log.error("Could not reload {}", file.toAbsolutePath(), ex);
+        }
+    }
+
+    private FileTime lastModified() {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+/**
+ * Passes only every n-th event of each logger under <code>loggerName</code>, the logger of that name and those of
+ * its sub-packages, up to <code>maxLevel</code>; warnings and errors are kept by default. Every logger is counted on
+ * its own, so that a busy one does not sample out the few events of a quiet one. As a turbo filter it decides before the logging event is created, so a sampled out
+ * call costs neither the event nor the formatting of its arguments.
+ */
+public class LogSamplingFilter extends TurboFilter {
+
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder sampledOut = new LongAdder();
+
+    private String loggerName = "";
+
+    private int every = 1;
+
+    private Level maxLevel = Level.INFO;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null for isXxxEnabled() checks, which must not count as calls
+        if (every <= 1 || format == null || level.toInt() > maxLevel.toInt()
+            || !level.isGreaterOrEqual(logger.getEffectiveLevel()) || !isSampled(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (calls.computeIfAbsent(logger.getName(), name -> new AtomicLong()).getAndIncrement() % every == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    private boolean isSampled(String name) {
+        return loggerName.isEmpty() || name.equals(loggerName)
+            || (name.startsWith(loggerName) && name.charAt(loggerName.length()) == '.');
+    }
+
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setEvery(int every) {
+        this.every = every;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.INFO);
+    }
+
+    public long getSampledOutCount() {
+        return sampledOut.sum();
+    }
+}
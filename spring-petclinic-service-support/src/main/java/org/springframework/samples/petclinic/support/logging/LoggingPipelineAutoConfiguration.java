@@ -0,0 +1,72 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.logging;
+
+import java.util.Iterator;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Metrics of the asynchronous logging pipeline set up by <code>async-logging.xml</code>, which each service includes
+ * in its <code>logback-spring.xml</code>: events dropped by each {@link MeteredAsyncAppender} and the room left in its
+ * queue, and events held back by each {@link LogSamplingFilter}.
+ */
+@AutoConfiguration
+@ConditionalOnClass({LoggerContext.class, MeterBinder.class})
+public class LoggingPipelineAutoConfiguration {
+
+    @Bean
+    MeterBinder loggingPipelineMetrics() {
+        return registry -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+                return;
+            }
+            Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME)
+                .iteratorForAppenders();
+            while (appenders.hasNext()) {
+                if (appenders.next() instanceof MeteredAsyncAppender appender) {
+                    FunctionCounter.builder("petclinic.logging.dropped", appender, MeteredAsyncAppender::getDroppedCount)
+                        .description("Log events dropped because the async appender queue was full")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                    Gauge.builder("petclinic.logging.queue.remaining", appender, MeteredAsyncAppender::getRemainingCapacity)
+                        .description("Free slots in the async appender queue")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                }
+            }
+            context.getTurboFilterList().stream()
+                .filter(LogSamplingFilter.class::isInstance)
+                .map(LogSamplingFilter.class::cast)
+                .forEach(filter -> FunctionCounter.builder("petclinic.logging.sampled.out", filter,
+                        LogSamplingFilter::getSampledOutCount)
+                    .description("Log events skipped by sampling")
+                    .tag("logger", filter.getLoggerName())
+                    .register(registry));
+        };
+    }
+}
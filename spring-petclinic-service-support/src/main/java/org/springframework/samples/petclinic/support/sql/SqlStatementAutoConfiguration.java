@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.sql;
+
+import java.sql.ResultSet;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.samples.petclinic.support.datasource.DataSourcePoolAutoConfiguration;
+
+/**
+ * Counts SQL statements and result rows per request, see {@link SqlStatements}. The DataSource is wrapped with
+ * datasource-proxy, which also proxies result sets so that every successful <code>ResultSet.next()</code> counts as a
+ * row read. Backs off when the service has no DataSource; the proxy goes around the connection timing wrapper of
+ * {@link DataSourcePoolAutoConfiguration}.
+ */
+@AutoConfiguration(after = {DataSourceAutoConfiguration.class, DataSourcePoolAutoConfiguration.class})
+@ConditionalOnClass(ProxyDataSourceBuilder.class)
+@ConditionalOnBean(DataSource.class)
+public class SqlStatementAutoConfiguration {
+
+    @Bean
+    static BeanPostProcessor sqlStatementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                        .afterQuery((execution, queries) -> SqlStatements.countStatement())
+                        .proxyResultSet()
+                        .afterMethod(context -> {
+                            if (context.getTarget() instanceof ResultSet && "next".equals(context.getMethod().getName())
+                                && Boolean.TRUE.equals(context.getResult())) {
+                                SqlStatements.countRow();
+                            }
+                        })
+                        .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    SqlStatementFilter sqlStatementFilter(MeterRegistry registry,
+                                          @Value("${petclinic.sql.warn-threshold:10}") int warnThreshold) {
+        return new SqlStatementFilter(registry, warnThreshold);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.sql;
+
+import java.io.IOException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records the {@link SqlStatements} of every request as <code>petclinic.sql.statements</code> and
+ * <code>petclinic.sql.rows</code> summaries tagged with the <code>uri</code> template, and logs a warning for
+ * requests that run more statements than the threshold, the usual sign of N+1 selects.
+ * <p>
+ * An asynchronous request is counted across its dispatches and recorded once, by the dispatch that completes it.
+ */
+@Slf4j
+class SqlStatementFilter extends OncePerRequestFilter {
+
+    private static final String NO_ENDPOINT = "none";
+
+    private final MeterRegistry registry;
+
+    private final int warnThreshold;
+
+    SqlStatementFilter(MeterRegistry registry, int warnThreshold) {
+        this.registry = registry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        SqlStatements counts = (SqlStatements) request.getAttribute(SqlStatements.REQUEST_ATTRIBUTE);
+        if (counts == null) {
+            counts = SqlStatements.start();
+            request.setAttribute(SqlStatements.REQUEST_ATTRIBUTE, counts);
+        } else {
+            counts.resume();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatements.clear();
+            if (!request.isAsyncStarted()) {
+                record(request, counts);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatements counts) {
+        String uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+            ? pattern : NO_ENDPOINT;
+        DistributionSummary.builder("petclinic.sql.statements")
+            .description("SQL statements executed per request")
+            .tag("uri", uri)
+            .register(registry)
+            .record(counts.statements());
+        DistributionSummary.builder("petclinic.sql.rows")
+            .description("Rows read from SQL results per request")
+            .tag("uri", uri)
+            .register(registry)
+            .record(counts.rows());
+        if (counts.statements() > warnThreshold) {
+            log.warn("{} {} ran {} SQL statements reading {} rows, more than {}: N+1 selects?",
+                request.getMethod(), uri, counts.statements(), counts.rows(), warnThreshold);
+        }
+    }
+}
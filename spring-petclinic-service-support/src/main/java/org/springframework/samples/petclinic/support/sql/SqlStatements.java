@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.sql;
+
+/**
+ * Counts the SQL statements sent to the database and the rows read from their results while handling the current
+ * request, see {@link SqlStatementFilter}. A JDBC batch counts as one statement. Work done on other threads than the
+ * dispatches of the request, e.g. by scheduled jobs or by the writer thread of a group commit, is not counted.
+ * <p>
+ * The counts of a request are kept in its {@link #REQUEST_ATTRIBUTE} attribute, for tests to assert on.
+ */
+public final class SqlStatements {
+
+    public static final String REQUEST_ATTRIBUTE = SqlStatements.class.getName();
+
+    private static final ThreadLocal<SqlStatements> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long rows;
+
+    private SqlStatements() {
+    }
+
+    static SqlStatements start() {
+        SqlStatements counts = new SqlStatements();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    /**
+     * Makes these the counts of the current thread again, in a later dispatch of an asynchronous request.
+     */
+    void resume() {
+        CURRENT.set(this);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    static void countStatement() {
+        SqlStatements counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+    }
+
+    static void countRow() {
+        SqlStatements counts = CURRENT.get();
+        if (counts != null) {
+            counts.rows++;
+        }
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+}
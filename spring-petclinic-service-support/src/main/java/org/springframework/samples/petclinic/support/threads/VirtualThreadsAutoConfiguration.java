@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.threads;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.ProtocolHandler;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+/**
+ * Runs Tomcat request processing and <code>@Async</code> work on virtual threads, one per task, instead of the
+ * platform thread pools, when the <code>virtual-threads</code> profile is active.
+ * <p>
+ * Without a bounded worker pool the concurrency towards the database is limited by the Hikari pool alone, which is
+ * sized and given a short connection timeout in the profile section of each service's <code>application.yml</code>.
+ * <p>
+ * Virtual threads need Java 21, the application still compiles for Java 17, so they are created through reflection
+ * and the context fails to start on an older JVM rather than silently falling back to platform threads.
+ * <p>
+ * Both executors are beans, shut down with the context: Tomcat does not stop an executor it was given.
+ */
+@AutoConfiguration(before = TaskExecutionAutoConfiguration.class)
+@Profile("virtual-threads")
+public class VirtualThreadsAutoConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService tomcatVirtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor("tomcat-handler-");
+    }
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadsProtocolHandlerCustomizer(
+        @Qualifier("tomcatVirtualThreadExecutor") ExecutorService executor) {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    ExecutorService taskVirtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor("task-");
+    }
+
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, "taskExecutor"})
+    AsyncTaskExecutor applicationTaskExecutor(@Qualifier("taskVirtualThreadExecutor") ExecutorService executor) {
+        return new TaskExecutorAdapter(executor);
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(
+                "The virtual-threads profile requires Java 21 or later, running on " + Runtime.version(), ex);
+        }
+    }
+}
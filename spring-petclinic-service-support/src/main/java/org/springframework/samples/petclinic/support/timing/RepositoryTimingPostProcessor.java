@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.timing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Times every Spring Data repository call into the <code>db</code> phase of {@link ServerTiming}.
+ */
+class RepositoryTimingPostProcessor implements BeanPostProcessor {
+
+    private static final MethodInterceptor TIMING = invocation -> {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            ServerTiming.recordDb(System.nanoTime() - start);
+        }
+    };
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory ->
+                factory.addRepositoryProxyPostProcessor((proxy, information) -> proxy.addAdvice(TIMING)));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.timing;
+
+import java.util.Locale;
+
+/**
+ * Where the time of the request handled by the current thread went: in repository calls (<code>db</code>), writing
+ * the response body (<code>ser</code>) and the rest of the handler (<code>app</code>). Rendered as a
+ * <a href="https://www.w3.org/TR/server-timing/">Server-Timing</a> header, which browsers show in their network panel
+ * and the api-gateway merges into its own response.
+ * <p>
+ * Lazy associations loaded while the body is written count as <code>ser</code>. Only the repository calls made on the
+ * thread handling the request count as <code>db</code>: neither those made on other threads, such as the executor
+ * <code>VisitReader</code> queries on, nor plain <code>JdbcTemplate</code> statements, which count as
+ * <code>app</code>.
+ */
+final class ServerTiming {
+
+    static final String HEADER = "Server-Timing";
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+
+    private long db;
+
+    private long serializationStart;
+
+    private long total;
+
+    private ServerTiming() {
+    }
+
+    static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Makes this the timing of the current thread again, in a later dispatch of an asynchronous request.
+     */
+    void resume() {
+        CURRENT.set(this);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Adds the duration of a repository call made by the current request, if any.
+     */
+    static void recordDb(long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.db += nanos;
+        }
+    }
+
+    /**
+     * Marks the start of the response body of the current request, if any.
+     */
+    static void markSerialization() {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null && timing.serializationStart == 0) {
+            timing.serializationStart = System.nanoTime();
+        }
+    }
+
+    /**
+     * Freezes the durations, on the first call, once the response is complete.
+     */
+    void stop() {
+        if (total == 0) {
+            total = System.nanoTime() - start;
+        }
+    }
+
+    long db() {
+        return db;
+    }
+
+    long serialization() {
+        return serialization(total());
+    }
+
+    long app() {
+        return app(total());
+    }
+
+    /**
+     * The duration so far until {@link #stop()}, then the frozen one.
+     */
+    long total() {
+        return total == 0 ? System.nanoTime() - start : total;
+    }
+
+    private long serialization(long elapsed) {
+        return serializationStart == 0 ? 0 : Math.max(0, start + elapsed - serializationStart);
+    }
+
+    private long app(long elapsed) {
+        return Math.max(0, elapsed - db - serialization(elapsed));
+    }
+
+    /**
+     * The durations so far, as the header is sent when the response is committed, possibly before it is complete.
+     */
+    String header() {
+        long elapsed = total();
+        return String.format(Locale.ROOT, "db;dur=%.2f, ser;dur=%.2f, app;dur=%.2f, total;dur=%.2f",
+            millis(db), millis(serialization(elapsed)), millis(app(elapsed)), millis(elapsed));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Reports per request where the time went in a <code>Server-Timing</code> header, see {@link ServerTiming}. Applies
+ * to Spring MVC services; <code>petclinic.server-timing.enabled=false</code> turns it off.
+ */
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "petclinic.server-timing", name = "enabled", matchIfMissing = true)
+public class ServerTimingAutoConfiguration {
+
+    @Bean
+    @ConditionalOnClass(name = "org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport")
+    static RepositoryTimingPostProcessor repositoryTimingPostProcessor() {
+        return new RepositoryTimingPostProcessor();
+    }
+
+    @Bean
+    ServerTimingFilter serverTimingFilter(MeterRegistry registry, @Value("${spring.application.name}") String hop) {
+        return new ServerTimingFilter(registry, hop);
+    }
+
+    @Bean
+    ServerTimingAdvice serverTimingAdvice() {
+        return new ServerTimingAdvice();
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.support.timing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Adds the {@link ServerTiming} header to every response and records its parts as
+ * <code>petclinic.server.timing</code> timers tagged with this service as <code>hop</code> and the part as
+ * <code>phase</code>. The body is not buffered: the header is added just before the response is committed, which for
+ * a body smaller than the response buffer is once it has been written, so that the header covers its serialization
+ * too. A streamed response sends the durations up to its first flush, the timers record the whole request.
+ * <p>
+ * An asynchronous request is timed across its dispatches: the header and the timers are only completed by the
+ * dispatch that writes the response.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String TIMING_ATTRIBUTE = ServerTimingFilter.class.getName() + ".TIMING";
+
+    private final Timer db;
+
+    private final Timer serialization;
+
+    private final Timer app;
+
+    private final Timer total;
+
+    ServerTimingFilter(MeterRegistry registry, String hop) {
+        this.db = timer(registry, hop, "db");
+        this.serialization = timer(registry, hop, "ser");
+        this.app = timer(registry, hop, "app");
+        this.total = timer(registry, hop, "total");
+    }
+
+    private static Timer timer(MeterRegistry registry, String hop, String phase) {
+        return Timer.builder("petclinic.server.timing")
+            .description("Time spent handling requests, by phase")
+            .tag("hop", hop)
+            .tag("phase", phase)
+            .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        ServerTiming timing = (ServerTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            timing = ServerTiming.start();
+            request.setAttribute(TIMING_ATTRIBUTE, timing);
+        } else {
+            timing.resume();
+        }
+        TimedResponse timedResponse = WebUtils.getNativeResponse(response, TimedResponse.class);
+        if (timedResponse == null) {
+            timedResponse = new TimedResponse(response, timing);
+        }
+        try {
+            chain.doFilter(request, timedResponse);
+            if (!request.isAsyncStarted()) {
+                timedResponse.addTimingHeader();
+            }
+        } finally {
+            ServerTiming.clear();
+            if (!request.isAsyncStarted()) {
+                timing.stop();
+                db.record(timing.db(), TimeUnit.NANOSECONDS);
+                serialization.record(timing.serialization(), TimeUnit.NANOSECONDS);
+                app.record(timing.app(), TimeUnit.NANOSECONDS);
+                total.record(timing.total(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Adds the header before anything commits the response: a flush, an error, a redirect, or a body reaching the
+     * size of the response buffer or its declared length.
+     */
+    private static class TimedResponse extends HttpServletResponseWrapper {
+
+        private final ServerTiming timing;
+
+        private long contentLength = -1;
+
+        private boolean headerAdded;
+
+        private ServletOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        TimedResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void addTimingHeader() {
+            if (!headerAdded && !isCommitted()) {
+                setHeader(ServerTiming.HEADER, timing.header());
+            }
+            headerAdded = true;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+            super.setContentLength(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+            super.setContentLengthLong(len);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new TimedOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new TimedWriter(super.getWriter());
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTimingHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addTimingHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addTimingHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addTimingHeader();
+            super.sendRedirect(location);
+        }
+
+        private class TimedOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream delegate;
+
+            private long written;
+
+            TimedOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            private void beforeWrite(int len) {
+                written += len;
+                long limit = contentLength < 0 ? getBufferSize() : Math.min(getBufferSize(), contentLength);
+                if (written >= limit) {
+                    addTimingHeader();
+                }
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                beforeWrite(1);
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                beforeWrite(len);
+                delegate.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                addTimingHeader();
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                addTimingHeader();
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+        }
+
+        /**
+         * Characters are not counted against the buffer, as their encoded size is not known here: a writer
+         * overflowing the buffer before its first flush sends no header.
+         */
+        private class TimedWriter extends PrintWriter {
+
+            TimedWriter(PrintWriter delegate) {
+                super(delegate);
+            }
+
+            @Override
+            public void flush() {
+                addTimingHeader();
+                super.flush();
+            }
+
+            @Override
+            public void close() {
+                addTimingHeader();
+                super.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.springframework.samples.petclinic.support.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.context.refresh.ContextRefresher;
+
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConfigChangeSubscriberTest {
+
+    private final ContextRefresher refresher = mock(ContextRefresher.class);
+
+    private final ConfigChangeSubscriber subscriber = new ConfigChangeSubscriber(
+        URI.create("http://localhost:8888/changes"), Duration.ofMillis(300), Duration.ofSeconds(90), refresher);
+
+    @AfterEach
+    void tearDown() {
+        subscriber.destroy();
+    }
+
+    @Test
+    void appliesTheChangesNotifiedMeanwhileInOneRefresh() {
+        when(refresher.refresh()).thenReturn(Set.of("customers.greeting"));
+
+        receive("subscribed", "4");
+        receive("refresh", "5");
+        receive("refresh", "6");
+
+        verify(refresher, timeout(1000).times(1)).refresh();
+        verify(refresher, after(500).times(1)).refresh();
+    }
+
+    @Test
+    void refreshesWhenChangesWereMissedWhileDisconnected() {
+        receive("subscribed", "4");
+        verify(refresher, after(500).never()).refresh();
+
+        receive("subscribed", "4");
+        verify(refresher, after(500).never()).refresh();
+
+        receive("subscribed", "7");
+        verify(refresher, timeout(1000)).refresh();
+    }
+
+    private void receive(String event, String id) {
+        subscriber.onLine("event:" + event);
+        subscriber.onLine("id:" + id);
+        subscriber.onLine("data:customers-service.yml");
+        subscriber.onLine("");
+    }
+}
@@ -0,0 +1,99 @@
+package org.springframework.samples.petclinic.support.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class ConfigPushAutoConfigurationTest {
+
+    private final ContextRefresher refresher = mock(ContextRefresher.class);
+
+    private final BlockingQueue<String> subscriptions = new LinkedBlockingQueue<>();
+
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private HttpServer configServer;
+
+    private ApplicationContextRunner runner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        configServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        configServer.createContext("/changes", exchange -> {
+            subscriptions.add(exchange.getRequestURI().getQuery());
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("event:subscribed\nid:4\ndata:\n\n".getBytes(StandardCharsets.UTF_8));
+                body.write("event:refresh\nid:5\ndata:vets-service.yml\n\n".getBytes(StandardCharsets.UTF_8));
+                body.flush();
+                done.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // the handlers hold on to their exchange, a subscription made again needs a thread of its own
+        configServer.setExecutor(Executors.newCachedThreadPool());
+        configServer.start();
+        runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ConfigPushAutoConfiguration.class))
+            .withInitializer(context -> context.getBeanFactory()
+                .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withBean(ContextRefresher.class, () -> refresher)
+            .withPropertyValues("spring.application.name=vets-service", "spring.profiles.active=docker",
+                "petclinic.config.push.uri=http://localhost:" + configServer.getAddress().getPort(),
+                "petclinic.config.push.max-jitter=0s");
+    }
+
+    @AfterEach
+    void tearDown() {
+        done.countDown();
+        configServer.stop(0);
+    }
+
+    @Test
+    void refreshesWhenTheConfigServerNotifiesAChange() {
+        runner.run(context -> {
+            assertThat(context).hasSingleBean(ConfigChangeSubscriber.class);
+            assertThat(subscriptions.poll(5, TimeUnit.SECONDS)).isEqualTo("application=vets-service&profile=docker");
+            verify(refresher, timeout(5000)).refresh();
+        });
+    }
+
+    @Test
+    void subscribesAgainWhenTheStreamGoesSilent() {
+        runner.withPropertyValues("petclinic.config.push.heartbeat-timeout=500ms").run(context -> {
+            assertThat(subscriptions.poll(5, TimeUnit.SECONDS)).isNotNull();
+            assertThat(subscriptions.poll(5, TimeUnit.SECONDS)).isEqualTo("application=vets-service&profile=docker");
+        });
+    }
+
+    @Test
+    void backsOffWhenPushIsDisabled() {
+        runner.withPropertyValues("petclinic.config.push.enabled=false")
+            .run(context -> assertThat(context).doesNotHaveBean(ConfigChangeSubscriber.class));
+        runner.withPropertyValues("spring.cloud.config.enabled=false")
+            .run(context -> assertThat(context).doesNotHaveBean(ConfigChangeSubscriber.class));
+    }
+}
@@ -0,0 +1,57 @@
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.time.Duration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.support.datasource.ConnectionTimingDataSource.Usage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptivePoolSizerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private AdaptivePoolSizer sizer;
+
+    @BeforeEach
+    void setUp() {
+        AdaptivePoolProperties properties = new AdaptivePoolProperties();
+        properties.setMinSize(4);
+        properties.setMaxSize(10);
+        properties.setStep(2);
+        properties.setTargetWait(Duration.ofMillis(5));
+        properties.setLatencyTolerance(2.0);
+        properties.setQuietIntervals(3);
+        HikariDataSource hikari = new HikariDataSource();
+        sizer = new AdaptivePoolSizer(hikari, new ConnectionTimingDataSource(hikari), properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void growsWhileCallersWaitForConnections() {
+        assertThat(sizer.nextSize(6, usage(20, 10), 0)).isEqualTo(8);
+        assertThat(sizer.nextSize(8, usage(0, 10), 3)).isEqualTo(10);
+        assertThat(sizer.nextSize(10, usage(20, 10), 3)).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksWhenTheDatabaseSlowsDown() {
+        assertThat(sizer.nextSize(8, usage(1, 10), 0)).isEqualTo(8);
+
+        assertThat(sizer.nextSize(8, usage(50, 30), 5)).isEqualTo(6);
+    }
+
+    @Test
+    void shrinksAfterQuietIntervals() {
+        assertThat(sizer.nextSize(8, usage(0, 10), 0)).isEqualTo(8);
+        assertThat(sizer.nextSize(8, usage(0, 10), 0)).isEqualTo(8);
+        assertThat(sizer.nextSize(8, usage(0, 10), 0)).isEqualTo(6);
+        assertThat(sizer.nextSize(6, usage(20, 10), 0)).isEqualTo(8);
+    }
+
+    private static Usage usage(long waitMillis, long holdMillis) {
+        return new Usage(10, 10 * waitMillis * MILLIS, 10, 10 * holdMillis * MILLIS);
+    }
+}
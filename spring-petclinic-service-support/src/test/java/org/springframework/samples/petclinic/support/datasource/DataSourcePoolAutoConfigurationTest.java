@@ -0,0 +1,58 @@
+package org.springframework.samples.petclinic.support.datasource;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourcePoolAutoConfigurationTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, DataSourcePoolAutoConfiguration.class))
+        .withPropertyValues("spring.datasource.url=jdbc:hsqldb:mem:pool", "spring.datasource.hikari.maximum-pool-size=3")
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void timesConnectionsOfTheHikariPool() {
+        runner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(ConnectionTimingDataSource.class);
+            assertThat(dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize()).isEqualTo(3);
+
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            context.getBean("connectionTimingMetrics", MeterBinder.class).bindTo(registry);
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+
+            assertThat(registry.get("petclinic.datasource.connection.acquire").tag("uri", "none").timer().count())
+                .isEqualTo(1);
+            assertThat(registry.get("petclinic.datasource.connection.hold").tag("uri", "none").timer().count())
+                .isEqualTo(1);
+            assertThat(context).doesNotHaveBean(AdaptivePoolSizer.class);
+        });
+    }
+
+    @Test
+    void resizesThePoolWhenEnabled() {
+        runner.withPropertyValues("petclinic.datasource.adaptive.enabled=true")
+            .run(context -> assertThat(context).hasSingleBean(AdaptivePoolSizer.class));
+    }
+
+    @Test
+    void backsOffWithoutDataSource() {
+        new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(DataSourcePoolAutoConfiguration.class))
+            .run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(AdaptivePoolProperties.class));
+    }
+}
@@ -0,0 +1,69 @@
+package org.springframework.samples.petclinic.support.discovery;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.context.ApplicationListener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class DiscoveryFileAutoConfigurationTest {
+
+    private final ContextRefresher refresher = mock(ContextRefresher.class);
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(DiscoveryFileAutoConfiguration.class))
+        .withInitializer(context -> context.getBeanFactory()
+            .setConversionService(ApplicationConversionService.getSharedInstance()))
+        .withBean(ContextRefresher.class, () -> refresher)
+        .withPropertyValues("petclinic.discovery.reload-interval=1h");
+
+    @Test
+    void refreshesAndSignalsTheDiscoveryClientWhenTheFileChanges(@TempDir Path directory) throws Exception {
+        Path file = Files.writeString(directory.resolve("discovery.yml"), "a: 1\n");
+        given(refresher.refresh()).willReturn(Set.of("a"));
+
+        runner.withPropertyValues("petclinic.discovery.file=" + file)
+            .withBean(Heartbeats.class)
+            .run(context -> {
+                DiscoveryFileWatcher watcher = context.getBean(DiscoveryFileWatcher.class);
+                watcher.reloadIfModified();
+                verify(refresher, never()).refresh();
+
+                Files.writeString(file, "a: 2\n");
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(1)));
+                watcher.reloadIfModified();
+                verify(refresher).refresh();
+                assertThat(context.getBean(Heartbeats.class).count).isEqualTo(1);
+            });
+    }
+
+    @Test
+    void backsOffWithoutDiscoveryFile() {
+        runner.run(context -> assertThat(context).doesNotHaveBean(DiscoveryFileWatcher.class));
+    }
+
+    static class Heartbeats implements ApplicationListener<HeartbeatEvent> {
+
+        int count;
+
+        @Override
+        public void onApplicationEvent(HeartbeatEvent event) {
+            count++;
+        }
+    }
+}
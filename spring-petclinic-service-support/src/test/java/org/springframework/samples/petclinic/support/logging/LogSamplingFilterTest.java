@@ -0,0 +1,67 @@
+package org.springframework.samples.petclinic.support.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSamplingFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    private final LogSamplingFilter filter = new LogSamplingFilter();
+
+    @BeforeEach
+    void setUp() {
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        filter.setLoggerName("org.springframework.samples.petclinic.owners.web");
+        filter.setEvery(3);
+    }
+
+    @Test
+    void passesEveryNthInfoMessageOfTheSampledLoggers() {
+        Logger logger = context.getLogger("org.springframework.samples.petclinic.owners.web.OwnerResource");
+
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.DENY);
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.DENY);
+        assertThat(decide(logger, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.getSampledOutCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsWarningsAndOtherLoggers() {
+        Logger logger = context.getLogger("org.springframework.samples.petclinic.owners.web.OwnerResource");
+        Logger other = context.getLogger("org.springframework.samples.petclinic.owners.model.OwnerRepository");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(decide(logger, Level.WARN)).isEqualTo(FilterReply.NEUTRAL);
+            assertThat(decide(other, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        }
+        assertThat(filter.decide(null, logger, Level.INFO, null, null, null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(filter.getSampledOutCount()).isZero();
+    }
+
+    @Test
+    void countsEveryLoggerOfThePackageOnItsOwn() {
+        Logger busy = context.getLogger("org.springframework.samples.petclinic.owners.web.OwnerResource");
+        Logger quiet = context.getLogger("org.springframework.samples.petclinic.owners.web.PetResource");
+        Logger sibling = context.getLogger("org.springframework.samples.petclinic.owners.webhooks.HookResource");
+
+        assertThat(decide(busy, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(quiet, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decide(busy, Level.INFO)).isEqualTo(FilterReply.DENY);
+        assertThat(decide(quiet, Level.INFO)).isEqualTo(FilterReply.DENY);
+        for (int i = 0; i < 3; i++) {
+            assertThat(decide(sibling, Level.INFO)).isEqualTo(FilterReply.NEUTRAL);
+        }
+    }
+
+    private FilterReply decide(Logger logger, Level level) {
+        return filter.decide(null, logger, level, "Saving owner {}", new Object[]{1}, null);
+    }
+}
@@ -0,0 +1,124 @@
+package org.springframework.samples.petclinic.support.sql;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.samples.petclinic.support.sql.SqlStatementMatchers.rowCount;
+import static org.springframework.samples.petclinic.support.sql.SqlStatementMatchers.statementCount;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SqlStatementAutoConfigurationTest {
+
+    private final WebApplicationContextRunner runner = new WebApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, SqlStatementAutoConfiguration.class))
+        .withPropertyValues("spring.datasource.url=jdbc:hsqldb:mem:sql")
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+    @Test
+    void countsStatementsAndRowsPerRequest() {
+        runner.run(context -> {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new SchemaController(context.getBean(DataSource.class)))
+                .addFilters(context.getBean(SqlStatementFilter.class))
+                .build();
+
+            mvc.perform(get("/schemas"))
+                .andExpect(status().isOk())
+                .andExpect(statementCount(2))
+                .andExpect(rowCount(4));
+
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertThat(registry.get("petclinic.sql.statements").tag("uri", "/schemas").summary().max()).isEqualTo(2);
+            assertThat(registry.get("petclinic.sql.rows").tag("uri", "/schemas").summary().max()).isEqualTo(4);
+        });
+    }
+
+    @Test
+    void countsStatementsAcrossTheDispatchesOfAsyncRequests() {
+        runner.run(context -> {
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(new SchemaController(context.getBean(DataSource.class)))
+                .addFilters(context.getBean(SqlStatementFilter.class))
+                .build();
+
+            MvcResult started = mvc.perform(get("/schemas/async"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+            assertThat(registry.find("petclinic.sql.statements").summary()).isNull();
+
+            // the count is read while the body is written, in the async dispatch
+            mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(statementCount(2))
+                .andExpect(rowCount(2));
+
+            DistributionSummary statements = registry.get("petclinic.sql.statements").tag("uri", "/schemas/async")
+                .summary();
+            assertThat(statements.count()).isEqualTo(1);
+            assertThat(statements.max()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void backsOffWithoutDataSource() {
+        new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(SqlStatementAutoConfiguration.class))
+            .run(context -> assertThat(context).hasNotFailed().doesNotHaveBean(SqlStatementFilter.class));
+    }
+
+    @RestController
+    static class SchemaController {
+
+        private final JdbcTemplate jdbc;
+
+        SchemaController(DataSource dataSource) {
+            this.jdbc = new JdbcTemplate(dataSource);
+        }
+
+        @GetMapping("/schemas/async")
+        CompletableFuture<SchemaCount> asyncSchemaCount() {
+            jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SCHEMATA", Integer.class);
+            return CompletableFuture.supplyAsync(() -> new SchemaCount(jdbc));
+        }
+
+        @GetMapping("/schemas")
+        List<String> schemas() {
+            jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SCHEMATA", Integer.class);
+            return jdbc.queryForList("SELECT SCHEMA_NAME FROM INFORMATION_SCHEMA.SCHEMATA ORDER BY SCHEMA_NAME LIMIT 3",
+                String.class);
+        }
+    }
+
+    static class SchemaCount {
+
+        private final JdbcTemplate jdbc;
+
+        SchemaCount(JdbcTemplate jdbc) {
+            this.jdbc = jdbc;
+        }
+
+        public int getCount() {
+            return jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SCHEMATA", Integer.class);
+        }
+    }
+}
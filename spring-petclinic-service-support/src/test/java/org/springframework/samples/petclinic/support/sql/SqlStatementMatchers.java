@@ -0,0 +1,37 @@
+package org.springframework.samples.petclinic.support.sql;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MockMvc matchers on the {@link SqlStatements} counted for a request, to pin down how many queries an endpoint runs
+ * and catch N+1 selects in tests against a real database:
+ * <pre>
+ * mvc.perform(get("/owners/1")).andExpect(statementCount(1));
+ * </pre>
+ */
+public final class SqlStatementMatchers {
+
+    private SqlStatementMatchers() {
+    }
+
+    public static ResultMatcher statementCount(int expected) {
+        return result -> assertThat(counts(result).statements()).as("SQL statements").isEqualTo(expected);
+    }
+
+    public static ResultMatcher statementCountAtMost(int max) {
+        return result -> assertThat(counts(result).statements()).as("SQL statements").isLessThanOrEqualTo(max);
+    }
+
+    public static ResultMatcher rowCount(long expected) {
+        return result -> assertThat(counts(result).rows()).as("rows read").isEqualTo(expected);
+    }
+
+    private static SqlStatements counts(MvcResult result) {
+        Object counts = result.getRequest().getAttribute(SqlStatements.REQUEST_ATTRIBUTE);
+        assertThat(counts).as("SQL statements counted for the request").isInstanceOf(SqlStatements.class);
+        return (SqlStatements) counts;
+    }
+}
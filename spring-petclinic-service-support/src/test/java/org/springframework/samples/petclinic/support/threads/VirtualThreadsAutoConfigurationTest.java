@@ -0,0 +1,80 @@
+package org.springframework.samples.petclinic.support.threads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationBeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class VirtualThreadsAutoConfigurationTest {
+
+    private static final boolean VIRTUAL_THREADS = Runtime.version().feature() >= 21;
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(VirtualThreadsAutoConfiguration.class, TaskExecutionAutoConfiguration.class));
+
+    @Test
+    void runsEveryTaskOnANewVirtualThread() throws Exception {
+        assumeTrue(VIRTUAL_THREADS);
+        ExecutorService executor = VirtualThreadsAutoConfiguration.newVirtualThreadPerTaskExecutor("test-");
+        AtomicReference<Thread> thread = new AtomicReference<>();
+
+        executor.submit(() -> thread.set(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(thread.get().getName()).isEqualTo("test-0");
+        assertThat(Thread.class.getMethod("isVirtual").invoke(thread.get())).isEqualTo(true);
+    }
+
+    @Test
+    void failsFastBeforeJava21() {
+        assumeTrue(!VIRTUAL_THREADS);
+        assertThatThrownBy(() -> VirtualThreadsAutoConfiguration.newVirtualThreadPerTaskExecutor("test-"))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("requires Java 21");
+        runner.withPropertyValues("spring.profiles.active=virtual-threads")
+            .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Test
+    void shutsDownTheExecutorsWithTheContext() {
+        // lazy, so that the definitions can be checked on any JVM
+        runner.withPropertyValues("spring.profiles.active=virtual-threads")
+            .withBean(LazyInitializationBeanFactoryPostProcessor.class)
+            .run(context -> {
+                assertThat(context.getBeanFactory().getBeanDefinition("tomcatVirtualThreadExecutor").getDestroyMethodName())
+                    .isEqualTo("shutdown");
+                assertThat(context.getBeanFactory().getBeanDefinition("taskVirtualThreadExecutor").getDestroyMethodName())
+                    .isEqualTo("shutdown");
+            });
+
+        assumeTrue(VIRTUAL_THREADS);
+        AtomicReference<ExecutorService> tomcat = new AtomicReference<>();
+        AtomicReference<ExecutorService> task = new AtomicReference<>();
+        runner.withPropertyValues("spring.profiles.active=virtual-threads")
+            .run(context -> {
+                tomcat.set(context.getBean("tomcatVirtualThreadExecutor", ExecutorService.class));
+                task.set(context.getBean("taskVirtualThreadExecutor", ExecutorService.class));
+                assertThat(context).getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                    .isNotInstanceOf(ThreadPoolTaskExecutor.class);
+            });
+        assertThat(tomcat.get().isShutdown()).isTrue();
+        assertThat(task.get().isShutdown()).isTrue();
+    }
+
+    @Test
+    void backsOffWithoutTheProfile() {
+        runner.run(context -> assertThat(context).doesNotHaveBean("tomcatVirtualThreadExecutor")
+            .getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+            .isInstanceOf(ThreadPoolTaskExecutor.class));
+    }
+}
@@ -0,0 +1,114 @@
+package org.springframework.samples.petclinic.support.timing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ServerTimingFilterTest {
+
+    private static final String TIMING = "db;dur=\\d+\\.\\d\\d, ser;dur=\\d+\\.\\d\\d, app;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.standaloneSetup(new PetController())
+            .setControllerAdvice(new ServerTimingAdvice())
+            .addFilters(new ServerTimingFilter(registry, "test-service"))
+            .build();
+    }
+
+    @Test
+    void shouldAddHeaderAndKeepBody() throws Exception {
+        mvc.perform(get("/pet"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Leo"))
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)));
+
+        assertThat(totalCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAddHeaderBeforeAStreamedResponseIsFlushed() throws Exception {
+        mvc.perform(get("/pet/stream"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)))
+            .andExpect(content().string("Leo\nRosy\n"));
+
+        assertThat(totalCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTimeAsyncRequestAcrossDispatches() throws Exception {
+        MvcResult started = mvc.perform(get("/pet/async"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().doesNotExist("Server-Timing"))
+            .andReturn();
+        assertThat(totalCount()).isZero();
+
+        MvcResult result = mvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("Leo"))
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)))
+            .andReturn();
+
+        assertThat(totalCount()).isEqualTo(1);
+        double total = Double.parseDouble(result.getResponse().getHeader("Server-Timing").replaceAll(".*total;dur=([\\d.]+)$", "$1"));
+        assertThat(total).isGreaterThanOrEqualTo(50);
+    }
+
+    private long totalCount() {
+        return registry.get("petclinic.server.timing").tag("hop", "test-service").tag("phase", "total").timer().count();
+    }
+
+    @RestController
+    static class PetController {
+
+        @GetMapping("/pet")
+        Map<String, String> pet() {
+            return Map.of("name", "Leo");
+        }
+
+        @GetMapping("/pet/stream")
+        void streamPets(HttpServletResponse response) throws IOException {
+            ServletOutputStream body = response.getOutputStream();
+            body.write("Leo\n".getBytes(StandardCharsets.UTF_8));
+            body.flush();
+            // the first names already left, not held back until the response is complete
+            assertThat(response.isCommitted()).isTrue();
+            assertThat(response.getHeader("Server-Timing")).matches(TIMING);
+            body.write("Rosy\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        @GetMapping("/pet/async")
+        CompletableFuture<Map<String, String>> asyncPet() {
+            return CompletableFuture.supplyAsync(this::pet, CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS));
+        }
+    }
+}
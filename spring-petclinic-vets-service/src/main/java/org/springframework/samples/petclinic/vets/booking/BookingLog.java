@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.booking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only file of bookings. Every record is 16 bytes: vet id, epoch day, slot and a CRC32 of the first three.
+ * Writers reserve their record position with an atomic increment and write to it with a positional write, so
+ * appends from different threads never wait for each other. Records that a crash left unwritten or torn fail the
+ * checksum and are skipped on replay.
+ * <p>
+ * After a failed fsync it is unknown which of the records written since the last successful one survive a crash, and
+ * retrying may report success while the kernel has already dropped them. The log therefore refuses every further
+ * append until the service restarts and replays it.
+ */
+@Slf4j
+class BookingLog implements Closeable {
+
+    static final int RECORD_SIZE = 16;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final boolean fsync;
+
+    private final AtomicLong nextPosition;
+
+    private volatile IOException syncFailure;
+
+    BookingLog(Path file, boolean fsync) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        this.fsync = fsync;
+        // a torn record at the end is left in place and new records start at the next record boundary
+        long size = channel.size();
+        this.nextPosition = new AtomicLong((size + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE);
+    }
+
+    /**
+     * Feeds every intact record to <code>consumer</code>, in file order.
+     */
+    void replay(RecordConsumer consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 4096);
+        long position = 0;
+        int skipped = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                int vetId = buffer.getInt();
+                int epochDay = buffer.getInt();
+                int slot = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (checksum == checksum(vetId, epochDay, slot)) {
+                    consumer.accept(vetId, epochDay, slot);
+                } else {
+                    skipped++;
+                }
+            }
+            // keeps a partial record for the next read; a torn record at the end of the file is ignored
+            buffer.compact();
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} corrupt or incomplete booking records", skipped);
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * Writes a booking, and forces it to disk unless fsync is off.
+     *
+     * @throws SyncFailedException if the record was written but could not be forced to disk, in which case it may
+     *                             still be replayed
+     * @throws IOException         if the record was not written, or only partly and fails its checksum on replay
+     */
+    void append(int vetId, int epochDay, int slot) throws IOException {
+        IOException failure = syncFailure;
+        if (failure != null) {
+            throw new IOException("The booking log could not be synced earlier, restart to replay it", failure);
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE)
+            .putInt(vetId)
+            .putInt(epochDay)
+            .putInt(slot)
+            .putInt(checksum(vetId, epochDay, slot))
+            .flip();
+        long position = nextPosition.getAndAdd(RECORD_SIZE);
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (fsync) {
+            try {
+                force();
+            } catch (IOException ex) {
+                syncFailure = ex;
+                SyncFailedException syncFailed = new SyncFailedException("Could not force booking to disk");
+                syncFailed.initCause(ex);
+                throw syncFailed;
+            }
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int checksum(int vetId, int epochDay, int slot) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(12).putInt(vetId).putInt(epochDay).putInt(slot).flip());
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(int vetId, int epochDay, int slot);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.booking;
+
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.samples.petclinic.vets.system.VetsProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Booked appointment slots, one 64-bit bitmap per vet and day. A booking sets its bit with a compare-and-set, so
+ * concurrent attempts on the same slot never block each other and exactly one of them wins. The winner appends the
+ * booking to the {@link BookingLog} before it is acknowledged, and the log is replayed when the book is created.
+ * <p>
+ * The bitmaps and the log belong to one JVM and its disk, so a slot is only booked once by a single instance of the
+ * vets-service: replicas would each accept their own booking of it. The slots endpoint therefore refuses bookings
+ * while more than one instance is registered.
+ */
+@Component
+@Slf4j
+public class SlotBook implements DisposableBean {
+
+    public static final int MAX_SLOTS_PER_DAY = Long.SIZE;
+
+    private final Map<Long, AtomicLong> days = new ConcurrentHashMap<>();
+
+    private final BookingLog bookingLog;
+
+    @Autowired
+    public SlotBook(VetsProperties properties) throws IOException {
+        this(openLog(properties.getSlots()));
+    }
+
+    SlotBook(BookingLog bookingLog) throws IOException {
+        this.bookingLog = bookingLog;
+        long start = System.nanoTime();
+        int[] bookings = new int[1];
+        bookingLog.replay((vetId, epochDay, slot) -> {
+            day(vetId, epochDay).getAndUpdate(booked -> booked | mask(slot));
+            bookings[0]++;
+        });
+        log.info("Replayed {} bookings from {} in {} ms", bookings[0], bookingLog.file(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Bitmap of the booked slots of a vet on a day, bit <code>i</code> standing for slot <code>i</code>.
+     */
+    public long booked(int vetId, LocalDate date) {
+        AtomicLong day = days.get(key(vetId, Math.toIntExact(date.toEpochDay())));
+        return day != null ? day.get() : 0L;
+    }
+
+    /**
+     * Books a slot, durably.
+     *
+     * @return <code>false</code> if the slot was already booked
+     */
+    public boolean book(int vetId, LocalDate date, int slot) {
+        int epochDay = Math.toIntExact(date.toEpochDay());
+        long mask = mask(slot);
+        AtomicLong day = day(vetId, epochDay);
+        long booked;
+        do {
+            booked = day.get();
+            if ((booked & mask) != 0) {
+                return false;
+            }
+        } while (!day.compareAndSet(booked, booked | mask));
+        try {
+            bookingLog.append(vetId, epochDay, slot);
+        } catch (SyncFailedException ex) {
+            // the record is in the log and may come back on replay, so the slot stays taken rather than booked twice
+            throw new UncheckedIOException("Could not record booking", ex);
+        } catch (IOException ex) {
+            // nothing valid was logged and nobody else can hold this bit, so it can be cleared without a race
+            day.getAndUpdate(current -> current & ~mask);
+            throw new UncheckedIOException("Could not record booking", ex);
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        bookingLog.close();
+    }
+
+    private static BookingLog openLog(VetsProperties.Slots slots) throws IOException {
+        Assert.isTrue(slots.getPerDay() > 0 && slots.getPerDay() <= MAX_SLOTS_PER_DAY,
+            "vets.slots.per-day must be between 1 and " + MAX_SLOTS_PER_DAY);
+        return new BookingLog(slots.getLog(), slots.isFsync());
+    }
+
+    private AtomicLong day(int vetId, int epochDay) {
+        return days.computeIfAbsent(key(vetId, epochDay), key -> new AtomicLong());
+    }
+
+    private static long key(int vetId, int epochDay) {
+        return (long) vetId << 32 | epochDay & 0xffffffffL;
+    }
+
+    private static long mask(int slot) {
+        Assert.isTrue(slot >= 0 && slot < MAX_SLOTS_PER_DAY, "slot must be between 0 and 63");
+        return 1L << slot;
+    }
+}
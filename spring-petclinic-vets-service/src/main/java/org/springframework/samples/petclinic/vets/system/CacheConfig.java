@@ -15,16 +15,71 @@
  */
 package org.springframework.samples.petclinic.vets.system;
 
+import java.time.Duration;
+import java.util.List;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.vets.model.VetRepository;
 
 /**
+ * Caffeine caches bounded and timed by {@link VetsProperties.Cache}. The <code>vets</code> cache reloads its entry
+ * in the background once the ttl has passed, so a request never waits for the database because of an expiry, and it
+ * is filled before the application reports ready. Hit and miss statistics are recorded for the actuator
+ * <code>caches</code> endpoint and the <code>cache.*</code> metrics.
+ * <p>
  * Cache could be disable in unit test.
  * @author Maciej Szarlinski
  */
 @Configuration
 @EnableCaching
 @Profile("production")
+@RequiredArgsConstructor
+@Slf4j
 class CacheConfig {
+
+    static final String VETS = "vets";
+
+    private final VetsProperties properties;
+
+    private final VetRepository vetRepository;
+
+    @Bean
+    CacheManager cacheManager() {
+        VetsProperties.Cache cache = properties.getCache();
+        Duration ttl = Duration.ofSeconds(cache.getTtl());
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+            .maximumSize(cache.getHeapSize())
+            .expireAfterWrite(ttl)
+            .recordStats());
+        // @Cacheable on a method without parameters caches its result under SimpleKey.EMPTY, the only key loaded here
+        cacheManager.registerCustomCache(VETS, Caffeine.newBuilder()
+            .maximumSize(cache.getHeapSize())
+            .refreshAfterWrite(ttl)
+            .expireAfterWrite(ttl.plusSeconds(cache.getMaxStale()))
+            .recordStats()
+            .build(key -> vetRepository.findAll()));
+        return cacheManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void warmUp(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        List<?> vets = event.getApplicationContext().getBean(CacheManager.class)
+            .getCache(VETS)
+            .get(SimpleKey.EMPTY, vetRepository::findAll);
+        log.info("Warmed up the {} cache with {} vets in {} ms", VETS, vets.size(),
+            (System.nanoTime() - start) / 1_000_000);
+    }
 }
@@ -15,6 +15,10 @@
  */
 package org.springframework.samples.petclinic.vets.system;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+
 import lombok.Data;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -28,13 +32,63 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "vets")
 public class VetsProperties {
 
-    private Cache cache;
+    private Cache cache = new Cache();
+
+    private Slots slots = new Slots();
 
     @Data
     public static class Cache {
 
-        private int ttl;
+        /**
+         * Seconds after which a cached value is reloaded in the background. The stale value keeps being served
+         * until the reload completes.
+         */
+        private int ttl = 60;
+
+        /**
+         * Seconds a value may be served beyond its ttl when no request triggered a reload in time. After that the
+         * entry expires and the next request loads it synchronously.
+         */
+        private int maxStale = 600;
+
+        /**
+         * Maximum number of entries per cache.
+         */
+        private int heapSize = 101;
+    }
+
+    @Data
+    public static class Slots {
+
+        /**
+         * Append-only log of bookings, replayed at startup. The default in the temp dir only suits development: put
+         * it on a persistent volume in production.
+         */
+        private Path log = Path.of(System.getProperty("java.io.tmpdir"), "petclinic-vet-bookings.log");
+
+        /**
+         * Whether every booking is forced to disk before it is acknowledged.
+         */
+        private boolean fsync = true;
+
+        /**
+         * Start of the first slot of a day.
+         */
+        private LocalTime opening = LocalTime.of(8, 0);
+
+        /**
+         * Length of a slot.
+         */
+        private Duration length = Duration.ofMinutes(30);
+
+        /**
+         * Number of slots per vet and day, at most 64.
+         */
+        private int perDay = 16;
 
-        private int heapSize;
+        /**
+         * Number of days ahead, today included, that can be booked.
+         */
+        private int horizon = 90;
     }
 }
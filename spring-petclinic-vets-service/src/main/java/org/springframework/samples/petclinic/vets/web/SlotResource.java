@@ -0,0 +1,162 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.web;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.core.env.Environment;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.vets.booking.SlotBook;
+import org.springframework.samples.petclinic.vets.system.VetsProperties;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Appointment slots of a vet, booked in the {@link SlotBook}. A slot is identified by its start, for example
+ * <code>2023-05-02T09:30</code>; a day has <code>vets.slots.per-day</code> slots of
+ * <code>vets.slots.length</code> from <code>vets.slots.opening</code>.
+ * <p>
+ * Bookings are refused while the discovery client knows more than one instance of this service, as the
+ * {@link SlotBook} of each would accept the same slot.
+ */
+@RequestMapping("/vets/{vetId}/slots")
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+class SlotResource {
+
+    private final SlotBook slotBook;
+
+    private final VetCatalog vetCatalog;
+
+    private final VetsProperties properties;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final Environment environment;
+
+    @GetMapping
+    public DaySlots showSlots(
+        @PathVariable("vetId") int vetId,
+        @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        checkVet(vetId);
+        long booked = slotBook.booked(vetId, date);
+        VetsProperties.Slots slots = properties.getSlots();
+        List<Slot> items = new ArrayList<>(slots.getPerDay());
+        for (int slot = 0; slot < slots.getPerDay(); slot++) {
+            items.add(new Slot(start(date, slot), (booked & 1L << slot) == 0));
+        }
+        return new DaySlots(vetId, date, items);
+    }
+
+    @PostMapping("{slot}/book")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Booking book(
+        @PathVariable("vetId") int vetId,
+        @PathVariable("slot") String slot) {
+
+        checkVet(vetId);
+        checkSingleInstance();
+        LocalDateTime start = parse(slot);
+        LocalDate date = start.toLocalDate();
+        LocalDateTime now = LocalDateTime.now();
+        if (start.isBefore(now) || !date.isBefore(now.toLocalDate().plusDays(properties.getSlots().getHorizon()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Slots can be booked from now up to " + properties.getSlots().getHorizon() + " days ahead");
+        }
+        if (!slotBook.book(vetId, date, slotOf(start))) {
+            throw new SlotAlreadyBookedException(vetId, start);
+        }
+        return new Booking(vetId, start);
+    }
+
+    private void checkVet(int vetId) {
+        if (vetCatalog.findAll().stream().noneMatch(vet -> Objects.equals(vet.getId(), vetId))) {
+            throw new ResourceNotFoundException("Vet " + vetId + " not found");
+        }
+    }
+
+    private void checkSingleInstance() {
+        String applicationName = environment.getRequiredProperty("spring.application.name");
+        int instances = discoveryClient.getInstances(applicationName).size();
+        if (instances > 1) {
+            log.error("Refusing bookings: {} instances of {} are registered, each would book the same slots",
+                instances, applicationName);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Slots can only be booked with a single instance of " + applicationName);
+        }
+    }
+
+    private static LocalDateTime parse(String slot) {
+        try {
+            return LocalDateTime.parse(slot);
+        } catch (DateTimeParseException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, slot + " is not a slot start like 2023-05-02T09:30");
+        }
+    }
+
+    private LocalDateTime start(LocalDate date, int slot) {
+        VetsProperties.Slots slots = properties.getSlots();
+        return date.atTime(slots.getOpening()).plus(slots.getLength().multipliedBy(slot));
+    }
+
+    private int slotOf(LocalDateTime start) {
+        VetsProperties.Slots slots = properties.getSlots();
+        long offset = slots.getOpening().until(start.toLocalTime(), ChronoUnit.NANOS);
+        long length = slots.getLength().toNanos();
+        if (offset < 0 || offset % length != 0 || offset / length >= slots.getPerDay()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, start + " is not the start of a slot");
+        }
+        return (int) (offset / length);
+    }
+
+    @Value
+    static class DaySlots {
+        int vetId;
+        LocalDate date;
+        List<Slot> slots;
+    }
+
+    @Value
+    static class Slot {
+        LocalDateTime start;
+        boolean available;
+    }
+
+    @Value
+    static class Booking {
+        int vetId;
+        LocalDateTime slot;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.samples.petclinic.vets.model.Specialty;
+import org.springframework.samples.petclinic.vets.model.Vet;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vets grouped by specialty, built from the cached vets list. Like {@link VetsSnapshot}, the index is rebuilt only
+ * when the <code>vets</code> cache hands out a new list, so lookups never touch the database on their own.
+ */
+@Component
+@RequiredArgsConstructor
+class SpecialtyIndex {
+
+    private final VetCatalog vetCatalog;
+
+    private final AtomicReference<Index> index = new AtomicReference<>();
+
+    /**
+     * Vets having the specialty of the given name, ignoring case.
+     */
+    public List<Vet> findVets(String specialty) {
+        return index().vetsBySpecialty().getOrDefault(specialty.toLowerCase(Locale.ROOT), List.of());
+    }
+
+    /**
+     * Specialties held by at least one vet, ordered by name, with the number of such vets.
+     */
+    public List<SpecialtyCount> counts() {
+        return index().counts();
+    }
+
+    private Index index() {
+        List<Vet> vets = vetCatalog.findAll();
+        return index.updateAndGet(current -> current != null && current.source() == vets ? current : Index.of(vets));
+    }
+
+    private record Index(List<Vet> source, Map<String, List<Vet>> vetsBySpecialty, List<SpecialtyCount> counts) {
+
+        static Index of(List<Vet> vets) {
+            Map<String, List<Vet>> vetsBySpecialty = new HashMap<>();
+            Map<String, Specialty> specialties = new TreeMap<>();
+            for (Vet vet : vets) {
+                for (Specialty specialty : vet.getSpecialties()) {
+                    String key = specialty.getName().toLowerCase(Locale.ROOT);
+                    vetsBySpecialty.computeIfAbsent(key, name -> new ArrayList<>()).add(vet);
+                    specialties.putIfAbsent(key, specialty);
+                }
+            }
+            vetsBySpecialty.replaceAll((name, specialtyVets) -> List.copyOf(specialtyVets));
+            List<SpecialtyCount> counts = specialties.entrySet().stream()
+                .map(entry -> new SpecialtyCount(entry.getValue().getId(), entry.getValue().getName(),
+                    vetsBySpecialty.get(entry.getKey()).size()))
+                .toList();
+            return new Index(vets, Map.copyOf(vetsBySpecialty), counts);
+        }
+    }
+
+    public record SpecialtyCount(Integer id, String name, int vets) {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.web;
+
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.samples.petclinic.vets.model.Vet;
+import org.springframework.samples.petclinic.vets.model.VetRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * All vets, read through the <code>vets</code> cache. The cache hands out the same list instance until it is
+ * reloaded, which lets callers detect a change by identity.
+ */
+@Component
+@RequiredArgsConstructor
+class VetCatalog {
+
+    private final VetRepository vetRepository;
+
+    @Cacheable("vets")
+    public List<Vet> findAll() {
+        return vetRepository.findAll();
+    }
+}
@@ -18,15 +18,26 @@ package org.springframework.samples.petclinic.vets.web;
 import lombok.RequiredArgsConstructor;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.springframework.cache.annotation.Cacheable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.vets.model.Vet;
-import org.springframework.samples.petclinic.vets.model.VetRepository;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
+ * Serves the vets list from a pre-encoded {@link VetsSnapshot}, gzipped when the client accepts it. The snapshot is
+ * re-encoded only when the <code>vets</code> cache hands out a new list, and its ETag lets clients revalidate
+ * with a bodiless 304. With a <code>specialty</code> parameter only the vets having that specialty are returned,
+ * looked up in the {@link SpecialtyIndex}.
+ *
  * @author Juergen Hoeller
  * @author Mark Fisher
  * @author Ken Krebs
@@ -38,11 +49,39 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 class VetResource {
 
-    private final VetRepository vetRepository;
+    private final VetCatalog vetCatalog;
+
+    private final SpecialtyIndex specialtyIndex;
+
+    private final ObjectMapper objectMapper;
+
+    private final AtomicReference<VetsSnapshot> snapshot = new AtomicReference<>();
 
     @GetMapping
-    @Cacheable("vets")
-    public List<Vet> showResourcesVetList() {
-        return vetRepository.findAll();
+    public ResponseEntity<byte[]> showResourcesVetList(
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        VetsSnapshot vets = snapshot();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        // a matching If-None-Match is answered with 304 by Spring MVC once the ETag is set
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.eTag(vets.gzipEtag()).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(vets.gzip());
+        }
+        return response.eTag(vets.etag()).body(vets.json());
+    }
+
+    @GetMapping(params = "specialty")
+    public List<Vet> showVetsWithSpecialty(@RequestParam("specialty") String specialty) {
+        return specialtyIndex.findVets(specialty);
+    }
+
+    private VetsSnapshot snapshot() {
+        List<Vet> vets = vetCatalog.findAll();
+        return snapshot.updateAndGet(current -> current == null
+            ? VetsSnapshot.of(vets, objectMapper)
+            : current.update(vets, objectMapper));
     }
 }
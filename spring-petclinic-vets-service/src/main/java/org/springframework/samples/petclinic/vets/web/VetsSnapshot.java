@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vets.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.samples.petclinic.vets.model.Vet;
+import org.springframework.util.DigestUtils;
+
+/**
+ * The vets list encoded once as JSON and as gzipped JSON, with the ETag of its content. Serving a snapshot only
+ * copies bytes to the response.
+ */
+final class VetsSnapshot {
+
+    private final List<Vet> source;
+
+    private final byte[] json;
+
+    private final byte[] gzip;
+
+    private final String etag;
+
+    private VetsSnapshot(List<Vet> source, byte[] json, byte[] gzip, String etag) {
+        this.source = source;
+        this.json = json;
+        this.gzip = gzip;
+        this.etag = etag;
+    }
+
+    static VetsSnapshot of(List<Vet> vets, ObjectMapper objectMapper) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(vets);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            return new VetsSnapshot(vets, json, gzip.toByteArray(), "\"0" + DigestUtils.md5DigestAsHex(json) + '"');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The snapshot for <code>vets</code>, which is this one as long as the cache returns the list it was built from.
+     */
+    VetsSnapshot update(List<Vet> vets, ObjectMapper objectMapper) {
+        return vets == source ? this : of(vets, objectMapper);
+    }
+
+    byte[] json() {
+        return json;
+    }
+
+    byte[] gzip() {
+        return gzip;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    String gzipEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+}
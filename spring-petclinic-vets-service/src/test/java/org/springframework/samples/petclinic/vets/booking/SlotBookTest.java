@@ -0,0 +1,137 @@
+package org.springframework.samples.petclinic.vets.booking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.samples.petclinic.vets.system.VetsProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlotBookTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 5, 2);
+
+    private static final int DAYS = 4;
+
+    private static final int SLOTS = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldBookEverySlotExactlyOnceUnderContention() throws Exception {
+        AtomicIntegerArray wins = new AtomicIntegerArray(DAYS * SLOTS);
+        int threads = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(properties(false)))) {
+            List<Future<?>> attempts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        int day = ThreadLocalRandom.current().nextInt(DAYS);
+                        int slot = ThreadLocalRandom.current().nextInt(SLOTS);
+                        if (book.slotBook().book(1, DAY.plusDays(day), slot)) {
+                            wins.incrementAndGet(day * SLOTS + slot);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> attempt : attempts) {
+                attempt.get();
+            }
+            for (int day = 0; day < DAYS; day++) {
+                assertThat(book.slotBook().booked(1, DAY.plusDays(day))).isEqualTo(0xffffL);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < wins.length(); i++) {
+            assertThat(wins.get(i)).as("bookings of slot %d", i).isEqualTo(1);
+        }
+        assertThat(Files.size(log())).isEqualTo((long) DAYS * SLOTS * BookingLog.RECORD_SIZE);
+    }
+
+    @Test
+    void shouldReplayLogAndSkipTornRecords() throws Exception {
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(properties(true)))) {
+            assertThat(book.slotBook().book(1, DAY, 0)).isTrue();
+            assertThat(book.slotBook().book(2, DAY, 3)).isTrue();
+        }
+        // a crash in the middle of an append
+        Files.write(log(), ByteBuffer.allocate(7).putInt(1).array(), StandardOpenOption.APPEND);
+
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(properties(true)))) {
+            assertThat(book.slotBook().booked(1, DAY)).isEqualTo(0b1L);
+            assertThat(book.slotBook().booked(2, DAY)).isEqualTo(0b1000L);
+            assertThat(book.slotBook().book(1, DAY, 0)).isFalse();
+            assertThat(book.slotBook().book(1, DAY, 1)).isTrue();
+        }
+
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(properties(true)))) {
+            assertThat(book.slotBook().booked(1, DAY)).isEqualTo(0b11L);
+        }
+    }
+
+    @Test
+    void shouldKeepSlotTakenAndStopBookingWhenFsyncFails() throws Exception {
+        BookingLog failingLog = new BookingLog(log(), true) {
+            @Override
+            void force() throws IOException {
+                throw new IOException("Input/output error");
+            }
+        };
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(failingLog))) {
+            assertThatThrownBy(() -> book.slotBook().book(1, DAY, 0)).isInstanceOf(UncheckedIOException.class);
+            assertThat(book.slotBook().book(1, DAY, 0)).isFalse();
+
+            assertThatThrownBy(() -> book.slotBook().book(1, DAY, 1)).isInstanceOf(UncheckedIOException.class);
+            assertThat(book.slotBook().booked(1, DAY)).isEqualTo(0b1L);
+        }
+
+        try (SlotBookCloser book = new SlotBookCloser(new SlotBook(properties(true)))) {
+            assertThat(book.slotBook().booked(1, DAY)).isEqualTo(0b1L);
+            assertThat(book.slotBook().book(1, DAY, 0)).isFalse();
+        }
+    }
+
+    private VetsProperties properties(boolean fsync) {
+        VetsProperties properties = new VetsProperties();
+        properties.getSlots().setLog(log());
+        properties.getSlots().setFsync(fsync);
+        properties.getSlots().setPerDay(SLOTS);
+        return properties;
+    }
+
+    private Path log() {
+        return directory.resolve("bookings.log");
+    }
+
+    private record SlotBookCloser(SlotBook slotBook) implements AutoCloseable {
+
+        @Override
+        public void close() throws Exception {
+            slotBook.destroy();
+        }
+    }
+}
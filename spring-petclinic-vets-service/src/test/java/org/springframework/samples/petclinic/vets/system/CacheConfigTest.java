@@ -0,0 +1,49 @@
+package org.springframework.samples.petclinic.vets.system;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.samples.petclinic.vets.model.VetRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"test", "production"})
+class CacheConfigTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @SpyBean
+    VetRepository vetRepository;
+
+    @Test
+    void shouldServeVetsFromTheWarmedUpCache() throws Exception {
+        mvc.perform(get("/vets"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(6));
+        mvc.perform(get("/vets"))
+            .andExpect(status().isOk());
+
+        verify(vetRepository, times(1)).findAll();
+        CacheStats stats = ((CaffeineCache) cacheManager.getCache(CacheConfig.VETS)).getNativeCache().stats();
+        assertThat(stats.hitCount()).isEqualTo(2);
+        assertThat(stats.missCount()).isEqualTo(1);
+    }
+}
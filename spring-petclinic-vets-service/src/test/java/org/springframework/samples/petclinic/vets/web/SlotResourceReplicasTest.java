@@ -0,0 +1,50 @@
+package org.springframework.samples.petclinic.vets.web;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.cloud.discovery.client.simple.instances.vets-service[0].uri=http://vets-1:8083",
+    "spring.cloud.discovery.client.simple.instances.vets-service[1].uri=http://vets-2:8083"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext
+class SlotResourceReplicasTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    MockMvc mvc;
+
+    @DynamicPropertySource
+    static void bookingLog(DynamicPropertyRegistry registry) {
+        registry.add("vets.slots.log", () -> directory.resolve("bookings.log").toString());
+    }
+
+    @Test
+    void shouldRefuseBookingsWhileSeveralInstancesAreRegistered() throws Exception {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        mvc.perform(post("/vets/2/slots/{slot}/book", tomorrow + "T09:30"))
+            .andExpect(status().isServiceUnavailable());
+        mvc.perform(get("/vets/2/slots").param("date", tomorrow.toString()))
+            .andExpect(status().isOk());
+    }
+}
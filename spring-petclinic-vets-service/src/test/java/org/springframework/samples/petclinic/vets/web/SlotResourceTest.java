@@ -0,0 +1,79 @@
+package org.springframework.samples.petclinic.vets.web;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext
+class SlotResourceTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    MockMvc mvc;
+
+    @DynamicPropertySource
+    static void bookingLog(DynamicPropertyRegistry registry) {
+        registry.add("vets.slots.log", () -> directory.resolve("bookings.log").toString());
+    }
+
+    @Test
+    void shouldBookSlotOnce() throws Exception {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        mvc.perform(post("/vets/2/slots/{slot}/book", tomorrow + "T09:30"))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.vetId").value(2));
+        mvc.perform(post("/vets/2/slots/{slot}/book", tomorrow + "T09:30"))
+            .andExpect(status().isConflict());
+
+        mvc.perform(get("/vets/2/slots").param("date", tomorrow.toString()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.slots.length()").value(16))
+            .andExpect(jsonPath("$.slots[0].available").value(true))
+            .andExpect(jsonPath("$.slots[3].start").value(tomorrow + "T09:30:00"))
+            .andExpect(jsonPath("$.slots[3].available").value(false));
+    }
+
+    @Test
+    void shouldRejectInvalidSlots() throws Exception {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+        mvc.perform(post("/vets/2/slots/{slot}/book", tomorrow + "T09:10"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(post("/vets/2/slots/{slot}/book", LocalDate.now().minusDays(1) + "T09:00"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(post("/vets/99/slots/{slot}/book", tomorrow + "T09:00"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldRejectSlotsThatHavePassedToday() throws Exception {
+        LocalDateTime opening = LocalDate.now().atTime(8, 0);
+        assumeTrue(LocalDateTime.now().isAfter(opening), "no slot has passed yet today");
+
+        mvc.perform(post("/vets/2/slots/{slot}/book", opening))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,45 @@
+package org.springframework.samples.petclinic.vets.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SpecialtyResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    void shouldCountVetsPerSpecialty() throws Exception {
+        mvc.perform(get("/specialties"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].name").value("dentistry"))
+            .andExpect(jsonPath("$[0].vets").value(1))
+            .andExpect(jsonPath("$[1].name").value("radiology"))
+            .andExpect(jsonPath("$[1].vets").value(2))
+            .andExpect(jsonPath("$[2].name").value("surgery"))
+            .andExpect(jsonPath("$[2].vets").value(2));
+    }
+
+    @Test
+    void shouldFindVetsBySpecialty() throws Exception {
+        mvc.perform(get("/vets").param("specialty", "Radiology"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].lastName", containsInAnyOrder("Leary", "Stevens")));
+
+        mvc.perform(get("/vets").param("specialty", "cardiology"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0));
+    }
+}
@@ -17,13 +17,18 @@ package org.springframework.samples.petclinic.visits;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * @author Maciej Szarlinski
  */
 @EnableDiscoveryClient
 @SpringBootApplication
+@EnableConfigurationProperties(VisitsProperties.class)
+@EnableScheduling
 public class VisitsServiceApplication {
 
     public static void main(String[] args) {
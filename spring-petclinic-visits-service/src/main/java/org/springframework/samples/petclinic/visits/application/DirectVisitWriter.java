@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Default writer: one transaction per visit, committed on the request thread.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "visits.group-commit", name = "enabled", havingValue = "false", matchIfMissing = true)
+class DirectVisitWriter implements VisitWriter {
+
+    private final VisitRepository visitRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public CompletableFuture<Visit> write(Visit visit) {
+        Visit saved = transactionTemplate.execute(status -> {
+            Visit result = visitRepository.save(visit);
+            eventPublisher.publishEvent(new VisitsCreatedEvent(List.of(result)));
+            return result;
+        });
+        return CompletableFuture.completedFuture(saved);
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Queues incoming visits and lets a single writer thread commit them in groups: a batch is flushed as soon as it
+ * reaches {@code maxBatchSize} or when {@code maxDelay} has elapsed since its first visit was taken off the queue.
+ * When the queue is full, new visits are rejected with {@link VisitQueueFullException} rather than blocking
+ * request threads. When a batch fails, its visits are retried one at a time, so that only the requests whose visits
+ * cannot be saved fail.
+ */
+@Component
+@Profile("!reactive")
+@Slf4j
+@ConditionalOnProperty(prefix = "visits.group-commit", name = "enabled", havingValue = "true")
+class GroupCommitVisitWriter implements VisitWriter, SmartLifecycle {
+
+    private final VisitRepository visitRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BlockingQueue<PendingVisit> queue;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final DistributionSummary batchSize;
+
+    private final Timer queueWait;
+
+    private volatile boolean running;
+
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private Thread writerThread;
+
+    GroupCommitVisitWriter(VisitRepository visitRepository, TransactionTemplate transactionTemplate,
+                           ApplicationEventPublisher eventPublisher, VisitsProperties properties,
+                           MeterRegistry registry) {
+        this(visitRepository, transactionTemplate, eventPublisher, properties, registry,
+            new ArrayBlockingQueue<>(properties.getGroupCommit().getQueueCapacity()));
+    }
+
+    GroupCommitVisitWriter(VisitRepository visitRepository, TransactionTemplate transactionTemplate,
+                           ApplicationEventPublisher eventPublisher, VisitsProperties properties,
+                           MeterRegistry registry, BlockingQueue<PendingVisit> queue) {
+        VisitsProperties.GroupCommit groupCommit = properties.getGroupCommit();
+        this.visitRepository = visitRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = queue;
+        this.maxBatchSize = groupCommit.getMaxBatchSize();
+        this.maxDelayNanos = groupCommit.getMaxDelay().toNanos();
+        this.batchSize = DistributionSummary.builder("petclinic.visit.batch.size")
+            .description("Number of visits committed together by the group-commit writer")
+            .publishPercentileHistogram()
+            .register(registry);
+        this.queueWait = Timer.builder("petclinic.visit.queue.wait")
+            .description("Time a visit waited in the group-commit queue before its batch was written")
+            .publishPercentileHistogram()
+            .register(registry);
+        Gauge.builder("petclinic.visit.queue.size", queue, BlockingQueue::size)
+            .description("Visits waiting to be committed")
+            .register(registry);
+    }
+
+    @Override
+    public CompletableFuture<Visit> write(Visit visit) {
+        PendingVisit pending = new PendingVisit(visit, System.nanoTime(), new CompletableFuture<>());
+        // stop() cannot close the queue between the check and the offer, so the writer thread sees every visit offered
+        closeLock.readLock().lock();
+        try {
+            if (!running || !queue.offer(pending)) {
+                throw new VisitQueueFullException("Visit queue is full or closed, retry later");
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return pending.result();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drain, "visits-group-commit");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        if (writerThread == null) {
+            return;
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Start before and stop after the web server, so that visits accepted during a graceful shutdown still get
+     * committed.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void drain() {
+        List<PendingVisit> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        // only left when interrupted, nobody else would complete these
+        queue.drainTo(batch);
+        batch.forEach(pending -> pending.result()
+            .completeExceptionally(new VisitQueueFullException("Visit queue was closed before the visit was saved")));
+    }
+
+    private void collect(List<PendingVisit> batch) throws InterruptedException {
+        PendingVisit first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            PendingVisit next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commit(List<PendingVisit> batch) {
+        long startedAt = System.nanoTime();
+        List<Visit> visits = new ArrayList<>(batch.size());
+        List<Integer> ids = new ArrayList<>(batch.size());
+        for (PendingVisit pending : batch) {
+            queueWait.record(startedAt - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+            visits.add(pending.visit());
+            ids.add(pending.visit().getId());
+        }
+        batchSize.record(batch.size());
+        try {
+            List<Visit> saved = save(visits);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.warn("Failed to commit a visit", e);
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Failed to commit a batch of {} visits, retrying them one at a time", batch.size(), e);
+            for (int i = 0; i < batch.size(); i++) {
+                commitAlone(batch.get(i), ids.get(i));
+            }
+        }
+    }
+
+    /**
+     * Commits a visit of a failed batch on its own, so that only the request that caused the failure gets it. The id
+     * assigned during the rolled back batch is reset first.
+     */
+    private void commitAlone(PendingVisit pending, Integer id) {
+        pending.visit().setId(id);
+        try {
+            pending.result().complete(save(List.of(pending.visit())).get(0));
+        } catch (RuntimeException e) {
+            log.warn("Failed to commit a visit", e);
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    private List<Visit> save(List<Visit> visits) {
+        return transactionTemplate.execute(status -> {
+            List<Visit> result = visitRepository.saveAll(visits);
+            eventPublisher.publishEvent(new VisitsCreatedEvent(result));
+            return result;
+        });
+    }
+
+    record PendingVisit(Visit visit, long enqueuedAt, CompletableFuture<Visit> result) {
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.Collection;
+import java.util.List;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.ReactiveVisitRepository;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of {@link VisitReader}: the same id normalization, chunking and archive merge, with chunks
+ * queried through R2DBC and at most <code>visits.lookup.parallelism</code> of them in flight.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveVisitReader {
+
+    private final ReactiveVisitRepository visitRepository;
+
+    private final VisitArchive archive;
+
+    private final MeterRegistry registry;
+
+    private final int chunkSize;
+
+    private final int maxPetIds;
+
+    private final int parallelism;
+
+    private final DistributionSummary chunkCount;
+
+    private final Timer chunkLatency;
+
+    ReactiveVisitReader(ReactiveVisitRepository visitRepository, VisitArchive archive, VisitsProperties properties,
+                        MeterRegistry registry) {
+        VisitsProperties.Lookup lookup = properties.getLookup();
+        this.visitRepository = visitRepository;
+        this.archive = archive;
+        this.registry = registry;
+        this.chunkSize = lookup.getChunkSize();
+        this.maxPetIds = lookup.getMaxPetIds();
+        this.parallelism = lookup.getParallelism();
+        this.chunkCount = DistributionSummary.builder("petclinic.visit.lookup.chunks")
+            .description("Number of IN clause chunks per visit lookup")
+            .register(registry);
+        this.chunkLatency = Timer.builder("petclinic.visit.lookup.chunk")
+            .description("Time spent querying one chunk of pet ids")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    public Mono<Visit> findById(int visitId) {
+        return visitRepository.findById(visitId)
+            .switchIfEmpty(Mono.defer(() -> archive.isEmpty() ? Mono.empty()
+                : Mono.fromCallable(() -> archive.findById(visitId).orElse(null))
+                    .subscribeOn(Schedulers.boundedElastic())));
+    }
+
+    public Flux<VisitSummary> findByPetId(int petId) {
+        return mergeArchived(visitRepository.findSummariesByPetId(petId), List.of(petId));
+    }
+
+    public Flux<VisitSummary> findByPetIds(Collection<Integer> petIds) {
+        return Flux.defer(() -> {
+            List<Integer> ids = VisitReader.normalize(petIds, maxPetIds);
+            if (ids.isEmpty()) {
+                return Flux.empty();
+            }
+            List<List<Integer>> chunks = VisitReader.chunk(ids, chunkSize);
+            chunkCount.record(chunks.size());
+            return mergeArchived(Flux.fromIterable(chunks).flatMapSequential(this::query, parallelism), ids);
+        });
+    }
+
+    private Flux<VisitSummary> query(List<Integer> chunk) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return visitRepository.findSummariesByPetIdIn(chunk).doFinally(signal -> sample.stop(chunkLatency));
+        });
+    }
+
+    private Flux<VisitSummary> mergeArchived(Flux<VisitSummary> hot, List<Integer> petIds) {
+        if (archive.isEmpty()) {
+            return hot;
+        }
+        // segments are read through memory mapped files, which may fault pages in from disk
+        return hot.collectList()
+            .publishOn(Schedulers.boundedElastic())
+            .flatMapIterable(visits -> VisitReader.mergeArchived(archive, visits, petIds));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.model.ReactiveVisitRepository;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the {@link VisitWriter}s: inserts the visit and bumps its <code>visit_stats</code> bucket in
+ * one R2DBC transaction, then publishes {@link VisitsCreatedEvent}.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveVisitWriter {
+
+    private final ReactiveVisitRepository visitRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Mono<Visit> write(Visit visit) {
+        return visitRepository.insert(visit)
+            .flatMap(saved -> saved.getDate() == null ? Mono.just(saved) : visitRepository
+                .incrementStats(saved.getPetId(), VisitStatistics.encode(VisitStatistics.monthOf(saved.getDate())), 1)
+                .thenReturn(saved))
+            .as(transactionalOperator::transactional)
+            .doOnNext(saved -> eventPublisher.publishEvent(new VisitsCreatedEvent(List.of(saved))));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports large numbers of visits for arbitrary pets. Visits are validated one by one and the valid ones are saved
+ * in chunks, one transaction per chunk, so that Hibernate can send them as JDBC batches.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class VisitImporter {
+
+    private final VisitRepository visitRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Validator validator;
+
+    private final VisitsProperties properties;
+
+    public Session begin() {
+        return new Session();
+    }
+
+    public int getMaxItems() {
+        return properties.getBatch().getMaxItems();
+    }
+
+    /**
+     * Result of one submitted item, in submission order: either the generated id or the reasons it was rejected.
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public record ItemResult(int index, Integer id, List<String> errors) {
+    }
+
+    /**
+     * Collects the items of one batch request. Not thread-safe.
+     */
+    public class Session {
+
+        private final List<ItemResult> results = new ArrayList<>();
+
+        private final List<Visit> pending = new ArrayList<>();
+
+        private final List<Integer> pendingIndexes = new ArrayList<>();
+
+        private int submitted;
+
+        public void add(Visit visit) {
+            int index = submitted++;
+            List<String> errors = validate(visit);
+            if (!errors.isEmpty()) {
+                reject(index, errors.toArray(String[]::new));
+                return;
+            }
+            // ids are always allocated here, a client supplied one would turn the insert into an update
+            visit.setId(null);
+            pending.add(visit);
+            pendingIndexes.add(index);
+            if (pending.size() >= properties.getBatch().getChunkSize()) {
+                flush();
+            }
+        }
+
+        public void reject(String error) {
+            reject(submitted++, error);
+        }
+
+        public int size() {
+            return submitted;
+        }
+
+        /**
+         * Gives up on the batch: the visits not saved yet are dropped, those of the chunks already saved stay.
+         *
+         * @return the number of visits saved
+         */
+        public int abort() {
+            pending.clear();
+            pendingIndexes.clear();
+            return (int) results.stream().filter(result -> result.id() != null).count();
+        }
+
+        public List<ItemResult> finish() {
+            flush();
+            results.sort((a, b) -> Integer.compare(a.index(), b.index()));
+            return results;
+        }
+
+        private void reject(int index, String... errors) {
+            results.add(new ItemResult(index, null, List.of(errors)));
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                List<Visit> saved = transactionTemplate.execute(status -> {
+                    List<Visit> result = visitRepository.saveAll(pending);
+                    eventPublisher.publishEvent(new VisitsCreatedEvent(result));
+                    return result;
+                });
+                for (int i = 0; i < saved.size(); i++) {
+                    results.add(new ItemResult(pendingIndexes.get(i), saved.get(i).getId(), List.of()));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to import a chunk of {} visits", pending.size(), e);
+                // the cause is logged, its message may describe the database and is not for the client
+                pendingIndexes.forEach(index -> reject(index, "Could not be saved"));
+            }
+            pending.clear();
+            pendingIndexes.clear();
+        }
+    }
+
+    private List<String> validate(Visit visit) {
+        List<String> errors = new ArrayList<>();
+        if (visit.getPetId() < 1) {
+            errors.add("petId: must be greater than or equal to 1");
+        }
+        Set<ConstraintViolation<Visit>> violations = validator.validate(visit);
+        violations.forEach(v -> errors.add(v.getPropertyPath() + ": " + v.getMessage()));
+        return errors;
+    }
+}
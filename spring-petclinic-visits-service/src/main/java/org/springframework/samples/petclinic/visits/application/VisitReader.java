@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Looks up visits for many pets at once. Pet ids are deduplicated and sorted, then split into fixed-size chunks so
+ * that the database sees a handful of recurring IN clause shapes instead of one per request. Chunks run in parallel
+ * on a small bounded pool; when the pool is saturated the calling thread runs the chunk itself. Results are
+ * concatenated in chunk order, which keeps them sorted by pet id and visit id.
+ * <p>
+ * Visits that have been moved to the {@link VisitArchive} are merged into the results; when a visit is found in
+ * both places the database copy wins.
+ */
+@Component
+@Profile("!reactive")
+public class VisitReader implements DisposableBean {
+
+    private final VisitRepository visitRepository;
+
+    private final VisitArchive archive;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    private final int chunkSize;
+
+    private final int maxPetIds;
+
+    private final DistributionSummary chunkCount;
+
+    private final Timer chunkLatency;
+
+    VisitReader(VisitRepository visitRepository, VisitArchive archive, VisitsProperties properties,
+                MeterRegistry registry) {
+        VisitsProperties.Lookup lookup = properties.getLookup();
+        this.visitRepository = visitRepository;
+        this.archive = archive;
+        this.chunkSize = lookup.getChunkSize();
+        this.maxPetIds = lookup.getMaxPetIds();
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(lookup.getParallelism());
+        this.executor.setMaxPoolSize(lookup.getParallelism());
+        this.executor.setQueueCapacity(Math.max(1, maxPetIds / chunkSize));
+        this.executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.setThreadNamePrefix("visits-lookup-");
+        this.executor.setDaemon(true);
+        this.executor.initialize();
+        this.chunkCount = DistributionSummary.builder("petclinic.visit.lookup.chunks")
+            .description("Number of IN clause chunks per visit lookup")
+            .register(registry);
+        this.chunkLatency = Timer.builder("petclinic.visit.lookup.chunk")
+            .description("Time spent querying one chunk of pet ids")
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    public Optional<Visit> findById(int visitId) {
+        Optional<Visit> visit = visitRepository.findById(visitId);
+        return visit.isPresent() ? visit : archive.findById(visitId);
+    }
+
+    /**
+     * Summaries of the given visits, in the order of <code>visitIds</code>. Unknown ids are skipped.
+     */
+    public List<VisitSummary> findByIds(List<Integer> visitIds) {
+        if (visitIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, VisitSummary> byId = new HashMap<>();
+        visitRepository.findSummariesByIdIn(visitIds).forEach(visit -> byId.put(visit.getId(), visit));
+        List<VisitSummary> visits = new ArrayList<>(visitIds.size());
+        for (Integer visitId : visitIds) {
+            VisitSummary visit = byId.get(visitId);
+            if (visit == null && !archive.isEmpty()) {
+                visit = archive.findById(visitId).map(VisitSummary::of).orElse(null);
+            }
+            if (visit != null) {
+                visits.add(visit);
+            }
+        }
+        return visits;
+    }
+
+    public List<VisitSummary> findByPetId(int petId) {
+        return mergeArchived(visitRepository.findSummariesByPetId(petId), List.of(petId));
+    }
+
+    public List<VisitSummary> findByPetIds(Collection<Integer> petIds) {
+        List<Integer> ids = normalize(petIds, maxPetIds);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<List<Integer>> chunks = chunk(ids, chunkSize);
+        chunkCount.record(chunks.size());
+        if (chunks.size() == 1) {
+            return mergeArchived(query(chunks.get(0)), ids);
+        }
+
+        List<CompletableFuture<List<VisitSummary>>> futures = chunks.stream()
+            .map(chunk -> CompletableFuture.supplyAsync(() -> query(chunk), executor))
+            .toList();
+        List<VisitSummary> result = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<VisitSummary>> future : futures) {
+                result.addAll(future.join());
+            }
+        } catch (CompletionException ex) {
+            futures.forEach(future -> future.cancel(false));
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+        return mergeArchived(result, ids);
+    }
+
+    private List<VisitSummary> query(List<Integer> chunk) {
+        return chunkLatency.record(() -> visitRepository.findSummariesByPetIdIn(chunk));
+    }
+
+    private List<VisitSummary> mergeArchived(List<VisitSummary> hot, List<Integer> petIds) {
+        return mergeArchived(archive, hot, petIds);
+    }
+
+    static List<Integer> normalize(Collection<Integer> petIds, int maxPetIds) {
+        List<Integer> ids = petIds.stream()
+            .filter(Objects::nonNull)
+            .distinct()
+            .sorted()
+            .toList();
+        if (ids.size() > maxPetIds) {
+            throw new TooManyPetIdsException(ids.size(), maxPetIds);
+        }
+        return ids;
+    }
+
+    static List<List<Integer>> chunk(List<Integer> ids, int chunkSize) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(ids.subList(from, Math.min(from + chunkSize, ids.size())));
+        }
+        return chunks;
+    }
+
+    static List<VisitSummary> mergeArchived(VisitArchive archive, List<VisitSummary> hot, List<Integer> petIds) {
+        if (archive.isEmpty()) {
+            return hot;
+        }
+        List<Visit> archived = archive.findByPetIds(petIds);
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Set<Integer> hotIds = hot.stream().map(VisitSummary::getId).collect(Collectors.toSet());
+        List<VisitSummary> merged = new ArrayList<>(hot);
+        archived.stream()
+            .filter(visit -> !hotIds.contains(visit.getId()))
+            .map(VisitSummary::of)
+            .forEach(merged::add);
+        merged.sort(Comparator.comparingInt(VisitSummary::getPetId).thenComparing(VisitSummary::getId));
+        return merged;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
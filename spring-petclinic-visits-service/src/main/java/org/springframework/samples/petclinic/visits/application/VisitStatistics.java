@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.application;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitStatsRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Visit counts per pet and month, kept in the <code>visit_stats</code> rollup table. The rollup is updated in the
+ * same transaction as every visit insert, so reads cost one row per bucket instead of one per visit.
+ */
+@Component
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class VisitStatistics {
+
+    private static final YearMonth MIN_MONTH = YearMonth.of(1, 1);
+
+    private static final YearMonth MAX_MONTH = YearMonth.of(9999, 12);
+
+    private final VisitStatsRepository statsRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final VisitArchive archive;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onVisitsCreated(VisitsCreatedEvent event) {
+        Map<PetMonth, Integer> increments = newIncrements();
+        event.visits().forEach(visit -> count(increments, visit));
+        apply(increments);
+    }
+
+    public List<MonthCount> countByMonth(YearMonth from, YearMonth to) {
+        return statsRepository.countByMonth(encode(from, MIN_MONTH), encode(to, MAX_MONTH)).stream()
+            .map(bucket -> new MonthCount(decode(bucket.key()), bucket.visits()))
+            .toList();
+    }
+
+    public List<PetCount> countByPet(YearMonth from, YearMonth to) {
+        return statsRepository.countByPet(encode(from, MIN_MONTH), encode(to, MAX_MONTH)).stream()
+            .map(bucket -> new PetCount(bucket.key(), bucket.visits()))
+            .toList();
+    }
+
+    /**
+     * Recomputes the rollup from the <code>visits</code> table and the archive. Visits created while the rebuild
+     * runs may be counted twice or not at all, so it is meant for maintenance windows and for bootstrapping an empty
+     * rollup.
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            statsRepository.rebuild();
+            Map<PetMonth, Integer> increments = newIncrements();
+            archive.forEach(visit -> count(increments, visit));
+            apply(increments);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildIfEmpty() {
+        if (statsRepository.isEmpty()) {
+            log.info("Visit statistics rollup is empty, rebuilding it from the visits table");
+            rebuild();
+        }
+    }
+
+    private static Map<PetMonth, Integer> newIncrements() {
+        // increments are applied in key order so that concurrent batches lock rows in the same order
+        return new TreeMap<>(Comparator.comparingInt(PetMonth::petId).thenComparingInt(PetMonth::month));
+    }
+
+    private static void count(Map<PetMonth, Integer> increments, Visit visit) {
+        if (visit.getDate() != null) {
+            increments.merge(new PetMonth(visit.getPetId(), encode(monthOf(visit.getDate()))), 1, Integer::sum);
+        }
+    }
+
+    private void apply(Map<PetMonth, Integer> increments) {
+        increments.forEach((key, visits) -> statsRepository.increment(key.petId(), key.month(), visits));
+    }
+
+    static YearMonth monthOf(Date date) {
+        // java.sql.Date does not support toInstant(), hence the detour through the epoch millis
+        LocalDate day = Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+        return YearMonth.from(day);
+    }
+
+    private static int encode(YearMonth month, YearMonth fallback) {
+        return encode(month != null ? month : fallback);
+    }
+
+    static int encode(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+
+    private static YearMonth decode(int month) {
+        return YearMonth.of(month / 100, month % 100);
+    }
+
+    private record PetMonth(int petId, int month) {
+    }
+
+    public record MonthCount(YearMonth month, long visits) {
+    }
+
+    public record PetCount(int petId, long visits) {
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.archive;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cold storage for old visits: a directory of append-only {@link VisitSegment} files. A visit may show up in more
+ * than one segment when an archive run was interrupted after writing its segment but before deleting the rows;
+ * lookups therefore deduplicate by visit id.
+ * <p>
+ * Only the replica designated with <code>visits.archive.archiver</code> writes segments. Every replica opens the
+ * segments it finds in the directory, which must therefore be a volume they all share, at startup and then every
+ * <code>visits.archive.refresh-interval</code>.
+ */
+@Component
+@Slf4j
+public class VisitArchive implements InitializingBean, DisposableBean {
+
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+
+    private final List<VisitSegment> segments = new CopyOnWriteArrayList<>();
+
+    // a lock rather than synchronized: writing a segment blocks on file IO, which would pin a virtual thread
+    private final Lock appendLock = new ReentrantLock();
+
+    private final Duration refreshInterval;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "visit-archive-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    VisitArchive(VisitsProperties properties, MeterRegistry registry) {
+        this.directory = properties.getArchive().getDirectory();
+        this.refreshInterval = properties.getArchive().getRefreshInterval();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open visit archive in " + directory, ex);
+        }
+        segmentFiles().stream().map(VisitSegment::open).forEach(segments::add);
+        if (!segments.isEmpty()) {
+            log.info("Opened {} archived visits in {} segments", visitCount(), segments.size());
+        }
+        Gauge.builder("petclinic.visit.archive.visits", this, VisitArchive::visitCount)
+            .description("Visits held in archive segments")
+            .register(registry);
+        Gauge.builder("petclinic.visit.archive.segments", segments, List::size)
+            .description("Number of archive segments")
+            .register(registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = refreshInterval.toMillis();
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Opens the segments written to the directory by the archiving replica since the last call.
+     *
+     * @return the number of segments opened
+     */
+    public int refresh() {
+        appendLock.lock();
+        try {
+            Set<Path> open = new HashSet<>();
+            segments.forEach(segment -> open.add(segment.path().getFileName()));
+            List<VisitSegment> opened = segmentFiles().stream()
+                .filter(file -> !open.contains(file.getFileName()))
+                .map(VisitSegment::open)
+                .toList();
+            segments.addAll(opened);
+            if (!opened.isEmpty()) {
+                log.info("Opened {} archive segments written by another instance", opened.size());
+            }
+            return opened.size();
+        } catch (RuntimeException ex) {
+            log.warn("Could not refresh the visit archive in {}", directory, ex);
+            return 0;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long visitCount() {
+        return segments.stream().mapToLong(VisitSegment::visitCount).sum();
+    }
+
+    public void append(List<Visit> visits) {
+        if (visits.isEmpty()) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            String name = String.format("visits-%08d%s", nextSequence(), SUFFIX);
+            segments.add(VisitSegment.write(directory.resolve(name), visits));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public List<Visit> findByPetIds(Collection<Integer> petIds) {
+        if (segments.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Visit> visits = new LinkedHashMap<>();
+        for (VisitSegment segment : segments) {
+            for (Integer petId : petIds) {
+                segment.findByPetId(petId).forEach(visit -> visits.putIfAbsent(visit.getId(), visit));
+            }
+        }
+        return new ArrayList<>(visits.values());
+    }
+
+    public Optional<Visit> findById(int visitId) {
+        for (VisitSegment segment : segments) {
+            Optional<Visit> visit = segment.findById(visitId);
+            if (visit.isPresent()) {
+                return visit;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Visits every archived visit once, in no particular order.
+     */
+    public void forEach(Consumer<Visit> action) {
+        Set<Integer> seen = new HashSet<>();
+        for (VisitSegment segment : segments) {
+            segment.forEach(visit -> {
+                if (seen.add(visit.getId())) {
+                    action.accept(visit);
+                }
+            });
+        }
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot list visit archive in " + directory, ex);
+        }
+    }
+
+    private int nextSequence() {
+        if (segments.isEmpty()) {
+            return 1;
+        }
+        String last = segments.get(segments.size() - 1).path().getFileName().toString();
+        return Integer.parseInt(last.substring("visits-".length(), last.length() - SUFFIX.length())) + 1;
+    }
+}
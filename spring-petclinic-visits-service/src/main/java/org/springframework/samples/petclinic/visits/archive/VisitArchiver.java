@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.archive;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves visits older than <code>visits.archive.max-age</code> from the database into the {@link VisitArchive}. The
+ * segments are durably written before their rows are deleted, so a crash in between leaves the visits in both places
+ * rather than losing them; readers prefer the database copy. The rows are only deleted once the other replicas have
+ * had time to open the new segments, see <code>visits.archive.refresh-interval</code>: the delete is scheduled for
+ * then, and runs on a thread of its own rather than holding up the scheduler or the caller of the endpoint. Until it
+ * ran, the job archives nothing more.
+ * <p>
+ * Only runs on the replica designated with <code>visits.archive.archiver</code>.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "visits.archive", name = "archiver", havingValue = "true")
+@Slf4j
+public class VisitArchiver implements DisposableBean {
+
+    private final VisitRepository visitRepository;
+
+    private final VisitArchive archive;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration maxAge;
+
+    private final int segmentSize;
+
+    private final Duration replicaDelay;
+
+    private final Counter archived;
+
+    // one run or delete at a time, also when triggered through the actuator endpoint; not synchronized so that a run
+    // waiting on the database does not pin a virtual thread
+    private final Lock runLock = new ReentrantLock();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "visit-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the segments appended to the archive whose rows are not deleted yet, guarded by runLock
+    private final List<List<Integer>> pendingDeletes = new ArrayList<>();
+
+    private Instant deleteAt;
+
+    VisitArchiver(VisitRepository visitRepository, VisitArchive archive, TransactionTemplate transactionTemplate,
+                  VisitsProperties properties, MeterRegistry registry) {
+        this.visitRepository = visitRepository;
+        this.archive = archive;
+        this.transactionTemplate = transactionTemplate;
+        this.maxAge = properties.getArchive().getMaxAge();
+        this.segmentSize = properties.getArchive().getSegmentSize();
+        this.replicaDelay = properties.getArchive().getRefreshInterval().multipliedBy(2);
+        this.archived = Counter.builder("petclinic.visit.archived")
+            .description("Visits moved from the database into the archive")
+            .register(registry);
+    }
+
+    @Scheduled(cron = "${visits.archive.cron:-}")
+    public int archive() {
+        runLock.lock();
+        try {
+            if (!pendingDeletes.isEmpty()) {
+                // their rows would be selected and archived again
+                log.info("Not archiving, the rows of the visits archived previously are deleted at {}", deleteAt);
+                return 0;
+            }
+            return archiveOlderVisits();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    private int archiveOlderVisits() {
+        Date cutoff = new Date(System.currentTimeMillis() - maxAge.toMillis());
+        List<List<Integer>> segments = new ArrayList<>();
+        int lastId = 0;
+        int total = 0;
+        List<Visit> visits;
+        do {
+            visits = visitRepository.findByDateBeforeAndIdGreaterThan(cutoff, lastId,
+                PageRequest.of(0, segmentSize, Sort.by("id")));
+            if (visits.isEmpty()) {
+                break;
+            }
+            archive.append(visits);
+            List<Integer> ids = visits.stream().map(Visit::getId).toList();
+            segments.add(ids);
+            total += ids.size();
+            lastId = ids.get(ids.size() - 1);
+        } while (visits.size() == segmentSize);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        pendingDeletes.addAll(segments);
+        if (replicaDelay.isZero()) {
+            deletePending();
+        } else {
+            scheduleDelete();
+        }
+        log.info("Archived {} visits older than {}", total, cutoff);
+        return total;
+    }
+
+    private void scheduleDelete() {
+        deleteAt = Instant.now().plus(replicaDelay);
+        executor.schedule(() -> {
+            runLock.lock();
+            try {
+                deletePending();
+            } catch (RuntimeException ex) {
+                log.error("Could not delete the rows of the archived visits, retrying", ex);
+                scheduleDelete();
+            } finally {
+                runLock.unlock();
+            }
+        }, replicaDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void deletePending() {
+        while (!pendingDeletes.isEmpty()) {
+            List<Integer> ids = pendingDeletes.get(0);
+            transactionTemplate.executeWithoutResult(status -> visitRepository.deleteAllByIdInBatch(ids));
+            archived.increment(ids.size());
+            pendingDeletes.remove(0);
+        }
+        deleteAt = null;
+    }
+
+    @Override
+    public void destroy() {
+        // the rows still pending stay in both places, the database copy is preferred
+        executor.shutdownNow();
+    }
+}
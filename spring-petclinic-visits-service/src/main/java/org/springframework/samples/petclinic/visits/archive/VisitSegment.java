@@ -0,0 +1,290 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.springframework.samples.petclinic.visits.model.Visit;
+
+/**
+ * An immutable file holding archived visits. Layout:
+ * <pre>
+ * header       magic:int version:int
+ * blocks       one deflate-compressed block per pet, visits sorted by id
+ * pet index    count:int, then (petId:int offset:long compressedLength:int rawLength:int visits:int) by petId
+ * visit index  count:int, then (visitId:int petId:int) by visitId
+ * footer       petIndexOffset:long visitIndexOffset:long magic:int
+ * </pre>
+ * The file is memory-mapped and both indexes are binary searched in place, so an open segment costs no heap beyond
+ * the blocks that are actually decoded.
+ */
+final class VisitSegment {
+
+    private static final int MAGIC = 0x50435641; // "PCVA"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int FOOTER_SIZE = 20;
+
+    private static final int PET_ENTRY_SIZE = 24;
+
+    private static final int VISIT_ENTRY_SIZE = 8;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private final int petIndex;
+
+    private final int petCount;
+
+    private final int visitIndex;
+
+    private final int visitCount;
+
+    private VisitSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        int footer = buffer.limit() - FOOTER_SIZE;
+        if (buffer.limit() < HEADER_SIZE + FOOTER_SIZE || buffer.getInt(0) != MAGIC
+            || buffer.getInt(footer + 16) != MAGIC) {
+            throw new IllegalStateException("Not a visit archive segment: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Unsupported segment version " + buffer.getInt(4) + ": " + path);
+        }
+        this.petIndex = Math.toIntExact(buffer.getLong(footer)) + 4;
+        this.petCount = buffer.getInt(petIndex - 4);
+        this.visitIndex = Math.toIntExact(buffer.getLong(footer + 8)) + 4;
+        this.visitCount = buffer.getInt(visitIndex - 4);
+    }
+
+    static VisitSegment open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new VisitSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open segment " + path, ex);
+        }
+    }
+
+    /**
+     * Writes the visits to a temporary file next to {@code target}, forces it to disk and then moves it into place,
+     * so that readers never observe a partially written segment.
+     */
+    static VisitSegment write(Path target, List<Visit> visits) {
+        List<Visit> sorted = new ArrayList<>(visits);
+        sorted.sort(Comparator.comparingInt(Visit::getPetId).thenComparing(Visit::getId));
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            ByteArrayOutputStream petIndex = new ByteArrayOutputStream();
+            DataOutputStream petEntries = new DataOutputStream(petIndex);
+            int pets = 0;
+            for (int from = 0; from < sorted.size(); ) {
+                int petId = sorted.get(from).getPetId();
+                int to = from;
+                while (to < sorted.size() && sorted.get(to).getPetId() == petId) {
+                    to++;
+                }
+                byte[] raw = encode(sorted.subList(from, to));
+                byte[] compressed = compress(raw);
+                petEntries.writeInt(petId);
+                petEntries.writeLong(out.size());
+                petEntries.writeInt(compressed.length);
+                petEntries.writeInt(raw.length);
+                petEntries.writeInt(to - from);
+                out.write(compressed);
+                pets++;
+                from = to;
+            }
+
+            long petIndexOffset = out.size();
+            out.writeInt(pets);
+            petIndex.writeTo(out);
+
+            long visitIndexOffset = out.size();
+            out.writeInt(sorted.size());
+            sorted.sort(Comparator.comparing(Visit::getId));
+            for (Visit visit : sorted) {
+                out.writeInt(visit.getId());
+                out.writeInt(visit.getPetId());
+            }
+
+            out.writeLong(petIndexOffset);
+            out.writeLong(visitIndexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            if (out.size() == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segment exceeds 2 GB, archive fewer visits per segment");
+            }
+            channel.force(true);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot write segment " + tmp, ex);
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot move segment " + tmp + " into place", ex);
+        }
+        return open(target);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int visitCount() {
+        return visitCount;
+    }
+
+    List<Visit> findByPetId(int petId) {
+        int low = 0;
+        int high = petCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = petIndex + mid * PET_ENTRY_SIZE;
+            int key = buffer.getInt(entry);
+            if (key < petId) {
+                low = mid + 1;
+            } else if (key > petId) {
+                high = mid - 1;
+            } else {
+                return decode(entry);
+            }
+        }
+        return List.of();
+    }
+
+    Optional<Visit> findById(int visitId) {
+        int low = 0;
+        int high = visitCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = visitIndex + mid * VISIT_ENTRY_SIZE;
+            int key = buffer.getInt(entry);
+            if (key < visitId) {
+                low = mid + 1;
+            } else if (key > visitId) {
+                high = mid - 1;
+            } else {
+                return findByPetId(buffer.getInt(entry + 4)).stream()
+                    .filter(visit -> visit.getId() == visitId)
+                    .findFirst();
+            }
+        }
+        return Optional.empty();
+    }
+
+    void forEach(Consumer<Visit> action) {
+        for (int i = 0; i < petCount; i++) {
+            decode(petIndex + i * PET_ENTRY_SIZE).forEach(action);
+        }
+    }
+
+    private List<Visit> decode(int entry) {
+        int petId = buffer.getInt(entry);
+        int offset = Math.toIntExact(buffer.getLong(entry + 4));
+        int compressedLength = buffer.getInt(entry + 12);
+        int rawLength = buffer.getInt(entry + 16);
+        int count = buffer.getInt(entry + 20);
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice(offset, compressedLength));
+            inflater.inflate(raw);
+        } catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt block for pet " + petId + " in " + path, ex);
+        } finally {
+            inflater.end();
+        }
+
+        List<Visit> visits = new ArrayList<>(count);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw))) {
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                long date = in.readLong();
+                String description = in.readBoolean() ? in.readUTF() : null;
+                visits.add(new Visit(id, date == NO_DATE ? null : new Date(date), description, petId));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return visits;
+    }
+
+    private static byte[] encode(List<Visit> visits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Visit visit : visits) {
+            out.writeInt(visit.getId());
+            out.writeLong(visit.getDate() == null ? NO_DATE : visit.getDate().getTime());
+            out.writeBoolean(visit.getDescription() != null);
+            if (visit.getDescription() != null) {
+                out.writeUTF(visit.getDescription());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] compress(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(raw);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
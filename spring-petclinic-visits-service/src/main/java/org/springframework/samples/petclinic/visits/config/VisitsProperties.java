@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import lombok.Data;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Typesafe custom configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "visits")
+public class VisitsProperties {
+
+    private GroupCommit groupCommit = new GroupCommit();
+
+    private Batch batch = new Batch();
+
+    private Lookup lookup = new Lookup();
+
+    private Archive archive = new Archive();
+
+    private Search search = new Search();
+
+    @Data
+    public static class GroupCommit {
+
+        /**
+         * Queue visit creations and commit them in groups instead of one transaction per request.
+         */
+        private boolean enabled;
+
+        private int queueCapacity = 1024;
+
+        private int maxBatchSize = 64;
+
+        /**
+         * How long the writer waits for more visits before committing a partial batch.
+         */
+        private Duration maxDelay = Duration.ofMillis(5);
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Maximum number of visits accepted by a single batch request.
+         */
+        private int maxItems = 10_000;
+
+        /**
+         * Number of visits saved per transaction while importing a batch.
+         */
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class Lookup {
+
+        /**
+         * Number of pet ids per IN clause. A power of two lines up with Hibernate's IN clause parameter padding.
+         */
+        private int chunkSize = 128;
+
+        /**
+         * Maximum number of distinct pet ids accepted by a single lookup.
+         */
+        private int maxPetIds = 1024;
+
+        /**
+         * Number of chunks queried concurrently.
+         */
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Archive {
+
+        /**
+         * Directory holding the archive segment files. With more than one replica this must be a volume shared by
+         * all of them: the archived rows are gone from the shared database, and each replica serves them from here.
+         */
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "petclinic-visits-archive");
+
+        /**
+         * Whether this instance runs the archive job. Enable it on one replica only.
+         */
+        private boolean archiver;
+
+        /**
+         * How often each replica opens the segments the archiver wrote since. The archiver waits twice as long
+         * before it deletes the rows of new segments, so that no replica misses visits in between. Zero disables
+         * both, for a single instance.
+         */
+        private Duration refreshInterval = Duration.ofMinutes(1);
+
+        /**
+         * Visits older than this are moved from the database into the archive.
+         */
+        private Duration maxAge = Duration.ofDays(730);
+
+        /**
+         * Maximum number of visits written to one segment.
+         */
+        private int segmentSize = 50_000;
+
+        /**
+         * When the archiver runs the archive job. The default "-" disables the schedule; the job can still be
+         * triggered through the visitarchive actuator endpoint.
+         */
+        private String cron = "-";
+    }
+
+    @Data
+    public static class Search {
+
+        /**
+         * Number of visits read per query while the search index is rebuilt at startup.
+         */
+        private int rebuildPageSize = 1000;
+
+        /**
+         * How often the index picks up visits created by other replicas. Zero disables it, for a single instance.
+         */
+        private Duration catchUpInterval = Duration.ofMinutes(1);
+
+        /**
+         * How long an id missing below the highest indexed one is looked for, as the visit of another replica
+         * committing late. A visit committing later than that is only indexed by the rebuild at the next start.
+         */
+        private Duration catchUpWindow = Duration.ofHours(1);
+
+        /**
+         * Number of visit ids read per query while catching up.
+         */
+        private int catchUpPageSize = 10_000;
+
+        /**
+         * Maximum number of results per page.
+         */
+        private int maxLimit = 100;
+
+        /**
+         * How deep into the ranking a client may page, bounding the size of the top-k heap.
+         */
+        private int maxResults = 1000;
+    }
+}
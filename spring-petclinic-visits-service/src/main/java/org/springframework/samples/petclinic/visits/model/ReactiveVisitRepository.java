@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Date;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of {@link VisitRepository} and {@link VisitStatsRepository} for the <code>reactive</code>
+ * profile. Rows are streamed from the driver, so a slow subscriber slows down the fetch instead of buffering the
+ * whole result.
+ * <p>
+ * Ids come from the same <code>visits_seq</code> sequence Hibernate uses. Hibernate reserves the block of 50 ids
+ * ending at each value it fetches; this repository uses the fetched value itself, which falls inside a block no one
+ * else will claim.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveVisitRepository {
+
+    private static final String SUMMARY = "SELECT id, pet_id, visit_date, SUBSTRING(description, 1, "
+        + (VisitSummary.PREVIEW_LENGTH + 1) + ") AS description FROM visits ";
+
+    private final DatabaseClient databaseClient;
+
+    private final boolean mysql;
+
+    ReactiveVisitRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+        this.mysql = databaseClient.getConnectionFactory().getMetadata().getName().toLowerCase().contains("mysql");
+    }
+
+    public Flux<VisitSummary> findSummariesByPetId(int petId) {
+        return databaseClient.sql(SUMMARY + "WHERE pet_id = :petId ORDER BY id")
+            .bind("petId", petId)
+            .map(ReactiveVisitRepository::toSummary)
+            .all();
+    }
+
+    public Flux<VisitSummary> findSummariesByPetIdIn(Collection<Integer> petIds) {
+        return databaseClient.sql(SUMMARY + "WHERE pet_id IN (:petIds) ORDER BY pet_id, id")
+            .bind("petIds", petIds)
+            .map(ReactiveVisitRepository::toSummary)
+            .all();
+    }
+
+    public Mono<Visit> findById(int visitId) {
+        return databaseClient.sql("SELECT id, pet_id, visit_date, description FROM visits WHERE id = :id")
+            .bind("id", visitId)
+            .map(row -> new Visit(intValue(row, "id"), toDate(row.get("visit_date", LocalDate.class)),
+                row.get("description", String.class), intValue(row, "pet_id")))
+            .one();
+    }
+
+    /**
+     * Assigns an id and inserts the visit. Must run inside a transaction on MySQL, where the id is read back with
+     * <code>LAST_INSERT_ID()</code> on the same connection.
+     */
+    public Mono<Visit> insert(Visit visit) {
+        return nextId()
+            .flatMap(id -> {
+                visit.setId(id);
+                GenericExecuteSpec insert = databaseClient
+                    .sql("INSERT INTO visits (id, pet_id, visit_date, description) "
+                        + "VALUES (:id, :petId, :date, :description)")
+                    .bind("id", id)
+                    .bind("petId", visit.getPetId());
+                insert = visit.getDate() != null
+                    ? insert.bind("date", toLocalDate(visit.getDate())) : insert.bindNull("date", LocalDate.class);
+                insert = visit.getDescription() != null
+                    ? insert.bind("description", visit.getDescription()) : insert.bindNull("description", String.class);
+                return insert.then();
+            })
+            .thenReturn(visit);
+    }
+
+    /**
+     * Reactive version of {@link VisitStatsRepository#increment(int, int, int)}.
+     */
+    public Mono<Void> incrementStats(int petId, int month, int visits) {
+        return updateStats(petId, month, visits)
+            .flatMap(updated -> updated > 0 ? Mono.empty() : databaseClient
+                .sql("INSERT INTO visit_stats (pet_id, visit_month, visits) VALUES (:petId, :month, :visits)")
+                .bind("petId", petId)
+                .bind("month", month)
+                .bind("visits", visits)
+                .then()
+                // another transaction created the row in the meantime
+                .onErrorResume(DataIntegrityViolationException.class, ex -> updateStats(petId, month, visits).then()))
+            .then();
+    }
+
+    private Mono<Long> updateStats(int petId, int month, int visits) {
+        return databaseClient
+            .sql("UPDATE visit_stats SET visits = visits + :visits WHERE pet_id = :petId AND visit_month = :month")
+            .bind("visits", visits)
+            .bind("petId", petId)
+            .bind("month", month)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    private Mono<Integer> nextId() {
+        if (mysql) {
+            // same single-row table Hibernate uses on MySQL: return the current value and advance it by one block
+            return databaseClient.sql("UPDATE visits_seq SET next_val = LAST_INSERT_ID(next_val) + 50")
+                .then()
+                .then(databaseClient.sql("SELECT LAST_INSERT_ID()").map(row -> intValue(row, 0)).one());
+        }
+        return databaseClient.sql("SELECT NEXT VALUE FOR visits_seq").map(row -> intValue(row, 0)).one();
+    }
+
+    private static VisitSummary toSummary(Readable row) {
+        return new VisitSummary(intValue(row, "id"), intValue(row, "pet_id"),
+            toDate(row.get("visit_date", LocalDate.class)), row.get("description", String.class));
+    }
+
+    private static int intValue(Readable row, String name) {
+        // drivers disagree on the Java type of INTEGER and INT UNSIGNED columns
+        return ((Number) row.get(name)).intValue();
+    }
+
+    private static int intValue(Readable row, int index) {
+        return ((Number) row.get(index)).intValue();
+    }
+
+    private static Date toDate(LocalDate date) {
+        return date == null ? null : Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault());
+    }
+}
@@ -26,6 +26,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
@@ -47,8 +48,13 @@ import java.util.Date;
 @AllArgsConstructor
 public class Visit {
 
+    /**
+     * Ids are allocated from a sequence in blocks so that Hibernate can batch inserts, which it cannot do with
+     * IDENTITY columns.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visits_seq")
+    @SequenceGenerator(name = "visits_seq", sequenceName = "visits_seq", allocationSize = 50)
     private Integer id;
 
     @Builder.Default
@@ -16,9 +16,13 @@
 package org.springframework.samples.petclinic.visits.model;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository class for <code>Visit</code> domain objects All method names are compliant with Spring Data naming conventions so this interface can easily be extended for Spring
@@ -35,4 +39,23 @@ public interface VisitRepository extends JpaRepository<Visit, Integer> {
     List<Visit> findByPetId(int petId);
 
     List<Visit> findByPetIdIn(Collection<Integer> petIds);
+
+    List<Visit> findByDateBeforeAndIdGreaterThan(Date date, int id, Pageable pageable);
+
+    List<Visit> findByIdGreaterThan(int id, Pageable pageable);
+
+    @Query("SELECT v.id FROM Visit v WHERE v.id > :id ORDER BY v.id")
+    List<Integer> findIdsByIdGreaterThan(@Param("id") int id, Pageable pageable);
+
+    String SUMMARY = "SELECT new org.springframework.samples.petclinic.visits.model.VisitSummary("
+        + "v.id, v.petId, v.date, substring(v.description, 1, " + (VisitSummary.PREVIEW_LENGTH + 1) + ")) FROM Visit v ";
+
+    @Query(SUMMARY + "WHERE v.petId = :petId ORDER BY v.id")
+    List<VisitSummary> findSummariesByPetId(@Param("petId") int petId);
+
+    @Query(SUMMARY + "WHERE v.petId IN :petIds ORDER BY v.petId, v.id")
+    List<VisitSummary> findSummariesByPetIdIn(@Param("petIds") Collection<Integer> petIds);
+
+    @Query(SUMMARY + "WHERE v.id IN :ids")
+    List<VisitSummary> findSummariesByIdIn(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.model;
+
+import java.util.List;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Access to the <code>visit_stats</code> rollup table, which holds one row per pet and month (encoded as
+ * <code>yyyymm</code>). Plain JDBC is used so that the counters can be upserted portably inside the transaction
+ * that inserts the visits.
+ */
+@Repository
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class VisitStatsRepository {
+
+    private static final String MONTH_OF_VISIT =
+        "EXTRACT(YEAR FROM visit_date) * 100 + EXTRACT(MONTH FROM visit_date)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void increment(int petId, int month, int visits) {
+        if (update(petId, month, visits) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO visit_stats (pet_id, visit_month, visits) VALUES (?, ?, ?)",
+                petId, month, visits);
+        } catch (DuplicateKeyException e) {
+            // another transaction created the row in the meantime
+            update(petId, month, visits);
+        }
+    }
+
+    public List<Bucket> countByMonth(int fromMonth, int toMonth) {
+        return jdbcTemplate.query(
+            "SELECT visit_month, SUM(visits) FROM visit_stats WHERE visit_month BETWEEN ? AND ? "
+                + "GROUP BY visit_month ORDER BY visit_month",
+            (rs, rowNum) -> new Bucket(rs.getInt(1), rs.getLong(2)), fromMonth, toMonth);
+    }
+
+    public List<Bucket> countByPet(int fromMonth, int toMonth) {
+        return jdbcTemplate.query(
+            "SELECT pet_id, SUM(visits) FROM visit_stats WHERE visit_month BETWEEN ? AND ? "
+                + "GROUP BY pet_id ORDER BY pet_id",
+            (rs, rowNum) -> new Bucket(rs.getInt(1), rs.getLong(2)), fromMonth, toMonth);
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visit_stats", Long.class) == 0;
+    }
+
+    /**
+     * Recomputes every bucket from the <code>visits</code> table. Must run inside a transaction.
+     */
+    public void rebuild() {
+        jdbcTemplate.update("DELETE FROM visit_stats");
+        jdbcTemplate.update("INSERT INTO visit_stats (pet_id, visit_month, visits) "
+            + "SELECT pet_id, " + MONTH_OF_VISIT + ", COUNT(*) FROM visits WHERE visit_date IS NOT NULL "
+            + "GROUP BY pet_id, " + MONTH_OF_VISIT);
+    }
+
+    private int update(int petId, int month, int visits) {
+        return jdbcTemplate.update("UPDATE visit_stats SET visits = visits + ? WHERE pet_id = ? AND visit_month = ?",
+            visits, petId, month);
+    }
+
+    /**
+     * Visit count for one month (<code>yyyymm</code>) or one pet id.
+     */
+    public record Bucket(int key, long visits) {
+    }
+}
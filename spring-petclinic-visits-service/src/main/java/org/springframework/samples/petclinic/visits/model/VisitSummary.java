@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.model;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Value;
+
+/**
+ * Read-only view of a {@link Visit} for list endpoints. Only the first {@link #PREVIEW_LENGTH} characters of the
+ * description are loaded from the database; the full text is available through {@code GET /visits/{id}}.
+ */
+@Value
+public class VisitSummary {
+
+    public static final int PREVIEW_LENGTH = 120;
+
+    Integer id;
+
+    int petId;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    Date date;
+
+    String description;
+
+    boolean descriptionTruncated;
+
+    /**
+     * Used by JPQL constructor expressions, which select one character more than {@link #PREVIEW_LENGTH} so that
+     * truncation can be detected without loading the whole description.
+     */
+    public VisitSummary(Integer id, Integer petId, Date date, String descriptionHead) {
+        this.id = id;
+        this.petId = petId;
+        this.date = date;
+        this.descriptionTruncated = descriptionHead != null && descriptionHead.length() > PREVIEW_LENGTH;
+        this.description = descriptionTruncated ? descriptionHead.substring(0, PREVIEW_LENGTH) : descriptionHead;
+    }
+
+    public static VisitSummary of(Visit visit) {
+        String description = visit.getDescription();
+        return new VisitSummary(visit.getId(), visit.getPetId(), visit.getDate(),
+            description == null ? null : description.substring(0, Math.min(description.length(), PREVIEW_LENGTH + 1)));
+    }
+}
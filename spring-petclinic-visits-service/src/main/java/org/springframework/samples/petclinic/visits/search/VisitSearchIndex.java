@@ -0,0 +1,426 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.samples.petclinic.visits.application.VisitsCreatedEvent;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-memory inverted index over visit descriptions. Every term maps to a posting list of visit ids kept sorted as a
+ * primitive <code>int[]</code> with the term frequency alongside, and every pet maps to the ids of its visits, so a
+ * query only touches the lists of its own terms instead of scanning descriptions.
+ * <p>
+ * The index is filled from the <code>visits</code> table and the archive in a background thread once the application
+ * is ready, and kept current by indexing every batch of created visits after its transaction commits. Visits created
+ * by other replicas are picked up every <code>visits.search.catch-up-interval</code>, see {@link #catchUp()}. Queries
+ * fail with {@link SearchIndexNotReadyException} until the initial rebuild is complete.
+ */
+@Component
+@Profile("!reactive")
+@Slf4j
+public class VisitSearchIndex implements DisposableBean {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "he", "in", "is", "it", "its", "of",
+        "on", "or", "she", "that", "the", "to", "was", "were", "with");
+
+    private final VisitRepository visitRepository;
+
+    private final VisitArchive archive;
+
+    private final VisitsProperties.Search properties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> terms = new HashMap<>();
+
+    private final Map<Integer, Postings> pets = new HashMap<>();
+
+    private final BitSet indexed = new BitSet();
+
+    private int visitCount;
+
+    private volatile boolean ready;
+
+    // the highest id of the visits table seen by the rebuild or a catch-up, and since when each id below it is missing
+    private int highestSeen;
+
+    private final Map<Integer, Long> missingSince = new TreeMap<>();
+
+    // runs the rebuild and then the catch-ups, which therefore never overlap
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "visit-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public VisitSearchIndex(VisitRepository visitRepository, VisitArchive archive, VisitsProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.visitRepository = visitRepository;
+        this.archive = archive;
+        this.properties = properties.getSearch();
+        Gauge.builder("petclinic.visit.search.terms", this, VisitSearchIndex::termCount)
+            .description("Distinct terms in the visit search index")
+            .register(meterRegistry);
+        Gauge.builder("petclinic.visit.search.visits", this, VisitSearchIndex::visitCount)
+            .description("Visits in the visit search index")
+            .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVisitsCreated(VisitsCreatedEvent event) {
+        event.visits().forEach(this::add);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildInBackground() {
+        scheduler.execute(this::rebuild);
+        long interval = properties.getCatchUpInterval().toMillis();
+        if (interval > 0) {
+            scheduler.scheduleWithFixedDelay(this::catchUp, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Indexes every visit of the <code>visits</code> table, a page at a time in id order, and of the archive.
+     * Visits that are already indexed are skipped, so visits created while the rebuild runs are indexed only once.
+     */
+    void rebuild() {
+        long start = System.nanoTime();
+        try {
+            int lastId = 0;
+            PageRequest page = PageRequest.of(0, properties.getRebuildPageSize(), Sort.by("id"));
+            List<Visit> visits;
+            do {
+                visits = visitRepository.findByIdGreaterThan(lastId, page);
+                visits.forEach(this::add);
+                if (!visits.isEmpty()) {
+                    lastId = visits.get(visits.size() - 1).getId();
+                }
+            } while (visits.size() == page.getPageSize());
+            archive.forEach(this::add);
+            synchronized (this) {
+                highestSeen = lastId;
+                addMissingIds(0, lastId);
+            }
+            ready = true;
+            log.info("Indexed {} visits and {} terms for search in {} ms",
+                visitCount(), termCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException ex) {
+            log.error("Could not build the visit search index", ex);
+        }
+    }
+
+    /**
+     * Indexes the visits of the <code>visits</code> table that are not indexed yet, which are those created by other
+     * replicas. Ids come from the sequence in blocks per replica, so a visit may commit after higher ids of other
+     * replicas. Besides the ids above the highest one seen so far, this therefore looks up the ids missing below it,
+     * each for <code>visits.search.catch-up-window</code> since it was first found missing: most are never used,
+     * such as the rest of the block of a stopped replica. A pass costs the visits created since the previous one and
+     * the ids missing within that window, not the size of the table.
+     *
+     * @return the number of visits indexed
+     */
+    public synchronized int catchUp() {
+        if (!ready) {
+            return 0;
+        }
+        try {
+            int added = 0;
+            int from = highestSeen;
+            PageRequest page = PageRequest.of(0, properties.getCatchUpPageSize());
+            List<Integer> ids;
+            do {
+                ids = visitRepository.findIdsByIdGreaterThan(highestSeen, page);
+                added += load(missing(ids));
+                if (!ids.isEmpty()) {
+                    highestSeen = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == page.getPageSize());
+            addMissingIds(from, highestSeen);
+
+            long expired = System.nanoTime() - properties.getCatchUpWindow().toNanos();
+            lock.readLock().lock();
+            try {
+                missingSince.entrySet().removeIf(entry -> indexed.get(entry.getKey()) || entry.getValue() - expired < 0);
+            } finally {
+                lock.readLock().unlock();
+            }
+            List<Integer> stillMissing = new ArrayList<>(missingSince.keySet());
+            for (int i = 0; i < stillMissing.size(); i += page.getPageSize()) {
+                added += load(stillMissing.subList(i, Math.min(i + page.getPageSize(), stillMissing.size())));
+            }
+            if (added > 0) {
+                log.info("Indexed {} visits created by other instances", added);
+            }
+            return added;
+        } catch (RuntimeException ex) {
+            log.warn("Could not catch up the visit search index", ex);
+            return 0;
+        }
+    }
+
+    private int load(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Visit> visits = visitRepository.findAllById(ids);
+        visits.forEach(this::add);
+        return visits.size();
+    }
+
+    /**
+     * Remembers the ids in <code>(from, to]</code> that are not indexed, to be looked up by the next catch-ups.
+     */
+    private void addMissingIds(int from, int to) {
+        long now = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            for (int id = indexed.nextClearBit(from + 1); id <= to; id = indexed.nextClearBit(id + 1)) {
+                missingSince.putIfAbsent(id, now);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> missing(List<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            return ids.stream().filter(id -> !indexed.get(id)).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void add(Visit visit) {
+        if (visit.getId() == null) {
+            return;
+        }
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        tokenize(visit.getDescription()).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        lock.writeLock().lock();
+        try {
+            int id = visit.getId();
+            if (indexed.get(id)) {
+                return;
+            }
+            indexed.set(id);
+            visitCount++;
+            frequencies.forEach((term, tf) -> terms.computeIfAbsent(term, key -> new Postings()).add(id, tf));
+            pets.computeIfAbsent(visit.getPetId(), key -> new Postings()).add(id, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the visits whose description contains every term of <code>query</code>, optionally restricted to one
+     * pet, ranked by TF-IDF with the most recent visit first on ties.
+     *
+     * @param offset number of ranked hits to skip
+     * @param limit  maximum number of ids to return
+     */
+    public Hits search(String query, Integer petId, int offset, int limit) {
+        if (!ready) {
+            throw new SearchIndexNotReadyException();
+        }
+        List<String> queryTerms = tokenize(query).stream().distinct().toList();
+        int depth = (int) Math.min((long) offset + limit, properties.getMaxResults());
+        if (queryTerms.isEmpty() || offset >= depth) {
+            return new Hits(0, List.of());
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(queryTerms.size() + 1);
+            for (String term : queryTerms) {
+                Postings postings = terms.get(term);
+                if (postings == null) {
+                    return new Hits(0, List.of());
+                }
+                lists.add(postings);
+            }
+            Postings petPostings = null;
+            if (petId != null) {
+                petPostings = pets.get(petId);
+                if (petPostings == null) {
+                    return new Hits(0, List.of());
+                }
+            }
+            return rank(lists, petPostings, offset, depth);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Hits rank(List<Postings> lists, Postings petPostings, int offset, int depth) {
+        // walk the rarest list and probe the others, which keeps the intersection proportional to the rarest term
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        double[] idf = new double[lists.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = Math.log(1 + (double) visitCount / lists.get(i).size);
+        }
+        Postings rarest = lists.get(0);
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::visitId);
+        PriorityQueue<Hit> top = new PriorityQueue<>(depth + 1, ranking);
+        int total = 0;
+        candidates:
+        for (int i = 0; i < rarest.size; i++) {
+            int id = rarest.ids[i];
+            if (petPostings != null && petPostings.indexOf(id) < 0) {
+                continue;
+            }
+            double score = idf[0] * weight(rarest.tfs[i]);
+            for (int t = 1; t < lists.size(); t++) {
+                Postings postings = lists.get(t);
+                int position = postings.indexOf(id);
+                if (position < 0) {
+                    continue candidates;
+                }
+                score += idf[t] * weight(postings.tfs[position]);
+            }
+            total++;
+            Hit hit = new Hit(id, score);
+            if (top.size() < depth) {
+                top.add(hit);
+            } else if (ranking.compare(hit, top.peek()) > 0) {
+                top.poll();
+                top.add(hit);
+            }
+        }
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(Collections.reverseOrder(ranking));
+        List<Integer> visitIds = ranked.subList(Math.min(offset, ranked.size()), ranked.size()).stream()
+            .map(Hit::visitId)
+            .toList();
+        return new Hits(total, visitIds);
+    }
+
+    private static double weight(byte tf) {
+        return 1 + Math.log(Byte.toUnsignedInt(tf));
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATORS.split(text.toLowerCase(Locale.ROOT)))
+            .filter(term -> term.length() >= MIN_TERM_LENGTH && !STOP_WORDS.contains(term))
+            .toList();
+    }
+
+    private int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int visitCount() {
+        lock.readLock().lock();
+        try {
+            return visitCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record Hits(int total, List<Integer> visitIds) {
+    }
+
+    private record Hit(int visitId, double score) {
+    }
+
+    /**
+     * Visit ids in ascending order with their term frequency, saturated at 255. Ids nearly always arrive in
+     * ascending order and are appended; the rare late arrival is inserted in place.
+     */
+    static final class Postings {
+
+        private int[] ids = new int[4];
+
+        private byte[] tfs = new byte[4];
+
+        private int size;
+
+        void add(int id, int tf) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1));
+                tfs = Arrays.copyOf(tfs, ids.length);
+            }
+            int position = size == 0 || ids[size - 1] < id ? size : -Arrays.binarySearch(ids, 0, size, id) - 1;
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(tfs, position, tfs, position + 1, size - position);
+            ids[position] = id;
+            tfs[position] = (byte) Math.min(tf, 255);
+            size++;
+        }
+
+        int indexOf(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.util.List;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.visits.application.ReactiveVisitReader;
+import org.springframework.samples.petclinic.visits.application.ReactiveVisitWriter;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link VisitResource}, active with the <code>reactive</code> profile. It serves the same URLs
+ * and JSON, but no request thread waits on the database.
+ * <p>
+ * There is no <code>@Timed</code> here: the aspect would only measure the assembly of the publishers. Latencies are
+ * recorded by the <code>http.server.requests</code> metrics instead.
+ */
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+class ReactiveVisitResource {
+
+    private final ReactiveVisitReader visitReader;
+
+    private final ReactiveVisitWriter visitWriter;
+
+    @PostMapping("owners/*/pets/{petId}/visits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Visit> create(
+        @Valid @RequestBody Visit visit,
+        @PathVariable("petId") @Min(1) int petId) {
+
+        visit.setPetId(petId);
+        log.info("Saving visit for pet {}", petId);
+        return visitWriter.write(visit);
+    }
+
+    @GetMapping("owners/*/pets/{petId}/visits")
+    public Flux<VisitSummary> read(@PathVariable("petId") @Min(1) int petId) {
+        return visitReader.findByPetId(petId);
+    }
+
+    @GetMapping("pets/visits")
+    public Mono<VisitResource.Visits> read(@RequestParam("petId") List<Integer> petIds) {
+        return visitReader.findByPetIds(petIds).collectList().map(VisitResource.Visits::new);
+    }
+
+    @GetMapping("visits/{visitId}")
+    public Mono<Visit> findVisit(@PathVariable("visitId") @Min(1) int visitId) {
+        return visitReader.findById(visitId)
+            .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Visit " + visitId + " not found")));
+    }
+}
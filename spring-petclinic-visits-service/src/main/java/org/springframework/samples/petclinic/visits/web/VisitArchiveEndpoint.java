@@ -0,0 +1,66 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.archive.VisitArchiver;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>GET /actuator/visitarchive</code> describes the archive, <code>POST /actuator/visitarchive</code> runs the
+ * archive job immediately and returns the number of visits it archived, without waiting for their rows to be deleted
+ * from the database. Only the replica designated with
+ * <code>visits.archive.archiver</code> runs the job, the others answer 409.
+ */
+@Component
+@Profile("!reactive")
+@Endpoint(id = "visitarchive")
+@RequiredArgsConstructor
+class VisitArchiveEndpoint {
+
+    private final VisitArchive archive;
+
+    private final ObjectProvider<VisitArchiver> archiver;
+
+    @ReadOperation
+    public ArchiveInfo info() {
+        return new ArchiveInfo(archive.segmentCount(), archive.visitCount());
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Integer> archive() {
+        VisitArchiver job = archiver.getIfAvailable();
+        if (job == null) {
+            return new WebEndpointResponse<>(HttpStatus.CONFLICT.value());
+        }
+        return new WebEndpointResponse<>(job.archive());
+    }
+
+    @Value
+    static class ArchiveInfo {
+        int segments;
+        long visits;
+    }
+}
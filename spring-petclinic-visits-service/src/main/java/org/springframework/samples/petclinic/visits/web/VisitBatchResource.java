@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.application.VisitImporter;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Bulk ingestion of visits for many pets at once, e.g. from lab systems or data migrations.
+ * Accepts either a JSON array or a newline-delimited JSON stream; the latter is read and saved incrementally. Both
+ * are refused with 413 beyond <code>visits.batch.max-items</code>: a stream as soon as it exceeds the limit, the
+ * chunks saved until then staying saved.
+ */
+@RestController
+@Profile("!reactive")
+@Slf4j
+@Timed("petclinic.visit")
+class VisitBatchResource {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final VisitImporter visitImporter;
+
+    private final ObjectReader visitReader;
+
+    VisitBatchResource(VisitImporter visitImporter, ObjectMapper objectMapper) {
+        this.visitImporter = visitImporter;
+        this.visitReader = objectMapper.readerFor(Visit.class);
+    }
+
+    @PostMapping(value = "visits/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchResult createAll(@RequestBody List<Visit> visits) {
+        if (visits.size() > visitImporter.getMaxItems()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "A batch may contain at most " + visitImporter.getMaxItems() + " visits");
+        }
+        VisitImporter.Session session = visitImporter.begin();
+        visits.forEach(session::add);
+        return result(session);
+    }
+
+    @PostMapping(value = "visits/batch", consumes = APPLICATION_NDJSON_VALUE)
+    public BatchResult createAll(InputStream body) throws IOException {
+        VisitImporter.Session session = visitImporter.begin();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (session.size() >= visitImporter.getMaxItems()) {
+                int saved = session.abort();
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "A batch may contain at most " + visitImporter.getMaxItems() + " visits, " + saved
+                        + " of those before the limit were saved");
+            }
+            try {
+                session.add(visitReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                session.reject("Malformed visit: " + e.getOriginalMessage());
+            }
+        }
+        return result(session);
+    }
+
+    private BatchResult result(VisitImporter.Session session) {
+        List<VisitImporter.ItemResult> items = session.finish();
+        int created = (int) items.stream().filter(item -> item.id() != null).count();
+        log.info("Imported {} visits, rejected {}", created, items.size() - created);
+        return new BatchResult(created, items.size() - created, items);
+    }
+
+    @Value
+    static class BatchResult {
+        int created;
+        int rejected;
+        List<VisitImporter.ItemResult> items;
+    }
+}
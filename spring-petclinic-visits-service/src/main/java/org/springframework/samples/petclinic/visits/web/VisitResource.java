@@ -16,6 +16,7 @@
 package org.springframework.samples.petclinic.visits.web;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 
@@ -23,9 +24,12 @@ import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.visits.application.VisitReader;
+import org.springframework.samples.petclinic.visits.application.VisitWriter;
 import org.springframework.samples.petclinic.visits.model.Visit;
-import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -43,37 +47,46 @@ import org.springframework.web.bind.annotation.RestController;
  * @author Ramazan Sakin
  */
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @Slf4j
 @Timed("petclinic.visit")
 class VisitResource {
 
-    private final VisitRepository visitRepository;
+    private final VisitReader visitReader;
+
+    private final VisitWriter visitWriter;
 
     @PostMapping("owners/*/pets/{petId}/visits")
     @ResponseStatus(HttpStatus.CREATED)
-    public Visit create(
+    public CompletableFuture<Visit> create(
         @Valid @RequestBody Visit visit,
         @PathVariable("petId") @Min(1) int petId) {
 
         visit.setPetId(petId);
-        log.info("Saving visit {}", visit);
-        return visitRepository.save(visit);
+        log.info("Saving visit for pet {}", petId);
+        return visitWriter.write(visit);
     }
 
     @GetMapping("owners/*/pets/{petId}/visits")
-    public List<Visit> read(@PathVariable("petId") @Min(1) int petId) {
-        return visitRepository.findByPetId(petId);
+    public List<VisitSummary> read(@PathVariable("petId") @Min(1) int petId) {
+        return visitReader.findByPetId(petId);
     }
 
     @GetMapping("pets/visits")
     public Visits read(@RequestParam("petId") List<Integer> petIds) {
-        final List<Visit> byPetIdIn = visitRepository.findByPetIdIn(petIds);
+        final List<VisitSummary> byPetIdIn = visitReader.findByPetIds(petIds);
         return new Visits(byPetIdIn);
     }
 
+    @GetMapping("visits/{visitId}")
+    public Visit findVisit(@PathVariable("visitId") @Min(1) int visitId) {
+        return visitReader.findById(visitId)
+            .orElseThrow(() -> new ResourceNotFoundException("Visit " + visitId + " not found"));
+    }
+
     @Value
     static class Visits {
-        List<Visit> items;
+        List<VisitSummary> items;
     }
 }
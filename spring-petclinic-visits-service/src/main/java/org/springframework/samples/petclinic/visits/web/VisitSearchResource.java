@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.visits.application.VisitReader;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
+import org.springframework.samples.petclinic.visits.search.VisitSearchIndex;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Full-text search over visit descriptions. All terms of <code>q</code> must match; results are ranked by
+ * relevance and paged with <code>page</code> and <code>limit</code>.
+ */
+@RestController
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Timed("petclinic.visit")
+class VisitSearchResource {
+
+    private final VisitSearchIndex searchIndex;
+
+    private final VisitReader visitReader;
+
+    private final VisitsProperties properties;
+
+    @GetMapping("visits/search")
+    public SearchResult search(
+        @RequestParam("q") String query,
+        @RequestParam(value = "petId", required = false) Integer petId,
+        @RequestParam(value = "page", defaultValue = "0") int page,
+        @RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+        if (query.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "q must not be blank");
+        }
+        if (page < 0 || limit < 1 || limit > properties.getSearch().getMaxLimit()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "page must not be negative and limit must be between 1 and " + properties.getSearch().getMaxLimit());
+        }
+        VisitSearchIndex.Hits hits = searchIndex.search(query, petId, (int) Math.min((long) page * limit, Integer.MAX_VALUE), limit);
+        return new SearchResult(query, hits.total(), visitReader.findByIds(hits.visitIds()));
+    }
+
+    @Value
+    static class SearchResult {
+        String query;
+        int total;
+        List<VisitSummary> items;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.samples.petclinic.visits.application.VisitStatistics;
+import org.springframework.stereotype.Component;
+
+/**
+ * <code>POST /actuator/visitstats</code> recomputes the visit statistics rollup from the visits table.
+ */
+@Component
+@Profile("!reactive")
+@Endpoint(id = "visitstats")
+@RequiredArgsConstructor
+class VisitStatsEndpoint {
+
+    private final VisitStatistics visitStatistics;
+
+    @WriteOperation
+    public void rebuild() {
+        visitStatistics.rebuild();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.visits.web;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.samples.petclinic.visits.application.VisitStatistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Visit counts grouped by month or by pet, read from the rollup maintained by {@link VisitStatistics}.
+ * The optional <code>from</code> and <code>to</code> months (<code>yyyy-MM</code>) are inclusive.
+ */
+@RestController
+@Profile("!reactive")
+@RequiredArgsConstructor
+@Timed("petclinic.visit")
+class VisitStatsResource {
+
+    private final VisitStatistics visitStatistics;
+
+    @GetMapping("visits/stats")
+    public VisitStats stats(
+        @RequestParam(value = "groupBy", defaultValue = "month") String groupBy,
+        @RequestParam(value = "from", required = false) YearMonth from,
+        @RequestParam(value = "to", required = false) YearMonth to) {
+
+        return switch (groupBy) {
+            case "month" -> new VisitStats(groupBy, visitStatistics.countByMonth(from, to));
+            case "pet" -> new VisitStats(groupBy, visitStatistics.countByPet(from, to));
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "groupBy must be 'month' or 'pet'");
+        };
+    }
+
+    @Value
+    static class VisitStats {
+        String groupBy;
+        List<?> items;
+    }
+}
@@ -1,10 +1,24 @@
 DROP TABLE visits IF EXISTS;
+DROP SEQUENCE visits_seq IF EXISTS;
 
 CREATE TABLE visits (
-  id          INTEGER IDENTITY PRIMARY KEY,
+  id          INTEGER PRIMARY KEY,
   pet_id      INTEGER NOT NULL,
   visit_date  DATE,
   description VARCHAR(8192)
 );
 
 CREATE INDEX visits_pet_id ON visits (pet_id);
+
+CREATE SEQUENCE visits_seq START WITH 100 INCREMENT BY 50;
+
+DROP TABLE visit_stats IF EXISTS;
+
+CREATE TABLE visit_stats (
+  pet_id      INTEGER NOT NULL,
+  visit_month INTEGER NOT NULL,
+  visits      INTEGER NOT NULL,
+  PRIMARY KEY (pet_id, visit_month)
+);
+
+CREATE INDEX visit_stats_month ON visit_stats (visit_month);
@@ -10,3 +10,19 @@ CREATE TABLE IF NOT EXISTS visits (
   description VARCHAR(8192),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
+
+-- Hibernate emulates the visits_seq sequence with a single-row table on MySQL
+CREATE TABLE IF NOT EXISTS visits_seq (
+  next_val BIGINT NOT NULL
+) engine=InnoDB;
+
+INSERT INTO visits_seq SELECT COALESCE(MAX(id), 0) + 100 FROM visits HAVING NOT EXISTS (SELECT * FROM visits_seq);
+
+-- Visits per pet and month (yyyymm), maintained together with every insert into visits
+CREATE TABLE IF NOT EXISTS visit_stats (
+  pet_id INT(4) UNSIGNED NOT NULL,
+  visit_month INT(6) UNSIGNED NOT NULL,
+  visits INT UNSIGNED NOT NULL,
+  PRIMARY KEY (pet_id, visit_month),
+  INDEX(visit_month)
+) engine=InnoDB;
@@ -0,0 +1,169 @@
+package org.springframework.samples.petclinic.visits.application;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+
+class GroupCommitVisitWriterTest {
+
+    private final VisitRepository visitRepository = mock(VisitRepository.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private GroupCommitVisitWriter writer;
+
+    @AfterEach
+    void stopWriter() {
+        writer.stop();
+    }
+
+    @Test
+    void shouldCommitQueuedVisitsTogether() throws Exception {
+        AtomicInteger ids = new AtomicInteger();
+        given(visitRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            visits.forEach(v -> v.setId(ids.incrementAndGet()));
+            return visits;
+        });
+        writer = newWriter(100, 10, Duration.ofMillis(50));
+        writer.start();
+
+        List<CompletableFuture<Visit>> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add(writer.write(visit().petId(7).build()));
+        }
+
+        for (CompletableFuture<Visit> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        }
+        assertThat(registry.get("petclinic.visit.batch.size").summary().count()).isLessThan(25);
+        assertThat(registry.get("petclinic.visit.batch.size").summary().max()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void shouldOnlyFailTheVisitThatBreaksItsBatch() throws Exception {
+        AtomicInteger ids = new AtomicInteger();
+        given(visitRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Visit> visits = invocation.getArgument(0);
+            visits.forEach(v -> v.setId(ids.incrementAndGet()));
+            if (visits.stream().anyMatch(v -> v.getPetId() < 0)) {
+                throw new DataIntegrityViolationException("no such pet");
+            }
+            return visits;
+        });
+        writer = newWriter(100, 10, Duration.ofMillis(200));
+        writer.start();
+
+        CompletableFuture<Visit> before = writer.write(visit().petId(7).build());
+        CompletableFuture<Visit> broken = writer.write(visit().petId(-1).build());
+        CompletableFuture<Visit> after = writer.write(visit().petId(8).build());
+
+        assertThat(before.get(5, TimeUnit.SECONDS).getPetId()).isEqualTo(7);
+        assertThat(after.get(5, TimeUnit.SECONDS).getPetId()).isEqualTo(8);
+        assertThatThrownBy(() -> broken.get(5, TimeUnit.SECONDS))
+            .hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(registry.get("petclinic.visit.batch.size").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectVisitsWhenQueueIsFull() throws Exception {
+        CountDownLatch committing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        given(visitRepository.saveAll(anyList())).willAnswer(invocation -> {
+            committing.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        writer = newWriter(1, 1, Duration.ofMillis(5));
+        writer.start();
+
+        writer.write(visit().petId(7).build());
+        assertThat(committing.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(visit().petId(7).build());
+
+        assertThatThrownBy(() -> writer.write(visit().petId(7).build()))
+            .isInstanceOf(VisitQueueFullException.class);
+        release.countDown();
+    }
+
+    @Test
+    void shouldCompleteAVisitOfferedWhileStopping() throws Exception {
+        given(visitRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+        CountDownLatch offering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // holds the first visit between the check that the writer runs and its offer, while stop() runs
+        BlockingQueue<GroupCommitVisitWriter.PendingVisit> queue = new ArrayBlockingQueue<>(10) {
+            @Override
+            public boolean offer(GroupCommitVisitWriter.PendingVisit pending) {
+                offering.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.offer(pending);
+            }
+        };
+        writer = newWriter(queue);
+        writer.start();
+
+        CompletableFuture<CompletableFuture<Visit>> writing =
+            CompletableFuture.supplyAsync(() -> writer.write(visit().petId(7).build()));
+        assertThat(offering.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> stopping = CompletableFuture.runAsync(writer::stop);
+        try {
+            // enough for the writer thread to see the queue closed and empty, unless stop() waits for the offer
+            stopping.get(1, TimeUnit.SECONDS);
+        } catch (TimeoutException expected) {
+        }
+        release.countDown();
+
+        assertThat(writing.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS).getPetId()).isEqualTo(7);
+        stopping.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> writer.write(visit().petId(7).build()))
+            .isInstanceOf(VisitQueueFullException.class);
+    }
+
+    private GroupCommitVisitWriter newWriter(BlockingQueue<GroupCommitVisitWriter.PendingVisit> queue) {
+        VisitsProperties properties = new VisitsProperties();
+        properties.getGroupCommit().setMaxDelay(Duration.ofMillis(5));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new GroupCommitVisitWriter(visitRepository, transactionTemplate, mock(ApplicationEventPublisher.class),
+            properties, registry, queue);
+    }
+
+    private GroupCommitVisitWriter newWriter(int queueCapacity, int maxBatchSize, Duration maxDelay) {
+        VisitsProperties properties = new VisitsProperties();
+        properties.getGroupCommit().setQueueCapacity(queueCapacity);
+        properties.getGroupCommit().setMaxBatchSize(maxBatchSize);
+        properties.getGroupCommit().setMaxDelay(maxDelay);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        return new GroupCommitVisitWriter(visitRepository, transactionTemplate, mock(ApplicationEventPublisher.class),
+            properties, registry);
+    }
+}
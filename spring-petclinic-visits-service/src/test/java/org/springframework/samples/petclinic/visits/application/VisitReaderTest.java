@@ -0,0 +1,96 @@
+package org.springframework.samples.petclinic.visits.application;
+
+import java.util.Arrays;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.visits.archive.VisitArchive;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+
+class VisitReaderTest {
+
+    private final VisitRepository visitRepository = mock(VisitRepository.class);
+
+    private final VisitArchive archive = mock(VisitArchive.class);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private VisitReader reader;
+
+    @BeforeEach
+    void setUp() {
+        VisitsProperties properties = new VisitsProperties();
+        properties.getLookup().setChunkSize(2);
+        properties.getLookup().setMaxPetIds(6);
+        properties.getLookup().setParallelism(2);
+        reader = new VisitReader(visitRepository, archive, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reader.destroy();
+    }
+
+    @Test
+    void shouldQueryDistinctIdsInSortedChunks() {
+        given(visitRepository.findSummariesByPetIdIn(anyCollection())).willAnswer(invocation -> {
+            List<Integer> petIds = invocation.getArgument(0);
+            return petIds.stream().map(petId -> new VisitSummary(petId * 10, petId, null, "visit")).toList();
+        });
+
+        List<VisitSummary> visits = reader.findByPetIds(Arrays.asList(5, 1, 3, 1, null, 4, 2));
+
+        assertThat(visits).extracting(VisitSummary::getPetId).containsExactly(1, 2, 3, 4, 5);
+        verify(visitRepository).findSummariesByPetIdIn(List.of(1, 2));
+        verify(visitRepository).findSummariesByPetIdIn(List.of(3, 4));
+        verify(visitRepository).findSummariesByPetIdIn(List.of(5));
+        assertThat(registry.get("petclinic.visit.lookup.chunks").summary().totalAmount()).isEqualTo(3);
+        assertThat(registry.get("petclinic.visit.lookup.chunk").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldMergeArchivedVisitsPreferringDatabaseRows() {
+        given(visitRepository.findSummariesByPetIdIn(List.of(1, 2))).willReturn(List.of(
+            new VisitSummary(10, 1, null, "updated"),
+            new VisitSummary(30, 2, null, "hot")));
+        given(archive.findByPetIds(List.of(1, 2))).willReturn(List.of(
+            visit().id(10).petId(1).description("stale").build(),
+            visit().id(5).petId(1).description("archived").build(),
+            visit().id(20).petId(2).description("archived").build()));
+
+        List<VisitSummary> visits = reader.findByPetIds(List.of(2, 1));
+
+        assertThat(visits).extracting(VisitSummary::getId).containsExactly(5, 10, 20, 30);
+        assertThat(visits.get(1).getDescription()).isEqualTo("updated");
+    }
+
+    @Test
+    void shouldRejectTooManyPetIds() {
+        assertThatThrownBy(() -> reader.findByPetIds(List.of(1, 2, 3, 4, 5, 6, 7)))
+            .isInstanceOf(TooManyPetIdsException.class);
+        verify(visitRepository, never()).findSummariesByPetIdIn(anyCollection());
+    }
+
+    @Test
+    void shouldPropagateChunkFailures() {
+        given(visitRepository.findSummariesByPetIdIn(anyCollection())).willThrow(new IllegalStateException("boom"));
+
+        assertThatThrownBy(() -> reader.findByPetIds(List.of(1, 2, 3)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("boom");
+    }
+}
@@ -0,0 +1,84 @@
+package org.springframework.samples.petclinic.visits.archive;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.Visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+
+class VisitArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldFindArchivedVisitsByPetAndId() {
+        VisitArchive archive = newArchive();
+        archive.append(List.of(
+            visit().id(3).petId(2).date(new Date(1000)).description("x".repeat(5000)).build(),
+            visit().id(1).petId(1).date(new Date(2000)).description("check-up").build(),
+            visit().id(2).petId(2).date(null).description(null).build()));
+
+        assertThat(archive.findByPetIds(List.of(2))).extracting(Visit::getId).containsExactly(2, 3);
+        assertThat(archive.findByPetIds(List.of(9))).isEmpty();
+        assertThat(archive.findById(3)).get()
+            .satisfies(visit -> {
+                assertThat(visit.getPetId()).isEqualTo(2);
+                assertThat(visit.getDate()).isEqualTo(new Date(1000));
+                assertThat(visit.getDescription()).hasSize(5000);
+            });
+        assertThat(archive.findById(2)).get()
+            .satisfies(visit -> {
+                assertThat(visit.getDate()).isNull();
+                assertThat(visit.getDescription()).isNull();
+            });
+        assertThat(archive.findById(4)).isEmpty();
+    }
+
+    @Test
+    void shouldReopenSegmentsAndDeduplicateVisits() throws Exception {
+        VisitArchive archive = newArchive();
+        archive.append(List.of(visit().id(1).petId(1).description("first").build()));
+        archive.append(List.of(
+            visit().id(1).petId(1).description("first").build(),
+            visit().id(2).petId(1).description("second").build()));
+
+        VisitArchive reopened = newArchive();
+
+        assertThat(reopened.segmentCount()).isEqualTo(2);
+        assertThat(reopened.findByPetIds(List.of(1))).extracting(Visit::getId).containsExactlyInAnyOrder(1, 2);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()).sorted())
+                .containsExactly("visits-00000001.seg", "visits-00000002.seg");
+        }
+    }
+
+    @Test
+    void shouldOpenSegmentsWrittenByAnotherInstance() {
+        VisitArchive archiver = newArchive();
+        VisitArchive replica = newArchive();
+
+        archiver.append(List.of(visit().id(1).petId(1).description("first").build()));
+        archiver.append(List.of(visit().id(2).petId(1).description("second").build()));
+
+        assertThat(replica.findByPetIds(List.of(1))).isEmpty();
+        assertThat(replica.refresh()).isEqualTo(2);
+        assertThat(replica.findByPetIds(List.of(1))).extracting(Visit::getId).containsExactly(1, 2);
+        assertThat(replica.refresh()).isZero();
+    }
+
+    private VisitArchive newArchive() {
+        VisitsProperties properties = new VisitsProperties();
+        properties.getArchive().setDirectory(directory);
+        return new VisitArchive(properties, new SimpleMeterRegistry());
+    }
+}
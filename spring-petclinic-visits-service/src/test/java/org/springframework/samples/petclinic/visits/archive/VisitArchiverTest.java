@@ -0,0 +1,111 @@
+package org.springframework.samples.petclinic.visits.archive;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext
+class VisitArchiverTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    VisitArchiver archiver;
+
+    @Autowired
+    VisitArchive archive;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @DynamicPropertySource
+    static void archiveDirectory(DynamicPropertyRegistry registry) {
+        registry.add("visits.archive.directory", () -> directory.toString());
+        registry.add("visits.archive.segment-size", () -> 3);
+    }
+
+    @Test
+    void shouldMoveOldVisitsToArchiveAndKeepServingThem() throws Exception {
+        long hot = visitRepository.count();
+
+        int archived = archiver.archive();
+
+        // the four sample visits date from 2013
+        assertThat(archived).isEqualTo(4);
+        assertThat(visitRepository.count()).isEqualTo(hot - 4);
+        assertThat(archive.segmentCount()).isEqualTo(2);
+
+        mvc.perform(get("/pets/visits?petId=7,8"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(4))
+            .andExpect(jsonPath("$.items[0].petId").value(7))
+            .andExpect(jsonPath("$.items[3].petId").value(8));
+
+        mvc.perform(get("/owners/6/pets/7/visits"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2));
+
+        mvc.perform(get("/visits/1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.petId").value(7));
+    }
+
+    @Test
+    void shouldReturnBeforeTheRowsAreDeletedForTheReplicas() {
+        VisitRepository repository = mock(VisitRepository.class);
+        given(repository.findByDateBeforeAndIdGreaterThan(any(), eq(0), any()))
+            .willReturn(List.of(visit().id(1).petId(7).build(), visit().id(2).petId(7).build()));
+        VisitsProperties properties = new VisitsProperties();
+        properties.getArchive().setRefreshInterval(Duration.ofMillis(250));
+        VisitArchiver delayed = new VisitArchiver(repository, mock(VisitArchive.class),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), properties, new SimpleMeterRegistry());
+        try {
+            assertThat(delayed.archive()).isEqualTo(2);
+            verify(repository, never()).deleteAllByIdInBatch(anyList());
+
+            // the rows still in the database are not archived twice
+            assertThat(delayed.archive()).isZero();
+
+            verify(repository, timeout(5000)).deleteAllByIdInBatch(List.of(1, 2));
+        } finally {
+            delayed.destroy();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.springframework.samples.petclinic.visits.model;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class VisitRepositoryTest {
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Test
+    void shouldTruncateLongDescriptionsInSummaries() {
+        String longDescription = "x".repeat(VisitSummary.PREVIEW_LENGTH + 500);
+        visitRepository.save(visit().petId(11).description(longDescription).build());
+        visitRepository.save(visit().petId(11).description("short").build());
+
+        List<VisitSummary> summaries = visitRepository.findSummariesByPetId(11);
+
+        assertThat(summaries).hasSize(2);
+        assertThat(summaries.get(0).getDescription()).hasSize(VisitSummary.PREVIEW_LENGTH);
+        assertThat(summaries.get(0).isDescriptionTruncated()).isTrue();
+        assertThat(summaries.get(1).getDescription()).isEqualTo("short");
+        assertThat(summaries.get(1).isDescriptionTruncated()).isFalse();
+    }
+
+    @Test
+    void shouldFindSummariesForSeveralPets() {
+        List<VisitSummary> summaries = visitRepository.findSummariesByPetIdIn(List.of(7, 8));
+
+        assertThat(summaries).extracting(VisitSummary::getPetId).containsOnly(7, 8).hasSize(4);
+    }
+}
@@ -0,0 +1,72 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "reactive"})
+class ReactiveVisitResourceTest {
+
+    @Autowired
+    WebTestClient client;
+
+    @Test
+    void shouldFetchVisitsOfSeveralPets() {
+        client.get().uri("/pets/visits?petId=8,7").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(4)
+            .jsonPath("$.items[0].id").isEqualTo(1)
+            .jsonPath("$.items[0].petId").isEqualTo(7)
+            .jsonPath("$.items[0].date").isEqualTo("2013-01-01")
+            .jsonPath("$.items[0].description").isEqualTo("rabies shot")
+            .jsonPath("$.items[3].petId").isEqualTo(8);
+    }
+
+    @Test
+    void shouldCreateAndReadVisit() {
+        String description = "x".repeat(200);
+        client.post().uri("/owners/1/pets/12/visits")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"date\":\"2023-01-01\",\"description\":\"" + description + "\"}")
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .jsonPath("$.id").isNumber()
+            .jsonPath("$.petId").isEqualTo(12);
+
+        client.get().uri("/owners/1/pets/12/visits").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1)
+            .jsonPath("$[0].descriptionTruncated").isEqualTo(true)
+            .jsonPath("$[0].description").value(value -> assertThat((String) value).hasSize(120));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownVisit() {
+        client.get().uri("/visits/9999").exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldRejectTooManyPetIds() {
+        String petIds = IntStream.rangeClosed(1, 2000)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(","));
+
+        client.get().uri("/pets/visits?petId=" + petIds).exchange()
+            .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,105 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.config.VisitsProperties;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VisitBatchResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    VisitsProperties properties;
+
+    @AfterEach
+    void restoreLimits() {
+        properties.setBatch(new VisitsProperties.Batch());
+    }
+
+    @Test
+    void shouldImportJsonArrayAndReportInvalidItems() throws Exception {
+        mvc.perform(post("/visits/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [{"petId": 7, "date": "2023-01-01", "description": "rabies shot"},
+                     {"date": "2023-01-02", "description": "no pet"},
+                     {"petId": 8, "date": "2023-01-03", "description": "neutered"}]
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(2))
+            .andExpect(jsonPath("$.rejected").value(1))
+            .andExpect(jsonPath("$.items[0].index").value(0))
+            .andExpect(jsonPath("$.items[0].id").isNumber())
+            .andExpect(jsonPath("$.items[1].index").value(1))
+            .andExpect(jsonPath("$.items[1].errors[0]").value("petId: must be greater than or equal to 1"))
+            .andExpect(jsonPath("$.items[2].id").isNumber());
+    }
+
+    @Test
+    void shouldImportNdjsonStream() throws Exception {
+        long before = visitRepository.count();
+
+        mvc.perform(post("/visits/batch")
+                .contentType(VisitBatchResource.APPLICATION_NDJSON_VALUE)
+                .content("""
+                    {"petId": 7, "date": "2023-02-01", "description": "check-up"}
+                    {"petId": 7, "date":
+                    {"petId": 8, "date": "2023-02-03", "description": "vaccination"}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(2))
+            .andExpect(jsonPath("$.items[1].errors[0]").isString())
+            .andExpect(jsonPath("$.items[2].index").value(2));
+
+        assertThat(visitRepository.count()).isEqualTo(before + 2);
+    }
+
+    @Test
+    void shouldRefuseJsonArrayOverTheLimit() throws Exception {
+        properties.getBatch().setMaxItems(3);
+
+        mvc.perform(post("/visits/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"petId\": 7}, {\"petId\": 7}, {\"petId\": 7}, {\"petId\": 7}]"))
+            .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void shouldStopReadingNdjsonStreamOverTheLimit() throws Exception {
+        properties.getBatch().setMaxItems(3);
+        properties.getBatch().setChunkSize(2);
+        long before = visitRepository.count();
+
+        mvc.perform(post("/visits/batch")
+                .contentType(VisitBatchResource.APPLICATION_NDJSON_VALUE)
+                .content("""
+                    {"petId": 7, "date": "2023-03-01", "description": "check-up"}
+                    {"petId": 7, "date": "2023-03-02", "description": "check-up"}
+                    {"petId": 7, "date": "2023-03-03", "description": "check-up"}
+                    {"petId": 7, "date": "2023-03-04", "description": "check-up"}
+                    """))
+            .andExpect(status().isPayloadTooLarge());
+
+        // the first chunk was saved before the limit was reached
+        assertThat(visitRepository.count()).isEqualTo(before + 2);
+    }
+}
@@ -5,17 +5,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
-import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.application.VisitReader;
+import org.springframework.samples.petclinic.visits.application.VisitWriter;
+import org.springframework.samples.petclinic.visits.model.VisitSummary;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Arrays.asList;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -27,25 +37,28 @@ class VisitResourceTest {
     MockMvc mvc;
 
     @MockBean
-    VisitRepository visitRepository;
+    VisitReader visitReader;
+
+    @MockBean
+    VisitWriter visitWriter;
 
     @Test
     void shouldFetchVisits() throws Exception {
-        given(visitRepository.findByPetIdIn(asList(111, 222)))
+        given(visitReader.findByPetIds(asList(111, 222)))
             .willReturn(
                 asList(
-                    visit()
+                    VisitSummary.of(visit()
                         .id(1)
                         .petId(111)
-                        .build(),
-                    visit()
+                        .build()),
+                    VisitSummary.of(visit()
                         .id(2)
                         .petId(222)
-                        .build(),
-                    visit()
+                        .build()),
+                    VisitSummary.of(visit()
                         .id(3)
                         .petId(222)
-                        .build()
+                        .build())
                 )
             );
 
@@ -58,4 +71,40 @@ class VisitResourceTest {
             .andExpect(jsonPath("$.items[1].petId").value(222))
             .andExpect(jsonPath("$.items[2].petId").value(222));
     }
+
+    @Test
+    void shouldFetchFullVisit() throws Exception {
+        given(visitReader.findById(4))
+            .willReturn(Optional.of(visit().id(4).petId(111).description("rabies shot").build()));
+
+        mvc.perform(get("/visits/4"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(4))
+            .andExpect(jsonPath("$.description").value("rabies shot"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownVisit() throws Exception {
+        given(visitReader.findById(4)).willReturn(Optional.empty());
+
+        mvc.perform(get("/visits/4"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldCreateVisit() throws Exception {
+        given(visitWriter.write(any()))
+            .willReturn(CompletableFuture.completedFuture(visit().id(5).petId(111).description("rabies shot").build()));
+
+        MvcResult result = mvc.perform(post("/owners/1/pets/111/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"date\":\"2023-01-01\",\"description\":\"rabies shot\"}"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.id").value(5))
+            .andExpect(jsonPath("$.petId").value(111));
+    }
 }
@@ -0,0 +1,133 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.visits.model.VisitRepository;
+import org.springframework.samples.petclinic.visits.search.VisitSearchIndex;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.samples.petclinic.visits.model.Visit.visit;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VisitSearchResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    VisitSearchIndex searchIndex;
+
+    @Autowired
+    VisitRepository visitRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void awaitIndex() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!searchIndex.isReady() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void shouldFindIndexedVisitsByTerm() throws Exception {
+        mvc.perform(get("/visits/search").param("q", "Rabies"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[*].id", hasItem(1)))
+            .andExpect(jsonPath("$.items[*].id", hasItem(2)));
+
+        mvc.perform(get("/visits/search").param("q", "rabies").param("petId", "7"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[*].id", hasItem(1)))
+            .andExpect(jsonPath("$.items[*].petId", everyItem(is(7))));
+    }
+
+    @Test
+    void shouldIndexCreatedVisitsAndRankByRelevance() throws Exception {
+        mvc.perform(post("/visits/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [{"petId": 7, "date": "2023-03-01", "description": "leptospirosis booster"},
+                     {"petId": 8, "date": "2023-03-02", "description": "Leptospirosis suspected, leptospirosis test"}]
+                    """))
+            .andExpect(status().isOk());
+
+        mvc.perform(get("/visits/search").param("q", "leptospirosis").param("limit", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(2))
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].petId").value(8));
+
+        mvc.perform(get("/visits/search").param("q", "leptospirosis").param("limit", "1").param("page", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].petId").value(7));
+
+        mvc.perform(get("/visits/search").param("q", "leptospirosis booster"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(1));
+    }
+
+    @Test
+    void shouldCatchUpWithVisitsCreatedByOtherInstances() throws Exception {
+        // saved without the VisitsCreatedEvent, like a visit created by another replica
+        visitRepository.save(visit().petId(9).description("heartworm screening").build());
+
+        mvc.perform(get("/visits/search").param("q", "heartworm"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(0));
+
+        assertThat(searchIndex.catchUp()).isEqualTo(1);
+        assertThat(searchIndex.catchUp()).isZero();
+
+        mvc.perform(get("/visits/search").param("q", "heartworm"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].petId").value(9));
+    }
+
+    @Test
+    void shouldCatchUpWithVisitsCommittedBelowHigherIds() throws Exception {
+        // another replica commits from an id block allocated before the one of a visit already indexed
+        int highest = jdbcTemplate.queryForObject("SELECT MAX(id) FROM visits", Integer.class);
+        insertVisit(highest + 100, "distemper booster");
+        assertThat(searchIndex.catchUp()).isEqualTo(1);
+
+        insertVisit(highest + 50, "distemper titer");
+        assertThat(searchIndex.catchUp()).isEqualTo(1);
+        assertThat(searchIndex.catchUp()).isZero();
+
+        mvc.perform(get("/visits/search").param("q", "distemper"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(2));
+    }
+
+    private void insertVisit(int id, String description) {
+        jdbcTemplate.update("INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, 10, '2023-04-01', ?)",
+            id, description);
+    }
+
+    @Test
+    void shouldRejectBlankQuery() throws Exception {
+        mvc.perform(get("/visits/search").param("q", " "))
+            .andExpect(status().isBadRequest());
+    }
+}
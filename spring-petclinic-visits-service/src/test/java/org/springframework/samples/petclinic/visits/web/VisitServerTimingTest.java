@@ -0,0 +1,55 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VisitServerTimingTest {
+
+    private static final String TIMING = "db;dur=\\d+\\.\\d\\d, ser;dur=\\d+\\.\\d\\d, app;dur=\\d+\\.\\d\\d, total;dur=\\d+\\.\\d\\d";
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void shouldReportTimingOfAsyncVisitCreation() throws Exception {
+        long before = registry.get("petclinic.server.timing").tag("hop", "visits-service").tag("phase", "total").timer().count();
+
+        MvcResult started = mvc.perform(post("/owners/1/pets/7/visits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"date\": \"2023-03-01\", \"description\": \"dental cleaning\"}"))
+            .andExpect(request().asyncStarted())
+            .andExpect(header().doesNotExist("Server-Timing"))
+            .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.petId").value(7))
+            .andExpect(jsonPath("$.description").value("dental cleaning"))
+            .andExpect(header().string("Server-Timing", matchesPattern(TIMING)));
+
+        assertThat(registry.get("petclinic.server.timing").tag("hop", "visits-service").tag("phase", "total").timer().count())
+            .isEqualTo(before + 1);
+    }
+}
@@ -0,0 +1,64 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VisitStatsResourceTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Test
+    void shouldCountInitialVisitsByMonthAndPet() throws Exception {
+        mvc.perform(get("/visits/stats?groupBy=month&from=2013-01&to=2013-12"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(1))
+            .andExpect(jsonPath("$.items[0].month").value("2013-01"))
+            .andExpect(jsonPath("$.items[0].visits").value(4));
+
+        mvc.perform(get("/visits/stats?groupBy=pet&from=2013-01&to=2013-01"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].petId").value(7))
+            .andExpect(jsonPath("$.items[0].visits").value(2))
+            .andExpect(jsonPath("$.items[1].petId").value(8))
+            .andExpect(jsonPath("$.items[1].visits").value(2));
+    }
+
+    @Test
+    void shouldUpdateCountsWhenVisitsAreCreated() throws Exception {
+        mvc.perform(post("/visits/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [{"petId": 3, "date": "1999-05-10", "description": "check-up"},
+                     {"petId": 3, "date": "1999-05-20", "description": "follow-up"},
+                     {"petId": 4, "date": "1999-06-01", "description": "vaccination"}]
+                    """))
+            .andExpect(status().isOk());
+
+        mvc.perform(get("/visits/stats?from=1999-01&to=1999-12"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].month").value("1999-05"))
+            .andExpect(jsonPath("$.items[0].visits").value(2))
+            .andExpect(jsonPath("$.items[1].month").value("1999-06"))
+            .andExpect(jsonPath("$.items[1].visits").value(1));
+    }
+
+    @Test
+    void shouldRejectUnknownGrouping() throws Exception {
+        mvc.perform(get("/visits/stats?groupBy=vet"))
+            .andExpect(status().isBadRequest());
+    }
+}